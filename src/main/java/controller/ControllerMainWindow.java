@@ -6,14 +6,18 @@ import model.PlanningRequest;
 import model.Request;
 import model.graphs.Graph;
 import model.graphs.Plan;
-import model.graphs.pathfinding.SimulatedAnnealing;
-import model.graphs.pathfinding.TSP;
+import model.graphs.pathfinding.PortfolioTSP;
+import model.graphs.pathfinding.SolverService;
+import model.graphs.pathfinding.TemplateTSP;
+import util.BinaryMapFile;
 import util.XMLParser;
 import view.MainWindow;
 import view.state.*;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.Future;
 
 import static javax.swing.JOptionPane.showMessageDialog;
 
@@ -22,9 +26,19 @@ import static javax.swing.JOptionPane.showMessageDialog;
  * and compute the response.
  */
 public class ControllerMainWindow {
+    // The minimal time between two tours shown while searching, in ms
+    private static final long SNAPSHOT_PERIOD = 500;
+    // The time after which a tour search stops, in ms
+    private static final int TOUR_TIMEOUT = 100000;
+    // The number of iterations of the simulated annealing racing the
+    // exact solvers
+    private static final int ANNEALING_ITERATIONS = 100000;
     private MainWindow mainWindow;
     private Plan planData;
     private Graph graph;
+    private final SolverService solverService = new SolverService(1, 1);
+    // The tour search in progress, null if none
+    private Future<DeliveryTour> tourSearch;
 
     /**
      * The constructor of the class.
@@ -49,16 +63,24 @@ public class ControllerMainWindow {
         try{
             request = xmlParser.readRequests(xmlFile.getPath(),planData.getIntersectionMap());
             if(request!=null) {
+                // The tour of the previous requests is not needed anymore
+                cancelTourSearch();
                 planData.setPlanningRequest(request);
                 mainWindow.setPlanData(planData);
                 State calculatingTourState = new CalculatingTourState();
                 calculatingTourState.execute(mainWindow);
-                TSP tsp = new SimulatedAnnealing(mainWindow);
+                // Race the exact and heuristic solvers
+                TemplateTSP tsp = new PortfolioTSP(mainWindow, ANNEALING_ITERATIONS);
+                // Show the improving tours while searching
+                tsp.setSnapshotPeriod(SNAPSHOT_PERIOD);
+                // Polish the tour found with a local search
+                tsp.setPolishing(true);
                 this.graph = Graph.generateCompleteGraphFromPlan(planData);
 
                 // Calling TSP to calculate the best tour
-                PlanningRequest finalRequest = request;
-                new Thread(() -> tsp.searchSolution(100000, graph, finalRequest)).start();
+                // The race lasts until the timeout
+                tourSearch = solverService.submit(tsp, TOUR_TIMEOUT,
+                        TOUR_TIMEOUT, graph, request);
             }
         }
         catch(Exception e){
@@ -76,11 +98,15 @@ public class ControllerMainWindow {
      * @param file the file read.
      */
     public void importMap(File file){
+        // The tour of the previous map is not needed anymore
+        cancelTourSearch();
         State loadingFileState = new LoadingFileState();
         loadingFileState.execute(mainWindow);
-        XMLParser parser = new XMLParser();
         try {
-            Plan plan = parser.readMap(file.getAbsolutePath());
+            Plan plan = readMap(file);
+            // Preprocess the road network once, so that routing the tours is fast
+            plan.getContractionHierarchy();
+            plan.getHeuristic();
             planData = plan;
             mainWindow.setPlanData(plan);
             mainWindow.clearPanels();
@@ -95,6 +121,45 @@ public class ControllerMainWindow {
         readyState.execute(mainWindow);
     }
 
+    /**
+     * Stop the tour search in progress, if any, freeing its thread.
+     */
+    private void cancelTourSearch(){
+        if (tourSearch != null) {
+            tourSearch.cancel(true);
+            tourSearch = null;
+        }
+    }
+
+    /**
+     * Read a map, from its compiled version when it is up to date, or else
+     * from the xml file which is then compiled for the next imports.
+     * @param file the xml map file.
+     * @return the plan read.
+     * @throws Exception if the xml file can't be read.
+     * @see BinaryMapFile
+     */
+    private Plan readMap(File file) throws Exception {
+        File compiledFile = BinaryMapFile.getCompiledFile(file);
+        if (file.getName().endsWith(".xml") && compiledFile.isFile()
+                && compiledFile.lastModified() >= file.lastModified()) {
+            try {
+                return BinaryMapFile.read(compiledFile);
+            } catch (Exception e) {
+                System.out.println("Ignoring compiled map: " + e.getMessage());
+            }
+        }
+
+        XMLParser parser = new XMLParser();
+        Plan plan = parser.readMap(file.getAbsolutePath());
+        try {
+            BinaryMapFile.write(plan, compiledFile);
+        } catch (IOException e) {
+            System.out.println("Could not compile map: " + e.getMessage());
+        }
+        return plan;
+    }
+
     /**
      * Method called when we remove a request
      * @param request the request to delete
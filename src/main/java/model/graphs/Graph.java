@@ -2,8 +2,8 @@ package model.graphs;
 
 import model.PlanningRequest;
 import model.Request;
-import model.graphs.pathfinding.Dijkstra;
 import model.graphs.pathfinding.Edge;
+import model.graphs.pathfinding.ManyToManyMatrix;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -30,45 +30,49 @@ public class Graph {
      */
     private float minCost;
     /**
-     * subgraphs minimal edge cost.
+     * subgraphs minimal edge cost, by exact set of vertices, null until
+     * needed.
      */
-    private HashMap<Integer, Float> minSubgraphCost;
+    private HashMap<Set<String>, Float> minSubgraphCost;
 
     /**
      * @param   plan the plan of the city
-     * @return  the complete graph of the point of interests from dijkstra
+     * @return  the complete graph of the point of interests, computed on
+     * the contraction hierarchy of the plan, as a matrix whose vertex 0 is
+     * the depot
+     * @see ManyToManyMatrix
+     * @see MatrixGraph
      */
     public static Graph generateCompleteGraphFromPlan(final Plan plan) {
-        Dijkstra dijkstra = new Dijkstra();
-        List<String> pointsOfInterests = new ArrayList<>();
+        List<String> pointsOfInterests =
+                getPointsOfInterests(plan.getPlanningRequest());
+        Graph newGraph = new MatrixGraph(pointsOfInterests);
+        try {
+            new ManyToManyMatrix(plan.getContractionHierarchy()).fill(plan,
+                    pointsOfInterests, newGraph);
+        } catch (Exception e) {
+            System.err.println("Error creating the complete graph :"
+                    + e.getMessage());
+            return null;
+        }
+
+        newGraph.calculateMinCost();
+        return newGraph;
+    }
 
-        PlanningRequest planningRequest = plan.getPlanningRequest();
+    /**
+     * @param planningRequest the planning request
+     * @return the depot followed by the delivery and pickup points
+     */
+    public static List<String> getPointsOfInterests(
+            final PlanningRequest planningRequest) {
+        List<String> pointsOfInterests = new ArrayList<>();
         pointsOfInterests.add(planningRequest.getStartId());
-        for (Request request: planningRequest.getRequests()) {
+        for (Request request : planningRequest.getRequests()) {
             pointsOfInterests.add(request.getDeliveryId());
             pointsOfInterests.add(request.getPickupId());
         }
-
-        Graph newGraph = new Graph();
-
-
-        for (String currentPoint:pointsOfInterests) {
-
-            try {
-                dijkstra.executeAlgorithm(plan,
-                        currentPoint,
-                        newGraph,
-                        pointsOfInterests);
-
-            } catch (Exception e) {
-                System.err.println("Error creating the complete graph :"
-                        + e.getMessage());
-                return null;
-            }
-        }
-
-        newGraph.calculateMinCost();
-        return newGraph;
+        return pointsOfInterests;
     }
 
     /**
@@ -88,20 +92,18 @@ public class Graph {
     public Graph() {
         vertices = new HashSet<>();
         edges = new HashMap<>();
-        minSubgraphCost = new HashMap<>();
     }
 
     /**
      * @param origin        the source vertex
      * @param destination   the destination vertex
-     * @return              the cost of the source -> destination edge
+     * @return              the cost of the source -> destination edge,
+     *                      <code>MatrixGraph.NO_EDGE</code> if there is none
      */
     public float getCost(final String origin, final String destination) {
         Edge edge = edges.get(new Key(origin, destination));
         if (edge == null) {
-            System.out.println(origin + " " + destination);
-
-            return 0;
+            return MatrixGraph.NO_EDGE;
         }
         return edge.getDuration();
     }
@@ -115,34 +117,46 @@ public class Graph {
 
 
     /**
+     * Copies the subgraph into a set to look it up in the cache, so it is
+     * only a fallback for plain graphs: the solvers bound their searches
+     * with a LowerBound on a MatrixGraph, which also overrides this method
+     * with a per-vertex array.
+     *
      * @param subGraph the subgraph
      * @return the minimum edge cost of the <code>subGraph</code>
+     * @see model.graphs.pathfinding.LowerBound
      */
     public float getMinCost(final List<String> subGraph) {
-        int hashcode = subGraph.stream()
-                .mapToInt(Object::hashCode)
-                .reduce(0, (left, right) -> left ^ right);
-        if (minSubgraphCost.containsKey(hashcode)) {
-            return minSubgraphCost.get(hashcode);
+        if (minSubgraphCost == null) {
+            minSubgraphCost = new HashMap<>();
+        }
+        Set<String> key = new HashSet<>(subGraph);
+        Float cached = minSubgraphCost.get(key);
+        if (cached != null) {
+            return cached;
         }
 
         float subGraphMinCost = Float.MAX_VALUE;
         for (Map.Entry<Key, Edge> entry : edges.entrySet()) {
             String x = entry.getKey().getX();
             String y = entry.getKey().getY();
-            if (subGraph.contains(x) || subGraph.contains(y)) {
+            if (key.contains(x) || key.contains(y)) {
                 float duration = entry.getValue().getDuration();
                 subGraphMinCost = Math.min(subGraphMinCost, duration);
             }
         }
 
-        minSubgraphCost.put(hashcode, subGraphMinCost);
+        minSubgraphCost.put(key, subGraphMinCost);
         return subGraphMinCost;
     }
 
     /**
+     * Nothing is allocated here, so a subclass storing its vertices and
+     * edges itself passes null and overrides every method reading them.
+     *
      * @param verticesSet set of the graph vertices
      * @param edgesMap    all the edges of the graph
+     * @see MatrixGraph
      */
     public Graph(final Set<String> verticesSet,
                  final HashMap<Key, Edge> edgesMap) {
@@ -161,6 +175,7 @@ public class Graph {
         vertices.add(origin);
         vertices.add(destination);
         edges.put(new Key(origin, destination), edge);
+        minSubgraphCost = null;
     }
 
     /**
@@ -0,0 +1,275 @@
+package model.graphs;
+
+import model.graphs.pathfinding.Edge;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class MatrixGraph. A Graph stored as a dense matrix: the vertices are
+ * numbered <code>0..n-1</code> and the cost of the edge <code>i -> j</code>
+ * is <code>getCost(i, j)</code>, a single load from a flat float array.
+ * The paths behind the edges are kept apart, and only needed to build a
+ * DeliveryTour.
+ * The String methods of Graph still work, through the id to index
+ * dictionary.
+ */
+public class MatrixGraph extends Graph {
+    /**
+     * the cost of a missing edge.
+     */
+    public static final float NO_EDGE = Float.MAX_VALUE;
+
+    /**
+     * for each vertex id, its index.
+     */
+    private final Map<String, Integer> indices;
+    /**
+     * for each vertex index, its id.
+     */
+    private final String[] ids;
+    /**
+     * the cost of each edge, indexed by <code>origin * n + destination</code>.
+     */
+    private final float[] costs;
+    /**
+     * the path of each edge, indexed like <code>costs</code>.
+     */
+    private final Edge[] paths;
+    /**
+     * the number of edges.
+     */
+    private int nbEdges;
+    /**
+     * the minimal edge cost.
+     */
+    private float minCost = NO_EDGE;
+    /**
+     * for each vertex, the cheapest edge coming in or going out of it,
+     * null until needed.
+     */
+    private float[] minTouchingCost;
+
+    /**
+     * Create a graph without edges.
+     *
+     * @param vertexIds the ids of the vertices, in index order; duplicates
+     *                  are ignored
+     */
+    public MatrixGraph(final List<String> vertexIds) {
+        // the vertices and edges of Graph stay unallocated
+        super(null, null);
+        Set<String> distinct = new LinkedHashSet<>(vertexIds);
+        ids = distinct.toArray(new String[0]);
+        indices = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            indices.put(ids[i], i);
+        }
+        costs = new float[ids.length * ids.length];
+        paths = new Edge[ids.length * ids.length];
+        Arrays.fill(costs, NO_EDGE);
+    }
+
+    /**
+     * @param graph a graph
+     * @return the graph itself if it is already a matrix, or else a matrix
+     * copy of it
+     */
+    public static MatrixGraph of(final Graph graph) {
+        if (graph instanceof MatrixGraph) {
+            return (MatrixGraph) graph;
+        }
+        MatrixGraph matrix = new MatrixGraph(
+                Arrays.asList(graph.getVertices().toArray(new String[0])));
+        for (Map.Entry<Key, Edge> entry : graph.getEdges().entrySet()) {
+            matrix.addEdge(entry.getKey().getX(), entry.getKey().getY(),
+                    entry.getValue());
+        }
+        matrix.calculateMinCost();
+        return matrix;
+    }
+
+    /**
+     * @param id the id of a vertex
+     * @return the index of the vertex, -1 if it is not in the graph
+     */
+    public int indexOf(final String id) {
+        Integer index = indices.get(id);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param index the index of a vertex
+     * @return the id of the vertex
+     */
+    public String getId(final int index) {
+        return ids[index];
+    }
+
+    /**
+     * @param origin      the index of the source vertex
+     * @param destination the index of the destination vertex
+     * @return the cost of the edge, <code>NO_EDGE</code> if there is none
+     */
+    public float getCost(final int origin, final int destination) {
+        return costs[origin * ids.length + destination];
+    }
+
+    /**
+     * @param origin      the index of the source vertex
+     * @param destination the index of the destination vertex
+     * @return the edge, null if there is none
+     */
+    public Edge getEdge(final int origin, final int destination) {
+        return paths[origin * ids.length + destination];
+    }
+
+    /**
+     * @param origin      the index of the source vertex
+     * @param destination the index of the destination vertex
+     * @param edge        the edge object
+     */
+    public void setEdge(final int origin, final int destination,
+                        final Edge edge) {
+        int cell = origin * ids.length + destination;
+        if (paths[cell] == null) {
+            nbEdges++;
+        }
+        paths[cell] = edge;
+        costs[cell] = edge.getDuration();
+        minTouchingCost = null;
+    }
+
+    /**
+     * @return the cost matrix, indexed by
+     * <code>origin * getNbVertices() + destination</code>; it must not be
+     * modified
+     */
+    public float[] getCosts() {
+        return costs;
+    }
+
+    @Override
+    public void addEdge(final String origin, final String destination,
+                        final Edge edge) {
+        int from = indexOf(origin);
+        int to = indexOf(destination);
+        if (from < 0 || to < 0) {
+            throw new IllegalArgumentException("Unknown vertex in edge "
+                    + origin + " -> " + destination);
+        }
+        setEdge(from, to, edge);
+    }
+
+    @Override
+    public void calculateMinCost() {
+        minCost = NO_EDGE;
+        for (float cost : costs) {
+            minCost = Math.min(minCost, cost);
+        }
+    }
+
+    @Override
+    public float getMinCost() {
+        return minCost;
+    }
+
+    @Override
+    public float getMinCost(final List<String> subGraph) {
+        if (minTouchingCost == null) {
+            minTouchingCost = minTouchingCosts();
+        }
+        float subGraphMinCost = NO_EDGE;
+        for (String vertex : subGraph) {
+            int index = indexOf(vertex);
+            if (index >= 0) {
+                subGraphMinCost = Math.min(subGraphMinCost,
+                        minTouchingCost[index]);
+            }
+        }
+        return subGraphMinCost;
+    }
+
+    private float[] minTouchingCosts() {
+        int n = ids.length;
+        float[] min = new float[n];
+        Arrays.fill(min, NO_EDGE);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                float cost = costs[i * n + j];
+                min[i] = Math.min(min[i], cost);
+                min[j] = Math.min(min[j], cost);
+            }
+        }
+        return min;
+    }
+
+    /**
+     * @param origin      the source vertex
+     * @param destination the destination vertex
+     * @return the cost of the source -> destination edge, NO_EDGE if there
+     * is none, like <code>getCost(int, int)</code>
+     */
+    @Override
+    public float getCost(final String origin, final String destination) {
+        Edge edge = getEdge(origin, destination);
+        if (edge == null) {
+            return NO_EDGE;
+        }
+        return edge.getDuration();
+    }
+
+    @Override
+    public boolean isArc(final String origin, final String destination) {
+        return getEdge(origin, destination) != null;
+    }
+
+    @Override
+    public Edge getEdge(final String origin, final String destination) {
+        int from = indexOf(origin);
+        int to = indexOf(destination);
+        if (from < 0 || to < 0) {
+            return null;
+        }
+        return getEdge(from, to);
+    }
+
+    @Override
+    public int getNbVertices() {
+        return ids.length;
+    }
+
+    @Override
+    public int getNbEdges() {
+        return nbEdges;
+    }
+
+    /**
+     * @return a copy of the vertices of the graph, in index order
+     */
+    @Override
+    public Set<String> getVertices() {
+        return new LinkedHashSet<>(Arrays.asList(ids));
+    }
+
+    /**
+     * @return a copy of the edges of the graph
+     */
+    @Override
+    public HashMap<Key, Edge> getEdges() {
+        HashMap<Key, Edge> edges = new HashMap<>(nbEdges * 2);
+        for (int i = 0; i < ids.length; i++) {
+            for (int j = 0; j < ids.length; j++) {
+                Edge edge = paths[i * ids.length + j];
+                if (edge != null) {
+                    edges.put(new Key(ids[i], ids[j]), edge);
+                }
+            }
+        }
+        return edges;
+    }
+}
@@ -4,6 +4,12 @@ import model.DeliveryTour;
 import model.Intersection;
 import model.PlanningRequest;
 import model.Segment;
+import model.graphs.pathfinding.BidirectionalAStar;
+import model.graphs.pathfinding.ContractionHierarchy;
+import model.graphs.pathfinding.Edge;
+import model.graphs.pathfinding.GeometricHeuristic;
+import model.graphs.pathfinding.Heuristic;
+import model.graphs.pathfinding.Landmarks;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -39,6 +45,19 @@ public class Plan {
      */
     private DeliveryTour deliveryTour = null;
 
+    /**
+     * the compressed view of the road network, built on first use.
+     */
+    private volatile RoadNetwork roadNetwork = null;
+    /**
+     * the contraction hierarchy of the road network, built on first use.
+     */
+    private volatile ContractionHierarchy contractionHierarchy = null;
+    /**
+     * the lower bound of the path lengths, built on first use.
+     */
+    private volatile Heuristic heuristic = null;
+
     private float maxLatitude;
     private float minLatitude;
     private float maxLongitude;
@@ -95,6 +114,32 @@ public class Plan {
         this.minLongitude = minLongitude;
     }
 
+    /**
+     * the constructor of the class Plan, when its road network is already
+     * built (for example by a compiled map loader).
+     * @param intersectionMap the intersections, by id.
+     * @param adjacentsMap the adjacent intersections of each intersection.
+     * @param segmentMap the segments, by origin and destination.
+     * @param roadNetwork the road network view of the three maps.
+     * @param maxLatitude the maximum projected latitude.
+     * @param minLatitude the minimum projected latitude.
+     * @param maxLongitude the maximum longitude.
+     * @param minLongitude the minimum longitude.
+     * @see RoadNetwork
+     */
+    public Plan(final Map<String, Intersection> intersectionMap,
+                final Map<String, List<String>> adjacentsMap,
+                final Map<Key, Segment> segmentMap,
+                final RoadNetwork roadNetwork,
+                final float maxLatitude,
+                final float minLatitude,
+                final float maxLongitude,
+                final float minLongitude) {
+        this(intersectionMap, adjacentsMap, segmentMap,
+                maxLatitude, minLatitude, maxLongitude, minLongitude);
+        this.roadNetwork = roadNetwork;
+    }
+
     /**
      * @return the intersections map
      */
@@ -119,6 +164,97 @@ public class Plan {
     public void addIntersection(final String id,
                                 final Intersection intersection) {
         intersectionMap.put(id, intersection);
+        roadNetwork = null;
+        contractionHierarchy = null;
+        heuristic = null;
+    }
+
+    /**
+     * Get the compressed sparse row view of the road network. It is built
+     * once from the maps of the plan, then shared by every caller.
+     * @return the read-only road network.
+     * @see RoadNetwork
+     */
+    public RoadNetwork getRoadNetwork() {
+        RoadNetwork network = roadNetwork;
+        if (network == null) {
+            synchronized (this) {
+                network = roadNetwork;
+                if (network == null) {
+                    network = RoadNetwork.build(intersectionMap,
+                            adjacentsMap, segmentMap);
+                    roadNetwork = network;
+                }
+            }
+        }
+        return network;
+    }
+
+    /**
+     * Get the contraction hierarchy of the road network, for fast
+     * point-to-point queries. It is built once, then shared by every caller.
+     * @return the contraction hierarchy.
+     * @see ContractionHierarchy
+     */
+    public ContractionHierarchy getContractionHierarchy() {
+        ContractionHierarchy hierarchy = contractionHierarchy;
+        if (hierarchy == null) {
+            RoadNetwork network = getRoadNetwork();
+            synchronized (this) {
+                hierarchy = contractionHierarchy;
+                if (hierarchy == null
+                        || hierarchy.getNetwork() != network) {
+                    hierarchy = ContractionHierarchy.build(network);
+                    contractionHierarchy = hierarchy;
+                }
+            }
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Get the lower bound of the path lengths used by the point-to-point
+     * searches: the ALT landmarks of the road network, or the straight-line
+     * distance if they couldn't be computed. It is built once, then shared
+     * by every caller.
+     * @return the heuristic of the road network.
+     * @see Landmarks
+     */
+    public Heuristic getHeuristic() {
+        Heuristic bound = heuristic;
+        if (bound == null) {
+            RoadNetwork network = getRoadNetwork();
+            synchronized (this) {
+                bound = heuristic;
+                if (bound == null) {
+                    try {
+                        bound = Landmarks.select(network,
+                                Landmarks.DEFAULT_COUNT);
+                    } catch (Exception e) {
+                        System.err.println("Could not select landmarks: "
+                                + e.getMessage());
+                        bound = new GeometricHeuristic(network);
+                    }
+                    heuristic = bound;
+                }
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Search the shortest path between two intersections with a
+     * bidirectional A*, without computing the paths to all the others.
+     * @param origin the id of the origin intersection.
+     * @param destination the id of the destination intersection.
+     * @return the shortest path from origin to destination.
+     * @throws Exception if there is no route between them.
+     * @see BidirectionalAStar
+     */
+    public Edge findShortestPath(final String origin,
+                                 final String destination) throws Exception {
+        return new BidirectionalAStar(getRoadNetwork(), getHeuristic())
+                .findShortestPath(this, origin, destination);
     }
 
     /**
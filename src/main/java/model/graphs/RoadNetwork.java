@@ -0,0 +1,345 @@
+package model.graphs;
+
+import model.Intersection;
+import model.Segment;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class RoadNetwork. A read-only compressed sparse row view of the road
+ * network of a Plan: intersections are numbered <code>0..n-1</code> and the
+ * outgoing segments of node <code>u</code> are the edges
+ * <code>edgeStart(u)</code> to <code>edgeEnd(u) - 1</code>.
+ * Routing and rendering can walk these arrays instead of hashing Strings
+ * and allocating a Key per segment.
+ * @see Plan#getRoadNetwork()
+ */
+public final class RoadNetwork {
+    /**
+     * for each intersection id, its node index.
+     */
+    private final Map<String, Integer> nodeIndex;
+    /**
+     * for each node index, its intersection id.
+     */
+    private final String[] nodeIds;
+    /**
+     * the projected latitude of each node.
+     */
+    private final float[] latitudes;
+    /**
+     * the longitude of each node.
+     */
+    private final float[] longitudes;
+    /**
+     * the first edge of each node, <code>offsets[n + 1]</code> being
+     * the end of the edges of node n.
+     */
+    private final int[] offsets;
+    /**
+     * the destination node of each edge.
+     */
+    private final int[] targets;
+    /**
+     * the length of each edge.
+     */
+    private final float[] lengths;
+    /**
+     * the index in <code>streetNames</code> of the name of each edge.
+     */
+    private final int[] nameIndices;
+    /**
+     * the distinct street names.
+     */
+    private final String[] streetNames;
+    /**
+     * the first incoming edge of each node, <code>inOffsets[n + 1]</code>
+     * being the end of the incoming edges of node n.
+     */
+    private final int[] inOffsets;
+    /**
+     * the incoming edges of each node, as indices of outgoing edges.
+     */
+    private final int[] inEdges;
+    /**
+     * the origin node of each incoming edge.
+     */
+    private final int[] inSources;
+
+    /**
+     * Build the view directly from its arrays, the arrays are not copied.
+     *
+     * @param nodeIds     for each node index, its intersection id
+     * @param latitudes   the projected latitude of each node
+     * @param longitudes  the longitude of each node
+     * @param offsets     the first edge of each node, plus the edge count
+     * @param targets     the destination node of each edge
+     * @param lengths     the length of each edge
+     * @param nameIndices the index of the street name of each edge
+     * @param streetNames the distinct street names
+     */
+    public RoadNetwork(final String[] nodeIds,
+                       final float[] latitudes,
+                       final float[] longitudes,
+                       final int[] offsets,
+                       final int[] targets,
+                       final float[] lengths,
+                       final int[] nameIndices,
+                       final String[] streetNames) {
+        this.nodeIds = nodeIds;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.lengths = lengths;
+        this.nameIndices = nameIndices;
+        this.streetNames = streetNames;
+        nodeIndex = new HashMap<>(nodeIds.length * 2);
+        for (int node = 0; node < nodeIds.length; node++) {
+            nodeIndex.put(nodeIds[node], node);
+        }
+
+        // Transpose the topology, for the searches going backward
+        int nbNodes = nodeIds.length;
+        inOffsets = new int[nbNodes + 1];
+        inEdges = new int[targets.length];
+        inSources = new int[targets.length];
+        for (int edge = 0; edge < targets.length; edge++) {
+            inOffsets[targets[edge] + 1]++;
+        }
+        for (int node = 0; node < nbNodes; node++) {
+            inOffsets[node + 1] += inOffsets[node];
+        }
+        int[] next = Arrays.copyOf(inOffsets, nbNodes);
+        for (int node = 0; node < nbNodes; node++) {
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                int in = next[targets[edge]]++;
+                inEdges[in] = edge;
+                inSources[in] = node;
+            }
+        }
+    }
+
+    /**
+     * Build the view of the maps of a plan.
+     *
+     * @param intersectionMap the intersections, by id
+     * @param adjacentsMap    the adjacent intersections of each intersection
+     * @param segmentMap      the segments, by origin and destination
+     * @return the compressed view of the road network
+     */
+    public static RoadNetwork build(
+            final Map<String, Intersection> intersectionMap,
+            final Map<String, List<String>> adjacentsMap,
+            final Map<Key, Segment> segmentMap) {
+        Map<String, Integer> index = new HashMap<>();
+        for (String id : intersectionMap.keySet()) {
+            index.putIfAbsent(id, index.size());
+        }
+        int nbEdges = 0;
+        for (Map.Entry<String, List<String>> entry
+                : adjacentsMap.entrySet()) {
+            index.putIfAbsent(entry.getKey(), index.size());
+            for (String destination : entry.getValue()) {
+                index.putIfAbsent(destination, index.size());
+                nbEdges++;
+            }
+        }
+
+        int nbNodes = index.size();
+        String[] nodeIds = new String[nbNodes];
+        float[] latitudes = new float[nbNodes];
+        float[] longitudes = new float[nbNodes];
+        for (Map.Entry<String, Integer> entry : index.entrySet()) {
+            int node = entry.getValue();
+            nodeIds[node] = entry.getKey();
+            Intersection intersection = intersectionMap.get(entry.getKey());
+            if (intersection != null) {
+                latitudes[node] = intersection.getLatitude();
+                longitudes[node] = intersection.getLongitude();
+            }
+        }
+
+        Map<String, Integer> nameIndex = new HashMap<>();
+        int[] offsets = new int[nbNodes + 1];
+        int[] targets = new int[nbEdges];
+        float[] lengths = new float[nbEdges];
+        int[] nameIndices = new int[nbEdges];
+        int edge = 0;
+        for (int node = 0; node < nbNodes; node++) {
+            offsets[node] = edge;
+            List<String> adjacents = adjacentsMap.get(nodeIds[node]);
+            if (adjacents == null) {
+                continue;
+            }
+            for (String destination : adjacents) {
+                Segment segment = segmentMap.get(
+                        new Key(nodeIds[node], destination));
+                if (segment == null) {
+                    continue;
+                }
+                targets[edge] = index.get(destination);
+                lengths[edge] = segment.getLength();
+                String name = segment.getName();
+                Integer nameId = nameIndex.get(name);
+                if (nameId == null) {
+                    nameId = nameIndex.size();
+                    nameIndex.put(name, nameId);
+                }
+                nameIndices[edge] = nameId;
+                edge++;
+            }
+        }
+        offsets[nbNodes] = edge;
+
+        String[] streetNames = new String[nameIndex.size()];
+        for (Map.Entry<String, Integer> entry : nameIndex.entrySet()) {
+            streetNames[entry.getValue()] = entry.getKey();
+        }
+        if (edge < nbEdges) {
+            targets = Arrays.copyOf(targets, edge);
+            lengths = Arrays.copyOf(lengths, edge);
+            nameIndices = Arrays.copyOf(nameIndices, edge);
+        }
+        return new RoadNetwork(nodeIds, latitudes, longitudes,
+                offsets, targets, lengths, nameIndices, streetNames);
+    }
+
+    /**
+     * @return the number of nodes
+     */
+    public int getNbNodes() {
+        return nodeIds.length;
+    }
+
+    /**
+     * @return the number of edges
+     */
+    public int getNbEdges() {
+        return targets.length;
+    }
+
+    /**
+     * @param id the id of an intersection
+     * @return the node index of the intersection, -1 if it is not in the
+     * network
+     */
+    public int indexOf(final String id) {
+        Integer node = nodeIndex.get(id);
+        return node == null ? -1 : node;
+    }
+
+    /**
+     * @param node the node index
+     * @return the id of the intersection
+     */
+    public String getId(final int node) {
+        return nodeIds[node];
+    }
+
+    /**
+     * @param node the node index
+     * @return the projected latitude of the node
+     */
+    public float getLatitude(final int node) {
+        return latitudes[node];
+    }
+
+    /**
+     * @param node the node index
+     * @return the longitude of the node
+     */
+    public float getLongitude(final int node) {
+        return longitudes[node];
+    }
+
+    /**
+     * @param node the node index
+     * @return the first outgoing edge of the node
+     */
+    public int edgeStart(final int node) {
+        return offsets[node];
+    }
+
+    /**
+     * @param node the node index
+     * @return the end (exclusive) of the outgoing edges of the node
+     */
+    public int edgeEnd(final int node) {
+        return offsets[node + 1];
+    }
+
+    /**
+     * @param node the node index
+     * @return the first incoming edge of the node
+     */
+    public int inEdgeStart(final int node) {
+        return inOffsets[node];
+    }
+
+    /**
+     * @param node the node index
+     * @return the end (exclusive) of the incoming edges of the node
+     */
+    public int inEdgeEnd(final int node) {
+        return inOffsets[node + 1];
+    }
+
+    /**
+     * @param in the incoming edge index
+     * @return the index of the same edge among the outgoing edges
+     */
+    public int getInEdge(final int in) {
+        return inEdges[in];
+    }
+
+    /**
+     * @param in the incoming edge index
+     * @return the origin node of the edge
+     */
+    public int getInSource(final int in) {
+        return inSources[in];
+    }
+
+    /**
+     * @param edge the edge index
+     * @return the destination node of the edge
+     */
+    public int getTarget(final int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * @param edge the edge index
+     * @return the length of the edge
+     */
+    public float getLength(final int edge) {
+        return lengths[edge];
+    }
+
+    /**
+     * @param edge the edge index
+     * @return the index of the street name of the edge
+     */
+    public int getNameIndex(final int edge) {
+        return nameIndices[edge];
+    }
+
+    /**
+     * @param nameIndex the index of a street name
+     * @return the street name
+     */
+    public String getStreetName(final int nameIndex) {
+        return streetNames[nameIndex];
+    }
+
+    /**
+     * @return the number of distinct street names
+     */
+    public int getNbStreetNames() {
+        return streetNames.length;
+    }
+}
@@ -0,0 +1,488 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.graphs.MatrixGraph;
+import observer.Observer;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class AntColony. The MAX-MIN ant system: at each iteration, ants build
+ * tours in parallel, each going from a vertex to the next with a
+ * probability growing with the pheromone of the edge and decreasing with
+ * its cost; then the pheromones evaporate and the best tour deposits on
+ * its edges, within bounds that keep every edge possible.
+ * The pheromones are a matrix of floats on the vertex indices of the
+ * MatrixGraph, and the ants only read them, through the attraction of
+ * each edge computed once per iteration, so the update is a batch made
+ * between two iterations. An ant only chooses among the nearest
+ * successors of its vertex whose pickups are visited, and among the other
+ * ones only when none of these is left. Each tour is improved by a
+ * LocalSearch before the update.
+ * The time limit is in milliseconds.
+ */
+public class AntColony extends TemplateTSP {
+    /**
+     * the number of ants building tours at each iteration, per thread of
+     * the pool.
+     */
+    private static final int ANTS_PER_THREAD = 4;
+    /**
+     * the number of nearest successors an ant chooses among.
+     */
+    static final int NB_CANDIDATES = 10;
+    /**
+     * the exponent of the inverse cost in the attraction of an edge, the
+     * one of the pheromone being 1.
+     */
+    private static final double BETA = 2;
+    /**
+     * the share of the pheromones evaporating at each iteration.
+     */
+    private static final float EVAPORATION = 0.1f;
+    /**
+     * the number of iterations without improvement after which the
+     * pheromones are reset.
+     */
+    private static final int STAGNATION = 200;
+    /**
+     * the number of iterations between two deposits of the best tour so
+     * far, the best tour of the iteration depositing in between.
+     */
+    private static final int BEST_DEPOSIT_PERIOD = 5;
+
+    /**
+     * the pool running the ants.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * the random generator, from which the ants split their own.
+     */
+    private SplittableRandom random = new SplittableRandom();
+    /**
+     * the graph, as a matrix.
+     */
+    private MatrixGraph matrix;
+    /**
+     * the number of vertices.
+     */
+    private int n;
+    /**
+     * the pickup and delivery precedences.
+     */
+    private PrecedenceConstraints precedences;
+    /**
+     * the nearest successors of each vertex.
+     */
+    private SortedNeighbours neighbours;
+    /**
+     * the pheromone of each edge, indexed like the cost matrix.
+     */
+    private float[] pheromones;
+    /**
+     * the inverse cost of each edge, to the power of BETA.
+     */
+    private float[] visibility;
+    /**
+     * the attraction of each edge: its pheromone times its visibility.
+     */
+    private float[] attraction;
+    /**
+     * the upper bound of the pheromones.
+     */
+    private float maxPheromone;
+    /**
+     * the lower bound of the pheromones.
+     */
+    private float minPheromone;
+    /**
+     * the ants.
+     */
+    private Ant[] ants;
+    /**
+     * the number of iterations of the last search.
+     */
+    private long nbIterations;
+
+    /**
+     * constructor with observer, on the common pool.
+     *
+     * @param mainWindow the main observer
+     */
+    public AntColony(final Observer mainWindow) {
+        this(ForkJoinPool.commonPool());
+        addObserver(mainWindow);
+    }
+
+    /**
+     * default constructor, on the common pool.
+     */
+    public AntColony() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool the pool running the ants
+     */
+    public AntColony(final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Seed the random generator, to reproduce the ants of a search.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(final long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @return the number of iterations of the last search
+     */
+    public long getNbIterations() {
+        return nbIterations;
+    }
+
+    @Override
+    public void computeSolution(final PlanningRequest planningRequest) {
+        prepare(MatrixGraph.of(g), planningRequest);
+        Incumbent incumbent = getSharedIncumbent() != null
+                ? getSharedIncumbent() : new Incumbent();
+        nbIterations = 0;
+        ants = new Ant[Math.max(1, pool.getParallelism()) * ANTS_PER_THREAD];
+        for (int i = 0; i < ants.length; i++) {
+            ants[i] = newAnt(random.split());
+        }
+
+        // the first ant is only guided by the costs
+        ants[0].compute();
+        ants[0].reinitialize();
+        int[] bestTour = ants[0].tour.clone();
+        float bestCost = ants[0].cost;
+        offer(incumbent, bestTour, bestCost);
+        resetPheromones(bestCost);
+
+        Colony colony = new Colony();
+        int sinceImprovement = 0;
+        while (System.currentTimeMillis() - startTime <= timeLimit
+                && !shouldStop()) {
+            pool.invoke(colony);
+            colony.reinitialize();
+            Ant iterationBest = ants[0];
+            for (Ant ant : ants) {
+                ant.reinitialize();
+                if (ant.cost < iterationBest.cost) {
+                    iterationBest = ant;
+                }
+            }
+            nbIterations++;
+            if (iterationBest.cost < bestCost) {
+                bestCost = iterationBest.cost;
+                System.arraycopy(iterationBest.tour, 0, bestTour, 0, n);
+                offer(incumbent, bestTour, bestCost);
+                sinceImprovement = 0;
+            } else {
+                sinceImprovement++;
+            }
+            if (sinceImprovement >= STAGNATION) {
+                resetPheromones(bestCost);
+                sinceImprovement = 0;
+            } else {
+                updateBounds(bestCost);
+                if (nbIterations % BEST_DEPOSIT_PERIOD == 0) {
+                    deposit(bestTour, bestCost);
+                } else {
+                    deposit(iterationBest.tour, iterationBest.cost);
+                }
+            }
+        }
+
+        int[] tour = incumbent.getTour();
+        bestSolCost = incumbent.getCost();
+        if (tour != null) {
+            for (int i = 0; i < n; i++) {
+                bestSol[i] = matrix.getId(tour[i]);
+            }
+        }
+    }
+
+    /**
+     * Prepare a search: the precedences, the nearest successors, and the
+     * visibility of each edge, which is also its attraction until the
+     * pheromones are set.
+     *
+     * @param graph           the graph, as a matrix
+     * @param planningRequest the planning request
+     */
+    void prepare(final MatrixGraph graph,
+                 final PlanningRequest planningRequest) {
+        matrix = graph;
+        n = matrix.getNbVertices();
+        float[] costs = matrix.getCosts();
+        precedences = new PrecedenceConstraints(matrix, planningRequest);
+        neighbours = new SortedNeighbours(matrix);
+        pheromones = new float[n * n];
+        visibility = new float[n * n];
+        attraction = new float[n * n];
+        for (int edge = 0; edge < n * n; edge++) {
+            visibility[edge] = costs[edge] == MatrixGraph.NO_EDGE
+                    ? 0 : (float) Math.pow(1.0 / Math.max(costs[edge],
+                    Float.MIN_NORMAL), BETA);
+        }
+        System.arraycopy(visibility, 0, attraction, 0, n * n);
+    }
+
+    /**
+     * @param antRandom the random generator of the ant
+     * @return a new ant, with its own buffers
+     */
+    Ant newAnt(final SplittableRandom antRandom) {
+        return new Ant(new LocalSearch(matrix, precedences, neighbours),
+                antRandom);
+    }
+
+    /**
+     * @param origin      a vertex
+     * @param destination another vertex
+     * @return the pheromone of the edge between them
+     */
+    float getPheromone(final int origin, final int destination) {
+        return pheromones[origin * n + destination];
+    }
+
+    /**
+     * @return the lower bound of the pheromones
+     */
+    float getMinPheromone() {
+        return minPheromone;
+    }
+
+    /**
+     * @return the upper bound of the pheromones
+     */
+    float getMaxPheromone() {
+        return maxPheromone;
+    }
+
+    /**
+     * @param incumbent the best tour
+     * @param tour      a tour
+     * @param cost      the cost of the tour
+     */
+    private void offer(final Incumbent incumbent, final int[] tour,
+                       final float cost) {
+        if (incumbent.offer(tour, cost) && isSnapshotDue(cost)) {
+            String[] ids = new String[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = matrix.getId(tour[i]);
+            }
+            publishSnapshot(ids, cost);
+        }
+    }
+
+    /**
+     * Set the bounds from the cost of the best tour, and every pheromone
+     * to the upper bound.
+     *
+     * @param bestCost the cost of the best tour
+     */
+    void resetPheromones(final float bestCost) {
+        updateBounds(bestCost);
+        Arrays.fill(pheromones, maxPheromone);
+        updateAttraction();
+    }
+
+    /**
+     * @param bestCost the cost of the best tour
+     */
+    private void updateBounds(final float bestCost) {
+        maxPheromone = 1 / (EVAPORATION * Math.max(bestCost,
+                Float.MIN_NORMAL));
+        minPheromone = maxPheromone / (2 * n);
+    }
+
+    /**
+     * Evaporate the pheromones, then deposit on the edges of a tour.
+     *
+     * @param tour the tour
+     * @param cost the cost of the tour
+     */
+    void deposit(final int[] tour, final float cost) {
+        for (int edge = 0; edge < n * n; edge++) {
+            pheromones[edge] = Math.max(minPheromone,
+                    pheromones[edge] * (1 - EVAPORATION));
+        }
+        float amount = 1 / Math.max(cost, Float.MIN_NORMAL);
+        for (int i = 0; i < n; i++) {
+            int edge = tour[i] * n + tour[i + 1 == n ? 0 : i + 1];
+            pheromones[edge] = Math.min(maxPheromone,
+                    pheromones[edge] + amount);
+        }
+        updateAttraction();
+    }
+
+    private void updateAttraction() {
+        for (int edge = 0; edge < n * n; edge++) {
+            attraction[edge] = pheromones[edge] * visibility[edge];
+        }
+    }
+
+    /**
+     * Class Colony. The task running every ant of an iteration.
+     */
+    private final class Colony extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            invokeAll(ants);
+        }
+    }
+
+    /**
+     * Class Ant. The task building one tour, with its own buffers and
+     * random generator.
+     */
+    final class Ant extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * the local search improving the tour.
+         */
+        private final LocalSearch localSearch;
+        /**
+         * the random generator.
+         */
+        private final SplittableRandom random;
+        /**
+         * the tour built.
+         */
+        private final int[] tour;
+        /**
+         * the tour, improved by the local search.
+         */
+        private final TourMoves moves;
+        /**
+         * for each vertex, the number of its pickups not visited yet.
+         */
+        private final int[] missingPickups;
+        /**
+         * for each vertex, true once visited.
+         */
+        private final boolean[] visited;
+        /**
+         * the candidates for the next vertex.
+         */
+        private final int[] candidates;
+        /**
+         * the cumulated attraction of the candidates.
+         */
+        private final double[] weights;
+        /**
+         * the cost of the tour.
+         */
+        private float cost;
+
+        /**
+         * @param localSearch the local search improving the tour
+         * @param random      the random generator
+         */
+        Ant(final LocalSearch localSearch, final SplittableRandom random) {
+            this.localSearch = localSearch;
+            this.random = random;
+            this.tour = new int[n];
+            this.missingPickups = new int[n];
+            this.visited = new boolean[n];
+            this.candidates = new int[n];
+            this.weights = new double[n];
+            this.moves = new TourMoves(matrix,
+                    precedences.randomTour(random));
+        }
+
+        @Override
+        protected void compute() {
+            begin();
+            for (int position = 1; position < n; position++) {
+                tour[position] = next(tour[position - 1]);
+                visit(tour[position]);
+            }
+            moves.setTour(tour);
+            cost = localSearch.improve(moves);
+            moves.copyTo(tour);
+        }
+
+        /**
+         * Start a tour at the depot, every other vertex being unvisited.
+         */
+        void begin() {
+            for (int vertex = 0; vertex < n; vertex++) {
+                missingPickups[vertex] =
+                        precedences.getPickupsBefore(vertex).length;
+                visited[vertex] = false;
+            }
+            tour[0] = precedences.getStart();
+            visit(tour[0]);
+        }
+
+        /**
+         * @param vertex a vertex, visited now
+         */
+        void visit(final int vertex) {
+            visited[vertex] = true;
+            for (int delivery : precedences.getDeliveriesAfter(vertex)) {
+                missingPickups[delivery]--;
+            }
+        }
+
+        /**
+         * @param vertex a vertex
+         * @return true if the vertex is not visited and its pickups are
+         */
+        boolean isAllowed(final int vertex) {
+            return !visited[vertex] && missingPickups[vertex] <= 0;
+        }
+
+        /**
+         * @param current the current vertex
+         * @return the next vertex, drawn among the allowed nearest
+         * successors, or among every allowed vertex if none is left
+         */
+        int next(final int current) {
+            int nbCandidates = 0;
+            int limit = Math.min(NB_CANDIDATES, n - 1);
+            for (int rank = 0; rank < limit; rank++) {
+                int vertex = neighbours.getSuccessor(current, rank);
+                if (isAllowed(vertex)) {
+                    candidates[nbCandidates++] = vertex;
+                }
+            }
+            if (nbCandidates == 0) {
+                for (int rank = limit; rank < n - 1; rank++) {
+                    int vertex = neighbours.getSuccessor(current, rank);
+                    if (isAllowed(vertex)) {
+                        candidates[nbCandidates++] = vertex;
+                    }
+                }
+            }
+            double total = 0;
+            for (int i = 0; i < nbCandidates; i++) {
+                total += attraction[current * n + candidates[i]];
+                weights[i] = total;
+            }
+            if (total <= 0) {
+                return candidates[random.nextInt(nbCandidates)];
+            }
+            double target = random.nextDouble() * total;
+            for (int i = 0; i < nbCandidates - 1; i++) {
+                if (target < weights[i]) {
+                    return candidates[i];
+                }
+            }
+            return candidates[nbCandidates - 1];
+        }
+    }
+}
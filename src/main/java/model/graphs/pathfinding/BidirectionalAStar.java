@@ -0,0 +1,215 @@
+package model.graphs.pathfinding;
+
+import model.Segment;
+import model.graphs.Plan;
+import model.graphs.RoadNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class BidirectionalAStar. Search the shortest path between two
+ * intersections from both ends at once, each search being directed towards
+ * the other end by a Heuristic.
+ * Both searches use the average of the forward and backward potentials,
+ * so they see the same reduced lengths and can stop as soon as the sum of
+ * their smallest keys reaches the best path found.
+ * The workspace must not be shared between threads.
+ * @see Heuristic
+ */
+public class BidirectionalAStar {
+    /**
+     * the road network.
+     */
+    private final RoadNetwork network;
+    /**
+     * the lower bound of the path lengths.
+     */
+    private final Heuristic heuristic;
+
+    // workspace, reset in O(1) by incrementing search
+    private final float[] forwardWeights;
+    private final int[] forwardPrevious;
+    private final int[] forwardIn;
+    private final float[] backwardWeights;
+    private final int[] backwardNext;
+    private final int[] backwardIn;
+    private final float[] potentials;
+    private final int[] potentialIn;
+    private final IndexedHeap forwardHeap;
+    private final IndexedHeap backwardHeap;
+    private int search;
+    private int source;
+    private int target;
+    /**
+     * the number of nodes settled by the last search.
+     */
+    private int nbSettled;
+
+    /**
+     * @param network   the road network
+     * @param heuristic the lower bound of the path lengths
+     */
+    public BidirectionalAStar(final RoadNetwork network,
+                              final Heuristic heuristic) {
+        this.network = network;
+        this.heuristic = heuristic;
+        int nbNodes = network.getNbNodes();
+        forwardWeights = new float[nbNodes];
+        forwardPrevious = new int[nbNodes];
+        forwardIn = new int[nbNodes];
+        backwardWeights = new float[nbNodes];
+        backwardNext = new int[nbNodes];
+        backwardIn = new int[nbNodes];
+        potentials = new float[nbNodes];
+        potentialIn = new int[nbNodes];
+        forwardHeap = new IndexedHeap(nbNodes);
+        backwardHeap = new IndexedHeap(nbNodes);
+    }
+
+    /**
+     * @return the number of nodes settled by the last search
+     */
+    public int getNbSettled() {
+        return nbSettled;
+    }
+
+    /**
+     * @param plan        the plan of the road network
+     * @param origin      the id of the origin intersection
+     * @param destination the id of the destination intersection
+     * @return the shortest path from <code>origin</code> to
+     * <code>destination</code>
+     * @throws Exception if there is no route between them
+     */
+    public Edge findShortestPath(final Plan plan, final String origin,
+                                 final String destination) throws Exception {
+        int from = network.indexOf(origin);
+        int to = network.indexOf(destination);
+        int meeting = from < 0 || to < 0 ? -1 : search(from, to);
+        if (meeting < 0) {
+            String errorMsg = "No route has been found from %s to %s !";
+            throw new Exception(String.format(errorMsg,
+                    origin,
+                    destination));
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        int[] path = new int[16];
+        int length = 0;
+        for (int node = meeting; node >= 0; node = forwardPrevious[node]) {
+            if (length == path.length) {
+                path = Arrays.copyOf(path, length * 2);
+            }
+            path[length++] = node;
+        }
+        for (int i = length - 1; i > 0; i--) {
+            segments.add(plan.getSegment(network.getId(path[i]),
+                    network.getId(path[i - 1])));
+        }
+        for (int node = meeting; node != to; node = backwardNext[node]) {
+            segments.add(plan.getSegment(network.getId(node),
+                    network.getId(backwardNext[node])));
+        }
+
+        float duration = 0;
+        for (Segment segment : segments) {
+            duration += segment.getLength();
+        }
+        return new Edge(origin, destination, segments, duration);
+    }
+
+    /**
+     * @param from the origin node
+     * @param to   the destination node
+     * @return the meeting node of the shortest path, -1 if there is none
+     */
+    int search(final int from, final int to) {
+        if (++search == 0) {
+            Arrays.fill(forwardIn, 0);
+            Arrays.fill(backwardIn, 0);
+            Arrays.fill(potentialIn, 0);
+            search = 1;
+        }
+        source = from;
+        target = to;
+        nbSettled = 0;
+        forwardIn[from] = search;
+        forwardWeights[from] = 0;
+        forwardPrevious[from] = -1;
+        forwardHeap.insertOrDecrease(from, potential(from));
+        backwardIn[to] = search;
+        backwardWeights[to] = 0;
+        backwardNext[to] = -1;
+        backwardHeap.insertOrDecrease(to, -potential(to));
+
+        float best = from == to ? 0 : Float.MAX_VALUE;
+        int meeting = from == to ? from : -1;
+        while (!forwardHeap.isEmpty() && !backwardHeap.isEmpty()
+                && forwardHeap.peekKey() + backwardHeap.peekKey() < best) {
+            nbSettled++;
+            if (forwardHeap.peekKey() <= backwardHeap.peekKey()) {
+                int node = forwardHeap.poll();
+                float weight = forwardWeights[node];
+                for (int edge = network.edgeStart(node);
+                     edge < network.edgeEnd(node); edge++) {
+                    int next = network.getTarget(edge);
+                    float nextWeight = weight + network.getLength(edge);
+                    if (forwardIn[next] != search
+                            || nextWeight < forwardWeights[next]) {
+                        forwardIn[next] = search;
+                        forwardWeights[next] = nextWeight;
+                        forwardPrevious[next] = node;
+                        forwardHeap.insertOrDecrease(next,
+                                nextWeight + potential(next));
+                        if (backwardIn[next] == search
+                                && nextWeight + backwardWeights[next] < best) {
+                            best = nextWeight + backwardWeights[next];
+                            meeting = next;
+                        }
+                    }
+                }
+            } else {
+                int node = backwardHeap.poll();
+                float weight = backwardWeights[node];
+                for (int in = network.inEdgeStart(node);
+                     in < network.inEdgeEnd(node); in++) {
+                    int next = network.getInSource(in);
+                    float nextWeight = weight
+                            + network.getLength(network.getInEdge(in));
+                    if (backwardIn[next] != search
+                            || nextWeight < backwardWeights[next]) {
+                        backwardIn[next] = search;
+                        backwardWeights[next] = nextWeight;
+                        backwardNext[next] = node;
+                        backwardHeap.insertOrDecrease(next,
+                                nextWeight - potential(next));
+                        if (forwardIn[next] == search
+                                && nextWeight + forwardWeights[next] < best) {
+                            best = nextWeight + forwardWeights[next];
+                            meeting = next;
+                        }
+                    }
+                }
+            }
+        }
+        forwardHeap.clear();
+        backwardHeap.clear();
+        return meeting;
+    }
+
+    /**
+     * @param node a node
+     * @return the forward potential of the node, the backward one being
+     * its opposite
+     */
+    private float potential(final int node) {
+        if (potentialIn[node] != search) {
+            potentialIn[node] = search;
+            potentials[node] = (heuristic.lowerBound(node, target)
+                    - heuristic.lowerBound(source, node)) / 2;
+        }
+        return potentials[node];
+    }
+}
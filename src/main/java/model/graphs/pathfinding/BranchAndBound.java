@@ -1,22 +1,82 @@
 package model.graphs.pathfinding;
 
 import model.PlanningRequest;
-import model.Request;
-import model.graphs.Graph;
-import model.iterators.SeqIter;
+import model.graphs.MatrixGraph;
 import observer.Observer;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Set;
-
 /**
- * Class BranchAndBound. Represent the Branch And Bound Algorithm
+ * Class BranchAndBound. Represent the Branch And Bound Algorithm.
+ * The search works on the vertex indices of the MatrixGraph: the visited
+ * vertices are a bitmask, each vertex has the mask of the pickups required
+ * before it, and every depth of the search has its own preallocated
+ * buffer of candidates, so that the search itself allocates nothing.
+ * The subtrees are cut with a LowerBound, the Lagrangian spanning tree
+ * bound by default.
+ * The problem data is read only once prepared, the state of an
+ * exploration lives in a <code>Search</code>, and the best tour in an
+ * <code>Incumbent</code>, so that several searches may run at once.
+ * @see ParallelBranchAndBound
  */
 public class BranchAndBound extends TemplateTSP {
+    /**
+     * the number of explored nodes between two checks of the time limit
+     * and of the cancellation.
+     */
+    private static final int TIME_CHECK_PERIOD = 1024;
+
+    /**
+     * the graph, as a matrix.
+     */
+    MatrixGraph matrix;
+    /**
+     * the cost matrix.
+     */
+    float[] costs;
+    /**
+     * the number of vertices.
+     */
+    int n;
+    /**
+     * the number of longs of a vertex mask.
+     */
+    private int words;
+    /**
+     * the index of the depot.
+     */
+    int start;
+    /**
+     * for each vertex, the mask of the pickups to visit before it.
+     */
+    private long[][] requiredPickups;
+    /**
+     * the lower bound of the cost of completing a path.
+     */
+    private LowerBound lowerBound = new LagrangianBound();
+    /**
+     * for each vertex, its position in the greedy nearest neighbour tour
+     * from the depot.
+     */
+    private int[] greedyRank;
+    /**
+     * the best tour found.
+     */
+    Incumbent incumbent;
+    /**
+     * the number of explored nodes.
+     */
+    private long nbNodes;
+    /**
+     * the number of bounded nodes.
+     */
+    private long nbBounded;
+    /**
+     * the number of bounded nodes that were cut.
+     */
+    private long nbPruned;
+    /**
+     * true once the time limit is reached or the search is cancelled.
+     */
+    private volatile boolean timeOut;
 
     /**
      * constructor with observer.
@@ -33,152 +93,283 @@ public class BranchAndBound extends TemplateTSP {
     public BranchAndBound() {
     }
 
+    /**
+     * @param lowerBound the lower bound used to cut the subtrees
+     */
+    public void setLowerBound(final LowerBound lowerBound) {
+        this.lowerBound = lowerBound;
+    }
 
     /**
-     * @param startNode the departure vertex
-     * @return the list sorted by cost
+     * @return true if the last search explored the whole tree
      */
-    private List<String> greedyPermutation(final String startNode) {
-        int size = g.getNbVertices();
-        String[] permutation = new String[size];
-        permutation[0] = startNode;
-        Set<String> vertices = g.getVertices();
+    @Override
+    public boolean isProvenOptimal() {
+        return incumbent != null && !timeOut
+                && incumbent.getTour() != null;
+    }
 
-        for (int i = 1; i < size; i++) {
-            vertices.remove(permutation[i - 1]);
-            permutation[i] = g.getNearestNodeFromNode(permutation[i - 1],
-                    vertices);
-        }
-        return Arrays.asList(permutation);
+    /**
+     * @return the number of nodes explored by the last search
+     */
+    public long getNbNodes() {
+        return nbNodes;
     }
 
+    /**
+     * @return the share of the bounded nodes of the last search whose
+     * subtree was cut, 0 if none was bounded
+     */
+    public double getPruningRatio() {
+        return nbBounded == 0 ? 0 : (double) nbPruned / nbBounded;
+    }
 
     @Override
     public void computeSolution(final PlanningRequest planningRequest) {
+        prepare(planningRequest);
+        Search search = new Search();
+        search.enter(0, start);
+        search.branchAndBound(1, 0);
+        addNodes(search);
+        finish();
+    }
 
-        String sourceVertex = planningRequest.getStartId();
-        List<String> visited = new ArrayList<>(g.getNbVertices());
-        visited.add(sourceVertex);
-        List<String> unvisited = new ArrayList<>(g.getNbVertices() - 1);
-        List<String> vertices = greedyPermutation(sourceVertex);
-        unvisited.addAll(vertices);
-        unvisited.remove(0);
-        List<String> deliveryPoints = new ArrayList<>();
-        List<String> pickupPoints = new ArrayList<>();
-        List<Request> requests = planningRequest.getRequests();
-        for (Request request : requests) {
-            deliveryPoints.add(request.getDeliveryId());
-            pickupPoints.add(request.getPickupId());
-        }
-        bestSolCost = Float.MAX_VALUE;
-        branchAndBound(sourceVertex,
-                sourceVertex,
-                unvisited,
-                visited,
-                pickupPoints,
-                deliveryPoints,
-                0);
+    /**
+     * Compute the data shared by every search, and reset the incumbent.
+     *
+     * @param planningRequest the planning request
+     */
+    void prepare(final PlanningRequest planningRequest) {
+        matrix = MatrixGraph.of(g);
+        costs = matrix.getCosts();
+        n = matrix.getNbVertices();
+        words = (n + 63) / 64;
+        PrecedenceConstraints precedences =
+                new PrecedenceConstraints(matrix, planningRequest);
+        start = precedences.getStart();
 
+        requiredPickups = new long[n][words];
+        for (int vertex = 0; vertex < n; vertex++) {
+            for (int pickup : precedences.getPickupsBefore(vertex)) {
+                requiredPickups[vertex][pickup >> 6] |= 1L << pickup;
+            }
+        }
+        lowerBound.prepare(matrix, start);
+        greedyRank = greedyRanks();
+        incumbent = getSharedIncumbent() != null
+                ? getSharedIncumbent() : new Incumbent();
+        nbNodes = 0;
+        nbBounded = 0;
+        nbPruned = 0;
+        timeOut = false;
     }
 
+    /**
+     * Copy the incumbent into the solution.
+     */
+    void finish() {
+        int[] bestTour = incumbent.getTour();
+        bestSolCost = incumbent.getCost();
+        if (bestTour != null) {
+            bestSol = toIds(bestTour);
+        }
+    }
 
     /**
-     * Execute the branch and bound algorithm.
-     *
-     * @param sourceVertex   the departure vertex
-     * @param currentVertex  the last visited vertex
-     * @param unvisited      the set of vertex that have not yet been visited
-     * @param visited        the sequence of vertices that have been already
-     *                       visited (including currentVertex)
-     * @param pickupPoints   the pickup points
-     * @param deliveryPoints the delivery points
-     * @param currentCost    the cost of the path corresponding to
-     *                       <code>visited</code>
-     */
-    private void branchAndBound(final String sourceVertex,
-                                final String currentVertex,
-                                final Collection<String> unvisited,
-                                final Collection<String> visited,
-                                final List<String> pickupPoints,
-                                final List<String> deliveryPoints,
-                                final float currentCost) {
-        if (System.currentTimeMillis() - startTime > timeLimit) {
-            return;
+     * @param tour a tour, as vertex indices
+     * @return the tour, as vertex ids
+     */
+    private String[] toIds(final int[] tour) {
+        String[] ids = new String[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = matrix.getId(tour[i]);
         }
-        if (unvisited.size() == 0) {
-            if (g.isArc(currentVertex, sourceVertex)) {
-                if (currentCost + g.getCost(currentVertex,
-                        sourceVertex) < bestSolCost) {
-                    visited.toArray(bestSol);
-                    bestSolCost = currentCost + g.getCost(currentVertex,
-                            sourceVertex);
-                }
-            }
+        return ids;
+    }
 
-        } else if (currentCost + bound(sourceVertex,
-                currentVertex,
-                unvisited) < bestSolCost) {
-            //if the underestimate is greater than the best cost then we cut
-            Iterator<String> it = iterator(currentVertex, unvisited, g);
-            while (it.hasNext()) {
-
-                String nextVertex = it.next();
-                if (deliveryPoints.contains(nextVertex)) {
-                    int id = deliveryPoints.indexOf(nextVertex);
-                    if (!visited.contains(pickupPoints.get(id))) {
-                        continue;
-                    }
+    /**
+     * @param search a finished search, whose counts are added to the
+     *               counts of the solver
+     */
+    synchronized void addNodes(final Search search) {
+        nbNodes += search.nbNodes;
+        nbBounded += search.nbBounded;
+        nbPruned += search.nbPruned;
+    }
+
+    /**
+     * @return true once the time limit is reached
+     */
+    boolean isTimeOut() {
+        return timeOut;
+    }
+
+    /**
+     * @return for each vertex, its position in the tour built by always
+     * going to the nearest unvisited vertex, from the depot
+     */
+    private int[] greedyRanks() {
+        int[] ranks = new int[n];
+        boolean[] ranked = new boolean[n];
+        ranked[start] = true;
+        int current = start;
+        for (int rank = 1; rank < n; rank++) {
+            int nearest = -1;
+            for (int vertex = 0; vertex < n; vertex++) {
+                if (!ranked[vertex] && (nearest < 0
+                        || costs[current * n + vertex]
+                        < costs[current * n + nearest])) {
+                    nearest = vertex;
                 }
-                visited.add(nextVertex);
-                unvisited.remove(nextVertex);
-                branchAndBound(sourceVertex,
-                        nextVertex,
-                        unvisited,
-                        visited,
-                        pickupPoints,
-                        deliveryPoints,
-                        currentCost + g.getCost(currentVertex,
-                                nextVertex));
-                visited.remove(nextVertex);
-                unvisited.add(nextVertex);
             }
+            ranks[nearest] = rank;
+            ranked[nearest] = true;
+            current = nearest;
         }
+        return ranks;
     }
 
-
     /**
-     * @param sourceVertex  the departure vertex
-     * @param currentVertex the current vertex
-     * @param unvisited     list of the unvisited vertices
-     * @return a lower bound of the cost of paths in <code>g</code> starting
-     * from <code>currentVertex</code>, visiting every vertex in
-     * <code>unvisited</code> exactly once, and returning back to vertex
-     * <code>0</code>.
+     * Class Search. The state of one exploration of the tree: the current
+     * path, its mask and the candidate buffers.
      */
-    protected float bound(final String sourceVertex,
-                          final String currentVertex,
-                          final Collection<String> unvisited) {
+    class Search {
+        /**
+         * the mask of the visited vertices.
+         */
+        private final long[] visited = new long[words];
+        /**
+         * the vertices of the current path.
+         */
+        final int[] path = new int[n];
+        /**
+         * for each depth, the candidates for the next vertex.
+         */
+        final int[][] candidates = new int[n][n];
+        /**
+         * the number of explored nodes.
+         */
+        long nbNodes;
+        /**
+         * the number of bounded nodes.
+         */
+        long nbBounded;
+        /**
+         * the number of bounded nodes that were cut.
+         */
+        long nbPruned;
 
+        /**
+         * Append a vertex to the current path.
+         *
+         * @param depth  the position of the vertex in the path
+         * @param vertex the vertex
+         */
+        void enter(final int depth, final int vertex) {
+            visited[vertex >> 6] |= 1L << vertex;
+            path[depth] = vertex;
+        }
 
-        List<String> subGraph = new ArrayList<>(unvisited);
-        subGraph.add(currentVertex);
-        subGraph.add(sourceVertex);
+        /**
+         * Remove a vertex from the current path.
+         *
+         * @param vertex the vertex
+         */
+        void leave(final int vertex) {
+            visited[vertex >> 6] &= ~(1L << vertex);
+        }
 
-        float min = g.getMinCost(subGraph);
+        /**
+         * @param depth       the number of visited vertices
+         * @param currentCost the cost of the current path
+         * @return true if the subtree of the current path can't be pruned
+         */
+        boolean isPromising(final int depth, final float currentCost) {
+            //if the underestimate is greater than the best cost then we cut
+            nbBounded++;
+            if (currentCost + lowerBound.bound(path[depth - 1], depth, visited)
+                    < incumbent.getCost()) {
+                return true;
+            }
+            nbPruned++;
+            return false;
+        }
 
-        return (unvisited.size() + 1) * min;
-    }
+        /**
+         * Execute the branch and bound algorithm.
+         *
+         * @param depth       the number of visited vertices, the last one
+         *                    being <code>path[depth - 1]</code>
+         * @param currentCost the cost of the path of the visited vertices
+         */
+        void branchAndBound(final int depth, final float currentCost) {
+            if (++nbNodes % TIME_CHECK_PERIOD == 0
+                    && (System.currentTimeMillis() - startTime > timeLimit
+                    || shouldStop())) {
+                timeOut = true;
+            }
+            if (timeOut) {
+                return;
+            }
+            int currentVertex = path[depth - 1];
+            if (depth == n) {
+                float cost = currentCost + costs[currentVertex * n + start];
+                if (matrix.getEdge(currentVertex, start) != null
+                        && incumbent.offer(path, cost)
+                        && isSnapshotDue(cost)) {
+                    publishSnapshot(toIds(path), cost);
+                }
+            } else if (isPromising(depth, currentCost)) {
+                int nbCandidates = fillCandidates(depth);
+                for (int i = 0; i < nbCandidates && !timeOut; i++) {
+                    int nextVertex = candidates[depth][i];
+                    enter(depth, nextVertex);
+                    branchAndBound(depth + 1, currentCost
+                            + costs[currentVertex * n + nextVertex]);
+                    leave(nextVertex);
+                }
+            }
+        }
 
-    /**
-     * @param currentVertex the current vertex
-     * @param unvisited     the list of the unvisited vertices
-     * @param g             the graph
-     * @return an iterator for visiting all vertices in <code>unvisited</code>
-     * which are successors of <code>currentVertex</code>
-     */
-    protected Iterator<String> iterator(final String currentVertex,
-                                        final Collection<String> unvisited,
-                                        final Graph g) {
-        return new SeqIter(unvisited, currentVertex, g);
+        /**
+         * Fill <code>candidates[depth]</code> with the unvisited successors
+         * of the last vertex of the path whose pickups are all visited, the
+         * last of the greedy tour first, which is the order the vertices
+         * have always been explored in.
+         *
+         * @param depth the number of visited vertices
+         * @return the number of candidates
+         */
+        int fillCandidates(final int depth) {
+            int[] buffer = candidates[depth];
+            int row = path[depth - 1] * n;
+            int nbCandidates = 0;
+            for (int vertex = 0; vertex < n; vertex++) {
+                if ((visited[vertex >> 6] & (1L << vertex)) != 0
+                        || costs[row + vertex] == MatrixGraph.NO_EDGE
+                        || !pickupsVisited(vertex)) {
+                    continue;
+                }
+                // insertion by decreasing greedy rank
+                int rank = greedyRank[vertex];
+                int i = nbCandidates++;
+                while (i > 0 && greedyRank[buffer[i - 1]] < rank) {
+                    buffer[i] = buffer[i - 1];
+                    i--;
+                }
+                buffer[i] = vertex;
+            }
+            return nbCandidates;
+        }
+
+        private boolean pickupsVisited(final int vertex) {
+            long[] required = requiredPickups[vertex];
+            for (int word = 0; word < words; word++) {
+                if ((required[word] & ~visited[word]) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 }
@@ -0,0 +1,58 @@
+package model.graphs.pathfinding;
+
+import model.graphs.MatrixGraph;
+
+import java.util.Arrays;
+
+/**
+ * Class CheapestEdgeBound. The number of edges left times the cheapest edge
+ * touching their vertices. It is cheap to evaluate but weak, since one
+ * short edge lowers the bound of the whole tour.
+ */
+public class CheapestEdgeBound implements LowerBound {
+    /**
+     * the number of vertices.
+     */
+    private int n;
+    /**
+     * the index of the depot.
+     */
+    private int start;
+    /**
+     * for each vertex, the cheapest edge coming in or going out of it.
+     */
+    private float[] minTouchingCost;
+
+    @Override
+    public void prepare(final MatrixGraph graph, final int start) {
+        this.n = graph.getNbVertices();
+        this.start = start;
+        minTouchingCost = new float[n];
+        Arrays.fill(minTouchingCost, MatrixGraph.NO_EDGE);
+        for (int vertex = 0; vertex < n; vertex++) {
+            for (int other = 0; other < n; other++) {
+                minTouchingCost[vertex] = Math.min(minTouchingCost[vertex],
+                        Math.min(graph.getCost(vertex, other),
+                                graph.getCost(other, vertex)));
+            }
+        }
+    }
+
+    /**
+     * @return a lower bound of the remaining cost: every one of the
+     * remaining edges costs at least the cheapest edge touching the
+     * unvisited, current and depot vertices
+     */
+    @Override
+    public float bound(final int currentVertex, final int depth,
+                       final long[] visited) {
+        float min = Math.min(minTouchingCost[currentVertex],
+                minTouchingCost[start]);
+        for (int vertex = 0; vertex < n; vertex++) {
+            if ((visited[vertex >> 6] & (1L << vertex)) == 0) {
+                min = Math.min(min, minTouchingCost[vertex]);
+            }
+        }
+        return (n - depth + 1) * min;
+    }
+}
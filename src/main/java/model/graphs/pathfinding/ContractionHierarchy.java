@@ -0,0 +1,723 @@
+package model.graphs.pathfinding;
+
+import model.Segment;
+import model.graphs.Plan;
+import model.graphs.RoadNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class ContractionHierarchy. Preprocess a road network by contracting its
+ * nodes one by one, in the order given by their edge difference, and adding
+ * the shortcuts needed to keep every shortest path distance.
+ * A point-to-point query is then two small upward searches, one from the
+ * origin and one backward from the destination, and the shortcuts are
+ * unpacked back into the original segments.
+ * The hierarchy is immutable once built, each thread uses its own
+ * <code>Query</code>.
+ * @see Plan#getContractionHierarchy()
+ */
+public final class ContractionHierarchy {
+    /**
+     * the maximum number of nodes settled by a witness search.
+     */
+    private static final int WITNESS_SETTLE_LIMIT = 64;
+
+    /**
+     * the road network the hierarchy has been built for.
+     */
+    private final RoadNetwork network;
+    /**
+     * the contraction order of each node, higher is contracted later.
+     */
+    private final int[] rank;
+
+    /**
+     * the first upward edge of each node.
+     */
+    private final int[] upOffsets;
+    /**
+     * the higher ranked destination of each upward edge.
+     */
+    private final int[] upTargets;
+    /**
+     * the weight of each upward edge.
+     */
+    private final float[] upWeights;
+    /**
+     * the contracted node bypassed by each upward edge, -1 for a segment.
+     */
+    private final int[] upMiddles;
+
+    /**
+     * the first downward edge of each node, a downward edge of v being an
+     * edge u -> v where u is higher ranked than v.
+     */
+    private final int[] downOffsets;
+    /**
+     * the higher ranked origin of each downward edge.
+     */
+    private final int[] downSources;
+    /**
+     * the weight of each downward edge.
+     */
+    private final float[] downWeights;
+    /**
+     * the contracted node bypassed by each downward edge, -1 for a segment.
+     */
+    private final int[] downMiddles;
+
+    /**
+     * the number of shortcuts added by the contraction.
+     */
+    private final int nbShortcuts;
+
+    private ContractionHierarchy(final RoadNetwork network,
+                                 final int[] rank,
+                                 final EdgeList[] upEdges,
+                                 final EdgeList[] downEdges,
+                                 final int nbShortcuts) {
+        this.network = network;
+        this.rank = rank;
+        this.nbShortcuts = nbShortcuts;
+        int nbNodes = rank.length;
+
+        upOffsets = new int[nbNodes + 1];
+        downOffsets = new int[nbNodes + 1];
+        for (int node = 0; node < nbNodes; node++) {
+            upOffsets[node + 1] = upOffsets[node] + upEdges[node].size;
+            downOffsets[node + 1] = downOffsets[node] + downEdges[node].size;
+        }
+        upTargets = new int[upOffsets[nbNodes]];
+        upWeights = new float[upOffsets[nbNodes]];
+        upMiddles = new int[upOffsets[nbNodes]];
+        downSources = new int[downOffsets[nbNodes]];
+        downWeights = new float[downOffsets[nbNodes]];
+        downMiddles = new int[downOffsets[nbNodes]];
+        for (int node = 0; node < nbNodes; node++) {
+            upEdges[node].copyTo(upOffsets[node],
+                    upTargets, upWeights, upMiddles);
+            downEdges[node].copyTo(downOffsets[node],
+                    downSources, downWeights, downMiddles);
+        }
+    }
+
+    /**
+     * Contract every node of the road network.
+     *
+     * @param network the road network
+     * @return the hierarchy
+     */
+    public static ContractionHierarchy build(final RoadNetwork network) {
+        return new Builder(network).contract();
+    }
+
+    /**
+     * @return the road network of the hierarchy
+     */
+    public RoadNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * @return the number of shortcuts added by the contraction
+     */
+    public int getNbShortcuts() {
+        return nbShortcuts;
+    }
+
+    /**
+     * @param node a node index
+     * @return the contraction order of the node
+     */
+    public int getRank(final int node) {
+        return rank[node];
+    }
+
+    /**
+     * @param node a node index
+     * @return the first upward edge of the node
+     */
+    public int upStart(final int node) {
+        return upOffsets[node];
+    }
+
+    /**
+     * @param node a node index
+     * @return the end (exclusive) of the upward edges of the node
+     */
+    public int upEnd(final int node) {
+        return upOffsets[node + 1];
+    }
+
+    /**
+     * @param edge an upward edge
+     * @return its higher ranked destination
+     */
+    public int getUpTarget(final int edge) {
+        return upTargets[edge];
+    }
+
+    /**
+     * @param edge an upward edge
+     * @return its weight
+     */
+    public float getUpWeight(final int edge) {
+        return upWeights[edge];
+    }
+
+    /**
+     * @param node a node index
+     * @return the first downward edge of the node
+     */
+    public int downStart(final int node) {
+        return downOffsets[node];
+    }
+
+    /**
+     * @param node a node index
+     * @return the end (exclusive) of the downward edges of the node
+     */
+    public int downEnd(final int node) {
+        return downOffsets[node + 1];
+    }
+
+    /**
+     * @param edge a downward edge
+     * @return its higher ranked origin
+     */
+    public int getDownSource(final int edge) {
+        return downSources[edge];
+    }
+
+    /**
+     * @param edge a downward edge
+     * @return its weight
+     */
+    public float getDownWeight(final int edge) {
+        return downWeights[edge];
+    }
+
+    /**
+     * @param edge the upward edge index
+     * @return the node bypassed by the edge, -1 if it is a segment
+     */
+    int getUpMiddle(final int edge) {
+        return upMiddles[edge];
+    }
+
+    /**
+     * @param edge the downward edge index
+     * @return the node bypassed by the edge, -1 if it is a segment
+     */
+    int getDownMiddle(final int edge) {
+        return downMiddles[edge];
+    }
+
+    /**
+     * Append the segments of the hierarchy edge <code>origin</code> ->
+     * <code>destination</code> bypassing <code>middle</code>, unpacking its
+     * shortcuts recursively.
+     *
+     * @param plan        the plan of the road network
+     * @param origin      the origin node of the edge
+     * @param destination the destination node of the edge
+     * @param middle      the bypassed node, -1 if the edge is a segment
+     * @param segments    the list to which the segments are appended
+     */
+    void unpack(final Plan plan, final int origin, final int destination,
+                final int middle, final List<Segment> segments) {
+        // explicit stack of (origin, destination, middle) still to unpack,
+        // the top being the next one in path order
+        int[] stack = new int[48];
+        int top = 0;
+        stack[top++] = origin;
+        stack[top++] = destination;
+        stack[top++] = middle;
+        while (top > 0) {
+            int mid = stack[--top];
+            int to = stack[--top];
+            int from = stack[--top];
+            if (mid < 0) {
+                segments.add(plan.getSegment(network.getId(from),
+                        network.getId(to)));
+                continue;
+            }
+            if (top + 6 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            // mid -> to is an upward edge of mid, pushed first so that
+            // from -> mid is unpacked before it
+            stack[top++] = mid;
+            stack[top++] = to;
+            stack[top++] = findMiddle(upOffsets, upTargets, upMiddles,
+                    mid, to);
+            // from -> mid is a downward edge of mid
+            stack[top++] = from;
+            stack[top++] = mid;
+            stack[top++] = findMiddle(downOffsets, downSources, downMiddles,
+                    mid, from);
+        }
+    }
+
+    private static int findMiddle(final int[] offsets, final int[] ends,
+                                  final int[] middles, final int node,
+                                  final int end) {
+        for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+            if (ends[edge] == end) {
+                return middles[edge];
+            }
+        }
+        throw new IllegalStateException("Missing hierarchy edge");
+    }
+
+    /**
+     * @return a new query workspace on this hierarchy
+     */
+    public Query newQuery() {
+        return new Query();
+    }
+
+    /**
+     * Class Query. The workspace of a bidirectional upward search, it must
+     * not be shared between threads.
+     */
+    public final class Query {
+        private final float[] forwardWeights;
+        private final int[] forwardPrevious;
+        private final int[] forwardEdges;
+        private final int[] forwardIn;
+        private final float[] backwardWeights;
+        private final int[] backwardNext;
+        private final int[] backwardEdges;
+        private final int[] backwardIn;
+        private final IndexedHeap forwardHeap;
+        private final IndexedHeap backwardHeap;
+        private int search;
+        /**
+         * the number of nodes settled by the last query.
+         */
+        private int nbSettled;
+
+        private Query() {
+            int nbNodes = rank.length;
+            forwardWeights = new float[nbNodes];
+            forwardPrevious = new int[nbNodes];
+            forwardEdges = new int[nbNodes];
+            forwardIn = new int[nbNodes];
+            backwardWeights = new float[nbNodes];
+            backwardNext = new int[nbNodes];
+            backwardEdges = new int[nbNodes];
+            backwardIn = new int[nbNodes];
+            forwardHeap = new IndexedHeap(nbNodes);
+            backwardHeap = new IndexedHeap(nbNodes);
+        }
+
+        /**
+         * @return the number of nodes settled by the last query
+         */
+        public int getNbSettled() {
+            return nbSettled;
+        }
+
+        /**
+         * @param plan        the plan of the hierarchy
+         * @param origin      the id of the origin intersection
+         * @param destination the id of the destination intersection
+         * @return the shortest path from <code>origin</code> to
+         * <code>destination</code>
+         * @throws Exception if there is no route between them
+         */
+        public Edge findShortestPath(final Plan plan, final String origin,
+                                     final String destination)
+                throws Exception {
+            int source = network.indexOf(origin);
+            int target = network.indexOf(destination);
+            int meeting = source < 0 || target < 0 ? -1 : search(source, target);
+            if (meeting < 0) {
+                String errorMsg = "No route has been found from %s to %s !";
+                throw new Exception(String.format(errorMsg,
+                        origin,
+                        destination));
+            }
+
+            List<Segment> segments = new ArrayList<>();
+            int[] upPath = new int[16];
+            int length = 0;
+            for (int node = meeting; node != source;
+                 node = forwardPrevious[node]) {
+                if (length == upPath.length) {
+                    upPath = Arrays.copyOf(upPath, length * 2);
+                }
+                upPath[length++] = node;
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                int node = upPath[i];
+                unpack(plan, forwardPrevious[node], node,
+                        upMiddles[forwardEdges[node]], segments);
+            }
+            for (int node = meeting; node != target;
+                 node = backwardNext[node]) {
+                unpack(plan, node, backwardNext[node],
+                        downMiddles[backwardEdges[node]], segments);
+            }
+
+            float duration = 0;
+            for (Segment segment : segments) {
+                duration += segment.getLength();
+            }
+            return new Edge(origin, destination, segments, duration);
+        }
+
+        /**
+         * @param source the origin node
+         * @param target the destination node
+         * @return the meeting node of the shortest path, -1 if there is none
+         */
+        int search(final int source, final int target) {
+            if (++search == 0) {
+                Arrays.fill(forwardIn, 0);
+                Arrays.fill(backwardIn, 0);
+                search = 1;
+            }
+            nbSettled = 0;
+            forwardIn[source] = search;
+            forwardWeights[source] = 0;
+            forwardPrevious[source] = -1;
+            forwardHeap.insertOrDecrease(source, 0);
+            backwardIn[target] = search;
+            backwardWeights[target] = 0;
+            backwardNext[target] = -1;
+            backwardHeap.insertOrDecrease(target, 0);
+
+            float best = Float.MAX_VALUE;
+            int meeting = -1;
+            while (true) {
+                boolean forward = !forwardHeap.isEmpty()
+                        && forwardHeap.peekKey() < best;
+                boolean backward = !backwardHeap.isEmpty()
+                        && backwardHeap.peekKey() < best;
+                if (!forward && !backward) {
+                    break;
+                }
+                if (forward && backward) {
+                    forward = forwardHeap.peekKey() <= backwardHeap.peekKey();
+                }
+                nbSettled++;
+                if (forward) {
+                    int node = forwardHeap.poll();
+                    float weight = forwardWeights[node];
+                    if (backwardIn[node] == search
+                            && weight + backwardWeights[node] < best) {
+                        best = weight + backwardWeights[node];
+                        meeting = node;
+                    }
+                    for (int edge = upOffsets[node];
+                         edge < upOffsets[node + 1]; edge++) {
+                        int next = upTargets[edge];
+                        float nextWeight = weight + upWeights[edge];
+                        if (forwardIn[next] != search
+                                || nextWeight < forwardWeights[next]) {
+                            forwardIn[next] = search;
+                            forwardWeights[next] = nextWeight;
+                            forwardPrevious[next] = node;
+                            forwardEdges[next] = edge;
+                            forwardHeap.insertOrDecrease(next, nextWeight);
+                        }
+                    }
+                } else {
+                    int node = backwardHeap.poll();
+                    float weight = backwardWeights[node];
+                    if (forwardIn[node] == search
+                            && weight + forwardWeights[node] < best) {
+                        best = weight + forwardWeights[node];
+                        meeting = node;
+                    }
+                    for (int edge = downOffsets[node];
+                         edge < downOffsets[node + 1]; edge++) {
+                        int next = downSources[edge];
+                        float nextWeight = weight + downWeights[edge];
+                        if (backwardIn[next] != search
+                                || nextWeight < backwardWeights[next]) {
+                            backwardIn[next] = search;
+                            backwardWeights[next] = nextWeight;
+                            backwardNext[next] = node;
+                            backwardEdges[next] = edge;
+                            backwardHeap.insertOrDecrease(next, nextWeight);
+                        }
+                    }
+                }
+            }
+            forwardHeap.clear();
+            backwardHeap.clear();
+            return meeting;
+        }
+    }
+
+    /**
+     * Class EdgeList. A growable list of hierarchy edges of one node.
+     */
+    private static final class EdgeList {
+        private int[] ends = new int[4];
+        private float[] weights = new float[4];
+        private int[] middles = new int[4];
+        private int size;
+
+        /**
+         * Add the edge, or lower its weight if it already exists.
+         */
+        void put(final int end, final float weight, final int middle) {
+            for (int i = 0; i < size; i++) {
+                if (ends[i] == end) {
+                    if (weight < weights[i]) {
+                        weights[i] = weight;
+                        middles[i] = middle;
+                    }
+                    return;
+                }
+            }
+            if (size == ends.length) {
+                ends = Arrays.copyOf(ends, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+                middles = Arrays.copyOf(middles, size * 2);
+            }
+            ends[size] = end;
+            weights[size] = weight;
+            middles[size] = middle;
+            size++;
+        }
+
+        void copyTo(final int offset, final int[] allEnds,
+                    final float[] allWeights, final int[] allMiddles) {
+            System.arraycopy(ends, 0, allEnds, offset, size);
+            System.arraycopy(weights, 0, allWeights, offset, size);
+            System.arraycopy(middles, 0, allMiddles, offset, size);
+        }
+    }
+
+    /**
+     * Class Builder. Contract the nodes of a road network in the order of
+     * their priority, updated lazily.
+     */
+    private static final class Builder {
+        private final RoadNetwork network;
+        private final int nbNodes;
+        /**
+         * the edges between nodes not contracted yet, by origin.
+         */
+        private final EdgeList[] outEdges;
+        /**
+         * the edges between nodes not contracted yet, by destination.
+         */
+        private final EdgeList[] inEdges;
+        private final boolean[] contracted;
+        /**
+         * the number of contracted neighbours of each node.
+         */
+        private final int[] deletedNeighbours;
+
+        // witness search workspace
+        private final float[] witnessWeights;
+        private final int[] witnessIn;
+        private final IndexedHeap witnessHeap;
+        private int witnessSearch;
+
+        // shortcuts found by the last call to findShortcuts
+        private int[] shortcutFrom = new int[16];
+        private int[] shortcutTo = new int[16];
+        private float[] shortcutWeights = new float[16];
+        private int nbFound;
+
+        Builder(final RoadNetwork network) {
+            this.network = network;
+            nbNodes = network.getNbNodes();
+            outEdges = new EdgeList[nbNodes];
+            inEdges = new EdgeList[nbNodes];
+            for (int node = 0; node < nbNodes; node++) {
+                outEdges[node] = new EdgeList();
+                inEdges[node] = new EdgeList();
+            }
+            for (int node = 0; node < nbNodes; node++) {
+                for (int edge = network.edgeStart(node);
+                     edge < network.edgeEnd(node); edge++) {
+                    int target = network.getTarget(edge);
+                    if (target != node) {
+                        outEdges[node].put(target,
+                                network.getLength(edge), -1);
+                        inEdges[target].put(node,
+                                network.getLength(edge), -1);
+                    }
+                }
+            }
+            contracted = new boolean[nbNodes];
+            deletedNeighbours = new int[nbNodes];
+            witnessWeights = new float[nbNodes];
+            witnessIn = new int[nbNodes];
+            witnessHeap = new IndexedHeap(nbNodes);
+        }
+
+        ContractionHierarchy contract() {
+            IndexedHeap queue = new IndexedHeap(nbNodes);
+            for (int node = 0; node < nbNodes; node++) {
+                queue.insertOrDecrease(node, priority(node));
+            }
+            int[] rank = new int[nbNodes];
+            EdgeList[] upEdges = new EdgeList[nbNodes];
+            EdgeList[] downEdges = new EdgeList[nbNodes];
+            int nbShortcuts = 0;
+            int order = 0;
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                // lazy update: contract later if the node got worse
+                float priority = priority(node);
+                if (!queue.isEmpty() && priority > queue.peekKey()) {
+                    queue.insertOrDecrease(node, priority);
+                    continue;
+                }
+
+                findShortcuts(node);
+                for (int i = 0; i < nbFound; i++) {
+                    outEdges[shortcutFrom[i]].put(shortcutTo[i],
+                            shortcutWeights[i], node);
+                    inEdges[shortcutTo[i]].put(shortcutFrom[i],
+                            shortcutWeights[i], node);
+                }
+                nbShortcuts += nbFound;
+
+                rank[node] = order++;
+                contracted[node] = true;
+                upEdges[node] = remaining(outEdges[node]);
+                downEdges[node] = remaining(inEdges[node]);
+                for (int i = 0; i < upEdges[node].size; i++) {
+                    deletedNeighbours[upEdges[node].ends[i]]++;
+                }
+                for (int i = 0; i < downEdges[node].size; i++) {
+                    deletedNeighbours[downEdges[node].ends[i]]++;
+                }
+                outEdges[node] = null;
+                inEdges[node] = null;
+            }
+            return new ContractionHierarchy(network, rank, upEdges,
+                    downEdges, nbShortcuts);
+        }
+
+        /**
+         * @param edges the edges of a node being contracted
+         * @return its edges to nodes not contracted yet
+         */
+        private EdgeList remaining(final EdgeList edges) {
+            EdgeList result = new EdgeList();
+            for (int i = 0; i < edges.size; i++) {
+                if (!contracted[edges.ends[i]]) {
+                    result.put(edges.ends[i], edges.weights[i],
+                            edges.middles[i]);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @param node a node not contracted yet
+         * @return the priority of the node, its edge difference plus its
+         * number of contracted neighbours
+         */
+        private float priority(final int node) {
+            findShortcuts(node);
+            int removed = 0;
+            for (int i = 0; i < outEdges[node].size; i++) {
+                if (!contracted[outEdges[node].ends[i]]) {
+                    removed++;
+                }
+            }
+            for (int i = 0; i < inEdges[node].size; i++) {
+                if (!contracted[inEdges[node].ends[i]]) {
+                    removed++;
+                }
+            }
+            return nbFound - removed + deletedNeighbours[node];
+        }
+
+        /**
+         * Find the shortcuts needed to contract <code>node</code>, for each
+         * pair of neighbours whose shortest path goes through it.
+         */
+        private void findShortcuts(final int node) {
+            nbFound = 0;
+            EdgeList in = inEdges[node];
+            EdgeList out = outEdges[node];
+            for (int i = 0; i < in.size; i++) {
+                int from = in.ends[i];
+                if (contracted[from]) {
+                    continue;
+                }
+                float maxWeight = 0;
+                for (int j = 0; j < out.size; j++) {
+                    if (!contracted[out.ends[j]] && out.ends[j] != from) {
+                        maxWeight = Math.max(maxWeight,
+                                in.weights[i] + out.weights[j]);
+                    }
+                }
+                witnessSearch(from, node, maxWeight);
+                for (int j = 0; j < out.size; j++) {
+                    int to = out.ends[j];
+                    if (contracted[to] || to == from) {
+                        continue;
+                    }
+                    float weight = in.weights[i] + out.weights[j];
+                    if (witnessIn[to] == witnessSearch
+                            && witnessWeights[to] <= weight) {
+                        continue;
+                    }
+                    if (nbFound == shortcutFrom.length) {
+                        shortcutFrom = Arrays.copyOf(shortcutFrom, nbFound * 2);
+                        shortcutTo = Arrays.copyOf(shortcutTo, nbFound * 2);
+                        shortcutWeights = Arrays.copyOf(shortcutWeights,
+                                nbFound * 2);
+                    }
+                    shortcutFrom[nbFound] = from;
+                    shortcutTo[nbFound] = to;
+                    shortcutWeights[nbFound] = weight;
+                    nbFound++;
+                }
+            }
+        }
+
+        /**
+         * Limited Dijkstra from <code>source</code> avoiding
+         * <code>avoided</code> and the contracted nodes.
+         */
+        private void witnessSearch(final int source, final int avoided,
+                                   final float maxWeight) {
+            if (++witnessSearch == 0) {
+                Arrays.fill(witnessIn, 0);
+                witnessSearch = 1;
+            }
+            witnessIn[source] = witnessSearch;
+            witnessWeights[source] = 0;
+            witnessHeap.insertOrDecrease(source, 0);
+            int settled = 0;
+            while (!witnessHeap.isEmpty() && settled < WITNESS_SETTLE_LIMIT
+                    && witnessHeap.peekKey() <= maxWeight) {
+                int node = witnessHeap.poll();
+                settled++;
+                EdgeList out = outEdges[node];
+                for (int i = 0; i < out.size; i++) {
+                    int next = out.ends[i];
+                    if (next == avoided || contracted[next]) {
+                        continue;
+                    }
+                    float weight = witnessWeights[node] + out.weights[i];
+                    if (witnessIn[next] != witnessSearch
+                            || weight < witnessWeights[next]) {
+                        witnessIn[next] = witnessSearch;
+                        witnessWeights[next] = weight;
+                        witnessHeap.insertOrDecrease(next, weight);
+                    }
+                }
+            }
+            witnessHeap.clear();
+        }
+    }
+}
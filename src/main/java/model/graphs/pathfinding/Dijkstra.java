@@ -3,76 +3,76 @@ package model.graphs.pathfinding;
 import model.Segment;
 import model.graphs.Graph;
 import model.graphs.Plan;
+import model.graphs.RoadNetwork;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 
 /**
- * Class Dijkstra. Apply the Dijkstra algorithm
+ * Class Dijkstra. Apply the Dijkstra algorithm, on the int node indices of
+ * the road network of the plan, with an indexed heap.
+ * An instance keeps its search workspace between calls, so it must not be
+ * shared between threads.
+ * @see ManyToManyMatrix
  */
 public class Dijkstra {
 
     /**
-     * the map that save the best weight for each node.
+     * the road network the workspace has been allocated for.
      */
-    private Map<String, Float> weights;
-
+    private RoadNetwork network;
 
     /**
-     * the map that the generated precedence of the Dijkstra algorithm.
+     * the best weight found for each node.
      */
-    private Map<String, String> precedence;
-
-
+    private float[] weights;
     /**
-     * @param nodes the the unsettled nodes
-     * @return the node with the minimum weight in the <code>weights</code> map
+     * the generated precedence of the Dijkstra algorithm.
      */
-    public String getLowestDistanceNode(final Set<String> nodes) {
-        String lowestNode = null;
-        float lowestWeight = Float.MAX_VALUE;
-        for (String node : nodes) {
-            float weight = weights.get(node);
-            if (weight < lowestWeight) {
-                lowestNode = node;
-                lowestWeight = weight;
-            }
-        }
-        return lowestNode;
-    }
+    private int[] precedence;
+    /**
+     * the search in which each node has been reached,
+     * <code>weights</code> and <code>precedence</code> are only meaningful
+     * for the nodes reached in the current search.
+     */
+    private int[] reachedIn;
+    /**
+     * the search in which each node is a point of interest still to settle.
+     */
+    private int[] wantedIn;
+    /**
+     * the current search number.
+     */
+    private int search;
+    /**
+     * the unsettled nodes.
+     */
+    private IndexedHeap unsettledNodes;
 
     /**
-     * relaxation, if the sum of weight of <code>currentNode</code>
-     * and <code>edgeWeight</code> is less that the weight of
-     * <code>adjacentNode</code> then set it to the new best in
-     * <code>weights</code> and <code>precedence</code>.
+     * Allocate the search workspace for the road network of
+     * <code>plan</code> if it is not already allocated.
      *
-     * @param adjacentNode the adjacent node
-     * @param edgeWeight   the weight of the edge
-     * @param currentNode  the current node
+     * @param plan the plan
      */
-    public void calculateMinimumDistance(final String adjacentNode,
-                                         final float edgeWeight,
-                                         final String currentNode) {
-        //System.out.println(adjacentNode + " " +edgeWeight + " "+ currentNode);
-        if (!weights.containsKey(adjacentNode)) {
-            weights.put(adjacentNode, Float.MAX_VALUE);
-        }
-        if (!precedence.containsKey(currentNode)
-                || weights.get(currentNode)
-                + edgeWeight < weights.get(adjacentNode)) {
-            weights.put(adjacentNode, weights.get(currentNode) + edgeWeight);
-            precedence.put(adjacentNode, currentNode);
-
+    private void allocateWorkspace(final Plan plan) {
+        RoadNetwork roadNetwork = plan.getRoadNetwork();
+        if (roadNetwork == network) {
+            return;
         }
+        int nbNodes = roadNetwork.getNbNodes();
+        weights = new float[nbNodes];
+        precedence = new int[nbNodes];
+        reachedIn = new int[nbNodes];
+        wantedIn = new int[nbNodes];
+        search = 0;
+        unsettledNodes = new IndexedHeap(nbNodes);
+        network = roadNetwork;
     }
 
-
     /**
      * @param plan              the plan
      * @param sourceNodeId      the departure node
@@ -91,51 +91,100 @@ public class Dijkstra {
         if (plan == null) {
             return;
         }
-        weights = new HashMap<>();
-        precedence = new HashMap<>();
-        int globalSize = pointsOfInterests.size();
+        for (Edge edge : computeEdges(plan, sourceNodeId, pointsOfInterests)) {
+            newGraph.addEdge(edge.getOrigin(), edge.getDestination(), edge);
+        }
+    }
 
-        Set<String> settledNodes = new HashSet<>();
-        Set<String> unsettledNodes = new HashSet<>();
+    /**
+     * Compute the shortest paths from <code>sourceNodeId</code> to every
+     * point of interest, without touching any graph.
+     *
+     * @param plan              the plan
+     * @param sourceNodeId      the departure node
+     * @param pointsOfInterests the list of all the delivery and pickup points
+     *                          as well as the departure node
+     * @return the edges from <code>sourceNodeId</code> to every other point
+     * of interest
+     * @throws Exception if one of the <code>pointsOfInterests couldn't
+     *                   be reached</code>
+     */
+    public List<Edge> computeEdges(final Plan plan,
+                                   final String sourceNodeId,
+                                   final List<String> pointsOfInterests)
+            throws Exception {
+        allocateWorkspace(plan);
+        if (++search == 0) {
+            // the search counter wrapped around, forget every old search
+            Arrays.fill(reachedIn, 0);
+            Arrays.fill(wantedIn, 0);
+            search = 1;
+        }
 
-        unsettledNodes.add(sourceNodeId);
-        weights.put(sourceNodeId, 0.0f);
+        // the number of points of interest that still have to be settled
+        int globalSize = 0;
+        for (String poi : pointsOfInterests) {
+            int node = network.indexOf(poi);
+            if (node >= 0 && wantedIn[node] != search) {
+                wantedIn[node] = search;
+                globalSize++;
+            }
+        }
 
+        int source = network.indexOf(sourceNodeId);
+        if (source >= 0) {
+            reachedIn[source] = search;
+            weights[source] = 0.0f;
+            precedence[source] = -1;
+            unsettledNodes.insertOrDecrease(source, 0.0f);
+        }
 
-        while (unsettledNodes.size() != 0 && globalSize != 0) {
-            String currentNodeId = getLowestDistanceNode(unsettledNodes);
-            unsettledNodes.remove(currentNodeId);
-            for (String adjacent : plan.getAdjacentsNodes(currentNodeId)) {
-                float weight = plan.getSegmentWeight(currentNodeId, adjacent);
-                if (!settledNodes.contains(adjacent)) {
-                    calculateMinimumDistance(adjacent, weight, currentNodeId);
-                    unsettledNodes.add(adjacent);
+        while (!unsettledNodes.isEmpty() && globalSize != 0) {
+            int currentNode = unsettledNodes.poll();
+            float currentWeight = weights[currentNode];
+            int end = network.edgeEnd(currentNode);
+            for (int edge = network.edgeStart(currentNode); edge < end;
+                 edge++) {
+                int adjacent = network.getTarget(edge);
+                float weight = currentWeight + network.getLength(edge);
+                if (reachedIn[adjacent] != search) {
+                    reachedIn[adjacent] = search;
+                } else if (weight >= weights[adjacent]) {
+                    continue;
                 }
+                weights[adjacent] = weight;
+                precedence[adjacent] = currentNode;
+                unsettledNodes.insertOrDecrease(adjacent, weight);
             }
-            if (pointsOfInterests.contains(currentNodeId)) {
+            if (wantedIn[currentNode] == search) {
+                wantedIn[currentNode] = 0;
                 globalSize--;
             }
-            settledNodes.add(currentNodeId);
         }
+        unsettledNodes.clear();
+
+        List<Edge> edges = new ArrayList<>(pointsOfInterests.size());
         for (String poi : pointsOfInterests) {
             if (poi.equals(sourceNodeId)) {
                 continue;
             }
 
-            String currentPoint = poi;
-            if (precedence.containsKey(poi)) {
+            int poiNode = network.indexOf(poi);
+            if (poiNode >= 0 && reachedIn[poiNode] == search) {
                 List<Segment> segments = new ArrayList<>();
-                while (!currentPoint.equals(sourceNodeId)) {
-                    String tempPoint = precedence.get(currentPoint);
-                    segments.add(0,
-                            plan.getSegment(tempPoint, currentPoint));
+                int currentPoint = poiNode;
+                while (currentPoint != source) {
+                    int tempPoint = precedence[currentPoint];
+                    segments.add(plan.getSegment(network.getId(tempPoint),
+                            network.getId(currentPoint)));
                     currentPoint = tempPoint;
                 }
+                Collections.reverse(segments);
                 Edge edge = new Edge(sourceNodeId,
                         poi,
                         segments,
-                        weights.get(poi));
-                newGraph.addEdge(sourceNodeId, poi, edge);
+                        weights[poiNode]);
+                edges.add(edge);
             } else {
                 String errorMsg = "No route has been found from %s to %s !";
                 throw new Exception(String.format(errorMsg,
@@ -143,7 +192,7 @@ public class Dijkstra {
                         poi));
             }
         }
-
+        return edges;
     }
 
 }
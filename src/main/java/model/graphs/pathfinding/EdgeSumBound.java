@@ -0,0 +1,53 @@
+package model.graphs.pathfinding;
+
+import model.graphs.MatrixGraph;
+
+/**
+ * Class EdgeSumBound. Every vertex still to be left is left once, by its
+ * cheapest edge towards a vertex still to be entered, and every vertex
+ * still to be entered is entered once, by its cheapest edge from a vertex
+ * still to be left: both sums are lower bounds of the remaining cost, and
+ * the bound is the greater one.
+ * The vertices still to be left are the current and unvisited ones, those
+ * still to be entered are the unvisited ones and the depot; the cheapest
+ * edges are read from the sorted neighbours of each vertex.
+ * @see SortedNeighbours
+ */
+public class EdgeSumBound implements LowerBound {
+    /**
+     * the number of vertices.
+     */
+    private int n;
+    /**
+     * the index of the depot.
+     */
+    private int start;
+    /**
+     * the neighbours of each vertex, sorted by cost.
+     */
+    private SortedNeighbours neighbours;
+
+    @Override
+    public void prepare(final MatrixGraph graph, final int start) {
+        this.n = graph.getNbVertices();
+        this.start = start;
+        this.neighbours = new SortedNeighbours(graph);
+    }
+
+    @Override
+    public float bound(final int currentVertex, final int depth,
+                       final long[] visited) {
+        // the current vertex goes to an unvisited one, and the depot is
+        // entered from an unvisited one
+        float outgoing = neighbours.cheapestOut(currentVertex, visited, -1);
+        float incoming = neighbours.cheapestIn(start, visited, -1);
+        for (int vertex = 0; vertex < n; vertex++) {
+            if ((visited[vertex >> 6] & (1L << vertex)) == 0) {
+                outgoing += neighbours.cheapestOut(vertex, visited, start);
+                incoming += neighbours.cheapestIn(vertex, visited,
+                        currentVertex);
+            }
+        }
+        return Math.max(outgoing, incoming);
+    }
+}
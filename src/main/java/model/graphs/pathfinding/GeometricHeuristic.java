@@ -0,0 +1,75 @@
+package model.graphs.pathfinding;
+
+import model.graphs.RoadNetwork;
+
+/**
+ * Class GeometricHeuristic. Bound the length of a path by the straight-line
+ * distance between its ends, computed on the projected coordinates of the
+ * intersections.
+ * The coordinates are not in meters, so the distance is scaled by the
+ * smallest length / straight-line distance ratio of all the segments: by the
+ * triangle inequality, no path can then be shorter than the bound.
+ */
+public class GeometricHeuristic implements Heuristic {
+    /**
+     * keeps the bound below the path lengths despite float rounding.
+     */
+    private static final double SAFETY = 0.999;
+
+    /**
+     * the x coordinate of each node, its longitude in radians.
+     */
+    private final float[] xs;
+    /**
+     * the y coordinate of each node, its projected latitude.
+     */
+    private final float[] ys;
+    /**
+     * the smallest length / distance ratio of the segments.
+     */
+    private final float scale;
+
+    /**
+     * @param network the road network
+     */
+    public GeometricHeuristic(final RoadNetwork network) {
+        int nbNodes = network.getNbNodes();
+        xs = new float[nbNodes];
+        ys = new float[nbNodes];
+        for (int node = 0; node < nbNodes; node++) {
+            xs[node] = (float) Math.toRadians(network.getLongitude(node));
+            ys[node] = network.getLatitude(node);
+        }
+
+        double ratio = Double.MAX_VALUE;
+        for (int node = 0; node < nbNodes; node++) {
+            for (int edge = network.edgeStart(node);
+                 edge < network.edgeEnd(node); edge++) {
+                double distance = distance(node, network.getTarget(edge));
+                if (distance > 0) {
+                    ratio = Math.min(ratio,
+                            network.getLength(edge) / distance);
+                }
+            }
+        }
+        scale = ratio == Double.MAX_VALUE ? 0 : (float) (ratio * SAFETY);
+    }
+
+    private double distance(final int from, final int to) {
+        double dx = xs[from] - xs[to];
+        double dy = ys[from] - ys[to];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * @return the smallest length / distance ratio of the segments
+     */
+    public float getScale() {
+        return scale;
+    }
+
+    @Override
+    public float lowerBound(final int from, final int to) {
+        return (float) (scale * distance(from, to));
+    }
+}
@@ -0,0 +1,317 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.graphs.MatrixGraph;
+import observer.Observer;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Class HeldKarp. The Held-Karp dynamic programming algorithm, which
+ * computes the optimal tour in a time and a memory known in advance.
+ * <code>cost[S][j]</code> is the cost of the cheapest path leaving the
+ * depot, visiting the vertices of the set <code>S</code> and ending at
+ * <code>j</code>; it is computed from the sets with one vertex less, so the
+ * sets are processed by number of vertices, each layer in parallel.
+ * Only the sets holding the pickups of their deliveries are tours
+ * prefixes, so the other ones are never computed.
+ * The table holds <code>2^(n-1) * (n-1)</code> floats, so the algorithm is
+ * limited to <code>MAX_VERTICES</code> vertices.
+ * The table only gives a tour once full, so a search stopped before keeps
+ * the best tour of the other solvers, or else a random feasible one.
+ */
+public class HeldKarp extends TemplateTSP {
+    /**
+     * the maximal number of vertices, the depot included.
+     */
+    public static final int MAX_VERTICES = 21;
+
+    /**
+     * the cost of an unreachable state.
+     */
+    private static final float UNREACHABLE = Float.POSITIVE_INFINITY;
+
+    /**
+     * the pool filling the layers.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * the cost matrix.
+     */
+    private float[] costs;
+    /**
+     * the number of vertices of the graph.
+     */
+    private int n;
+    /**
+     * the number of vertices but the depot.
+     */
+    private int m;
+    /**
+     * the index of the depot.
+     */
+    private int start;
+    /**
+     * the graph index of each vertex but the depot.
+     */
+    private int[] vertices;
+    /**
+     * for each vertex but the depot, the set of pickups it requires.
+     */
+    private int[] requiredPickups;
+    /**
+     * the cost of each state, indexed by <code>set * m + last</code>.
+     */
+    private float[] table;
+    /**
+     * true if the last search filled the whole table.
+     */
+    private boolean completed;
+
+    /**
+     * constructor with observer, on the common pool.
+     *
+     * @param mainWindow the main observer
+     */
+    public HeldKarp(final Observer mainWindow) {
+        this(ForkJoinPool.commonPool());
+        addObserver(mainWindow);
+    }
+
+    /**
+     * default constructor, on the common pool.
+     */
+    public HeldKarp() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool the pool filling the layers
+     */
+    public HeldKarp(final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public boolean isProvenOptimal() {
+        return completed;
+    }
+
+    @Override
+    public void computeSolution(final PlanningRequest planningRequest) {
+        completed = false;
+        MatrixGraph matrix = MatrixGraph.of(g);
+        n = matrix.getNbVertices();
+        if (n > MAX_VERTICES) {
+            throw new IllegalArgumentException("Held-Karp is limited to "
+                    + MAX_VERTICES + " points of interest, not " + n);
+        }
+        costs = matrix.getCosts();
+        PrecedenceConstraints precedences =
+                new PrecedenceConstraints(matrix, planningRequest);
+        start = precedences.getStart();
+        m = n - 1;
+        vertices = new int[m];
+        int[] positions = new int[n];
+        for (int vertex = 0, k = 0; vertex < n; vertex++) {
+            if (vertex != start) {
+                positions[vertex] = k;
+                vertices[k++] = vertex;
+            }
+        }
+        requiredPickups = new int[m];
+        for (int k = 0; k < m; k++) {
+            for (int pickup : precedences.getPickupsBefore(vertices[k])) {
+                requiredPickups[k] |= 1 << positions[pickup];
+            }
+        }
+
+        bestSolCost = Float.MAX_VALUE;
+        if (m == 0) {
+            bestSol[0] = matrix.getId(start);
+            bestSolCost = 0;
+            completed = true;
+            return;
+        }
+        int[][] layers = layers();
+        table = new float[(1 << m) * m];
+        Arrays.fill(table, UNREACHABLE);
+        for (int k = 0; k < m; k++) {
+            if (requiredPickups[k] == 0) {
+                table[(1 << k) * m + k] = cost(start, vertices[k]);
+            }
+        }
+        for (int size = 2; size <= m; size++) {
+            if (System.currentTimeMillis() - startTime > timeLimit
+                    || shouldStop()) {
+                table = null;
+                keepFeasibleTour(matrix, precedences);
+                return;
+            }
+            fill(layers[size]);
+        }
+
+        int[] tour = closeTour();
+        table = null;
+        completed = true;
+        if (tour != null) {
+            if (getSharedIncumbent() != null) {
+                getSharedIncumbent().offer(tour, bestSolCost);
+            }
+            for (int i = 0; i < n; i++) {
+                bestSol[i] = matrix.getId(tour[i]);
+            }
+        }
+    }
+
+    /**
+     * Keep the best tour shared by the other solvers, or else a random
+     * tour keeping the precedences.
+     *
+     * @param matrix      the graph, as a matrix
+     * @param precedences the pickup and delivery precedences
+     */
+    private void keepFeasibleTour(final MatrixGraph matrix,
+                                  final PrecedenceConstraints precedences) {
+        int[] tour = getSharedIncumbent() != null
+                ? getSharedIncumbent().getTour() : null;
+        if (tour == null) {
+            tour = precedences.randomTour(new SplittableRandom());
+        }
+        bestSolCost = new TourMoves(matrix, tour).getCost();
+        for (int i = 0; i < n; i++) {
+            bestSol[i] = matrix.getId(tour[i]);
+        }
+    }
+
+    private float cost(final int origin, final int destination) {
+        return costs[origin * n + destination];
+    }
+
+    /**
+     * @return for each number of vertices, the sets of this size that hold
+     * the pickups of their deliveries
+     */
+    private int[][] layers() {
+        int[] counts = new int[m + 1];
+        for (int set = 1; set < 1 << m; set++) {
+            if (isClosed(set)) {
+                counts[Integer.bitCount(set)]++;
+            }
+        }
+        int[][] layers = new int[m + 1][];
+        for (int size = 0; size <= m; size++) {
+            layers[size] = new int[counts[size]];
+            counts[size] = 0;
+        }
+        for (int set = 1; set < 1 << m; set++) {
+            if (isClosed(set)) {
+                int size = Integer.bitCount(set);
+                layers[size][counts[size]++] = set;
+            }
+        }
+        return layers;
+    }
+
+    /**
+     * @param set a set of vertices
+     * @return true if the set holds the pickups of its vertices
+     */
+    private boolean isClosed(final int set) {
+        for (int rest = set; rest != 0; rest &= rest - 1) {
+            int k = Integer.numberOfTrailingZeros(rest);
+            if ((requiredPickups[k] & ~set) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compute the states of a layer, whose sets only depend on the
+     * previous layer, in parallel.
+     *
+     * @param layer the sets of the layer
+     */
+    private void fill(final int[] layer) {
+        try {
+            pool.submit(() -> IntStream.range(0, layer.length).parallel()
+                    .forEach(i -> fillSet(layer[i]))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Compute the cost of the paths through a set, for each last vertex
+     * whose pickups are in the rest of the set.
+     *
+     * @param set the set
+     */
+    private void fillSet(final int set) {
+        for (int rest = set; rest != 0; rest &= rest - 1) {
+            int last = Integer.numberOfTrailingZeros(rest);
+            int previousSet = set & ~(1 << last);
+            if ((requiredPickups[last] & ~previousSet) != 0) {
+                continue;
+            }
+            float best = UNREACHABLE;
+            int lastVertex = vertices[last];
+            for (int others = previousSet; others != 0;
+                 others &= others - 1) {
+                int previous = Integer.numberOfTrailingZeros(others);
+                best = Math.min(best, table[previousSet * m + previous]
+                        + cost(vertices[previous], lastVertex));
+            }
+            table[set * m + last] = best;
+        }
+    }
+
+    /**
+     * Close the cheapest path through every vertex back to the depot, and
+     * rebuild it backwards from the table.
+     *
+     * @return the optimal tour, null if there is none
+     */
+    private int[] closeTour() {
+        int set = (1 << m) - 1;
+        int last = -1;
+        for (int k = 0; k < m; k++) {
+            float cost = table[set * m + k] + cost(vertices[k], start);
+            if (cost < bestSolCost) {
+                bestSolCost = cost;
+                last = k;
+            }
+        }
+        if (last < 0) {
+            return null;
+        }
+        int[] tour = new int[n];
+        tour[0] = start;
+        for (int position = m; position >= 1; position--) {
+            tour[position] = vertices[last];
+            int previousSet = set & ~(1 << last);
+            float target = table[set * m + last];
+            int previous = -1;
+            for (int others = previousSet; others != 0;
+                 others &= others - 1) {
+                int k = Integer.numberOfTrailingZeros(others);
+                if (table[previousSet * m + k]
+                        + cost(vertices[k], vertices[last]) == target) {
+                    previous = k;
+                    break;
+                }
+            }
+            set = previousSet;
+            last = previous;
+        }
+        return tour;
+    }
+}
@@ -0,0 +1,16 @@
+package model.graphs.pathfinding;
+
+/**
+ * Interface Heuristic. Represent a lower bound of the shortest path length
+ * between two nodes of a road network, to direct a search towards its goal.
+ * @see BidirectionalAStar
+ */
+public interface Heuristic {
+    /**
+     * @param from the origin node
+     * @param to   the destination node
+     * @return a value that is never greater than the length of the shortest
+     * path from <code>from</code> to <code>to</code>
+     */
+    float lowerBound(int from, int to);
+}
@@ -0,0 +1,66 @@
+package model.graphs.pathfinding;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class Incumbent. The best tour found by a search, shared by the threads
+ * that prune against it.
+ * The cost is read on every node of the search, so it is an atomic float
+ * (stored as its bits) that is read without locking; only the rare
+ * improvements lock, to copy their tour.
+ */
+public class Incumbent {
+    /**
+     * the bits of the best cost.
+     */
+    private final AtomicInteger costBits =
+            new AtomicInteger(Float.floatToIntBits(Float.MAX_VALUE));
+    /**
+     * the cost of <code>tour</code>, guarded by this.
+     */
+    private float tourCost = Float.MAX_VALUE;
+    /**
+     * the best tour, guarded by this.
+     */
+    private int[] tour;
+
+    /**
+     * @return the cost of the best tour, <code>Float.MAX_VALUE</code> if none
+     * was found
+     */
+    public float getCost() {
+        return Float.intBitsToFloat(costBits.get());
+    }
+
+    /**
+     * Keep a tour if it is strictly cheaper than the best one.
+     *
+     * @param candidate the tour; it is copied
+     * @param cost      the cost of the tour
+     * @return true if the tour is the new best one
+     */
+    public boolean offer(final int[] candidate, final float cost) {
+        int bits = costBits.get();
+        while (cost < Float.intBitsToFloat(bits)) {
+            if (costBits.compareAndSet(bits, Float.floatToIntBits(cost))) {
+                synchronized (this) {
+                    // a cheaper tour may have been copied in the meantime
+                    if (cost < tourCost) {
+                        tourCost = cost;
+                        tour = candidate.clone();
+                    }
+                }
+                return true;
+            }
+            bits = costBits.get();
+        }
+        return false;
+    }
+
+    /**
+     * @return a copy of the best tour, null if none was found
+     */
+    public synchronized int[] getTour() {
+        return tour == null ? null : tour.clone();
+    }
+}
@@ -0,0 +1,188 @@
+package model.graphs.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * Class IndexedHeap. An indexed d-ary min heap over the int node indices
+ * <code>0..capacity-1</code>, keyed by a float priority and supporting
+ * decrease-key in O(log n).
+ */
+public class IndexedHeap {
+    /**
+     * the number of children of each heap node.
+     */
+    private static final int ARITY = 4;
+
+    /**
+     * the heap, for each slot give the node stored in it.
+     */
+    private final int[] heap;
+    /**
+     * for each node, its slot in <code>heap</code> (-1 if not in the heap).
+     */
+    private final int[] position;
+    /**
+     * for each node, its current priority.
+     */
+    private final float[] keys;
+    /**
+     * the number of nodes currently in the heap.
+     */
+    private int size;
+
+    /**
+     * @param capacity the number of distinct node indices the heap can hold
+     */
+    public IndexedHeap(final int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        keys = new float[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * @return the number of node indices the heap can hold
+     */
+    public int capacity() {
+        return heap.length;
+    }
+
+    /**
+     * @return true if there is no node in the heap
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of nodes in the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param node the node index
+     * @return true if <code>node</code> is currently in the heap
+     */
+    public boolean contains(final int node) {
+        return position[node] >= 0;
+    }
+
+    /**
+     * @return the smallest priority of the heap
+     */
+    public float peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * @return the node with the smallest priority, without removing it
+     */
+    public int peek() {
+        return heap[0];
+    }
+
+    /**
+     * Insert <code>node</code> with the priority <code>key</code>, or lower
+     * its priority if it is already in the heap with a bigger one.
+     *
+     * @param node the node index
+     * @param key  the priority of the node
+     * @return true if the heap changed
+     */
+    public boolean insertOrDecrease(final int node, final float key) {
+        int slot = position[node];
+        if (slot < 0) {
+            slot = size++;
+            heap[slot] = node;
+            position[node] = slot;
+        } else if (key >= keys[node]) {
+            return false;
+        }
+        keys[node] = key;
+        siftUp(slot);
+        return true;
+    }
+
+    /**
+     * Remove the node with the smallest priority.
+     *
+     * @return the removed node
+     */
+    public int poll() {
+        int min = heap[0];
+        position[min] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Remove every node from the heap, in O(size).
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * @param slot the slot of the node to move toward the root
+     */
+    private void siftUp(int slot) {
+        int node = heap[slot];
+        float key = keys[node];
+        while (slot > 0) {
+            int parentSlot = (slot - 1) / ARITY;
+            int parent = heap[parentSlot];
+            if (keys[parent] <= key) {
+                break;
+            }
+            heap[slot] = parent;
+            position[parent] = slot;
+            slot = parentSlot;
+        }
+        heap[slot] = node;
+        position[node] = slot;
+    }
+
+    /**
+     * @param slot the slot of the node to move toward the leaves
+     */
+    private void siftDown(int slot) {
+        int node = heap[slot];
+        float key = keys[node];
+        while (true) {
+            int firstChild = slot * ARITY + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            int lastChild = Math.min(firstChild + ARITY, size);
+            int bestSlot = firstChild;
+            float bestKey = keys[heap[firstChild]];
+            for (int child = firstChild + 1; child < lastChild; child++) {
+                float childKey = keys[heap[child]];
+                if (childKey < bestKey) {
+                    bestSlot = child;
+                    bestKey = childKey;
+                }
+            }
+            if (bestKey >= key) {
+                break;
+            }
+            int bestNode = heap[bestSlot];
+            heap[slot] = bestNode;
+            position[bestNode] = slot;
+            slot = bestSlot;
+        }
+        heap[slot] = node;
+        position[node] = slot;
+    }
+}
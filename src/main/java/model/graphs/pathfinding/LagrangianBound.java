@@ -0,0 +1,74 @@
+package model.graphs.pathfinding;
+
+import model.graphs.MatrixGraph;
+
+/**
+ * Class LagrangianBound. The spanning tree bound with the Held-Karp
+ * penalties: the degree constraints of the tour are relaxed into a
+ * penalty per vertex, tuned at the root by subgradient steps so that the
+ * 1-tree gets closer to a tour, and thus its cost closer to the optimum.
+ * The penalties are kept for the whole search, where they still give a
+ * lower bound, though not the best one for each path.
+ */
+public class LagrangianBound extends SpanningTreeBound {
+    /**
+     * the default number of subgradient steps.
+     */
+    public static final int DEFAULT_ITERATIONS = 100;
+
+    /**
+     * the number of subgradient steps.
+     */
+    private final int iterations;
+
+    /**
+     * bound tuned by <code>DEFAULT_ITERATIONS</code> steps.
+     */
+    public LagrangianBound() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * @param iterations the number of subgradient steps
+     */
+    public LagrangianBound(final int iterations) {
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void prepare(final MatrixGraph graph, final int start) {
+        super.prepare(graph, start);
+        int[] degrees = new int[n];
+        float[] best = penalties.clone();
+        float bestBound = oneTree(degrees);
+        float current = bestBound;
+        // the step is a fraction of the bound, halved when it stalls
+        float lambda = 2;
+        int stalled = 0;
+        for (int k = 0; k < iterations; k++) {
+            int norm = 0;
+            for (int degree : degrees) {
+                norm += (degree - 2) * (degree - 2);
+            }
+            if (norm == 0) {
+                // the 1-tree is a tour, which is optimal
+                break;
+            }
+            float step = lambda * 0.01f * Math.abs(current) / norm;
+            for (int vertex = 0; vertex < n; vertex++) {
+                penalties[vertex] += step * (degrees[vertex] - 2);
+            }
+            current = oneTree(degrees);
+            if (current > bestBound) {
+                bestBound = current;
+                best = penalties.clone();
+                stalled = 0;
+            } else if (++stalled == 10) {
+                lambda /= 2;
+                stalled = 0;
+            }
+        }
+        penalties = best;
+        rootBound = bestBound;
+    }
+}
@@ -0,0 +1,243 @@
+package model.graphs.pathfinding;
+
+import model.graphs.RoadNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Class Landmarks. The ALT (A*, landmarks, triangle inequality) lower bound:
+ * the distances from and to a few landmarks are precomputed, and for any
+ * landmark L the triangle inequality gives
+ * <code>d(u, v) &gt;= d(L, v) - d(L, u)</code> and
+ * <code>d(u, v) &gt;= d(u, L) - d(v, L)</code>.
+ * The landmarks are chosen by farthest selection, each one being the node
+ * farthest from the ones already chosen, so that they lie on the border of
+ * the map, behind the nodes they bound.
+ * @see BidirectionalAStar
+ */
+public class Landmarks implements Heuristic {
+    /**
+     * the default number of landmarks.
+     */
+    public static final int DEFAULT_COUNT = 16;
+
+    /**
+     * the road network.
+     */
+    private final RoadNetwork network;
+    /**
+     * the landmark nodes.
+     */
+    private final int[] landmarks;
+    /**
+     * the distance from each landmark to each node, indexed by
+     * <code>node * landmarks.length + landmark</code>.
+     */
+    private final float[] fromLandmarks;
+    /**
+     * the distance from each node to each landmark, indexed by
+     * <code>node * landmarks.length + landmark</code>.
+     */
+    private final float[] toLandmarks;
+
+    private Landmarks(final RoadNetwork network, final int[] landmarks,
+                      final float[] fromLandmarks,
+                      final float[] toLandmarks) {
+        this.network = network;
+        this.landmarks = landmarks;
+        this.fromLandmarks = fromLandmarks;
+        this.toLandmarks = toLandmarks;
+    }
+
+    /**
+     * Select <code>count</code> landmarks on the common ForkJoinPool.
+     *
+     * @param network the road network
+     * @param count   the number of landmarks
+     * @return the landmarks and their distances
+     * @throws Exception if a distance computation failed
+     */
+    public static Landmarks select(final RoadNetwork network,
+                                   final int count) throws Exception {
+        return select(network, count, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Select <code>count</code> landmarks by farthest selection. The
+     * distances to each landmark are computed by <code>executor</code>
+     * while the next landmarks are being selected.
+     *
+     * @param network  the road network
+     * @param count    the number of landmarks
+     * @param executor the executor computing the distances to the landmarks
+     * @return the landmarks and their distances
+     * @throws Exception if a distance computation failed
+     */
+    public static Landmarks select(final RoadNetwork network,
+                                   final int count,
+                                   final ExecutorService executor)
+            throws Exception {
+        int nbNodes = network.getNbNodes();
+        int nbLandmarks = Math.min(count, nbNodes);
+        final int[] landmarks = new int[nbLandmarks];
+        final float[] fromLandmarks = new float[nbNodes * nbLandmarks];
+        final float[] toLandmarks = new float[nbNodes * nbLandmarks];
+        if (nbLandmarks == 0) {
+            return new Landmarks(network, landmarks, fromLandmarks,
+                    toLandmarks);
+        }
+
+        // the smallest distance from the chosen landmarks to each node
+        float[] nearest = new float[nbNodes];
+        float[] distances = new float[nbNodes];
+        Workspace workspace = new Workspace(nbNodes);
+        workspace.distances(network, 0, true, distances);
+        int landmark = farthest(distances, 0);
+        Arrays.fill(nearest, Float.POSITIVE_INFINITY);
+
+        List<Future<?>> searches = new ArrayList<>();
+        try {
+            for (int l = 0; l < nbLandmarks; l++) {
+                final int index = l;
+                final int node = landmark;
+                landmarks[l] = node;
+                searches.add(executor.submit(() -> {
+                    float[] backward = new float[nbNodes];
+                    new Workspace(nbNodes).distances(network, node, false,
+                            backward);
+                    for (int n = 0; n < nbNodes; n++) {
+                        toLandmarks[n * nbLandmarks + index] = backward[n];
+                    }
+                }));
+
+                workspace.distances(network, node, true, distances);
+                for (int n = 0; n < nbNodes; n++) {
+                    fromLandmarks[n * nbLandmarks + l] = distances[n];
+                    nearest[n] = Math.min(nearest[n], distances[n]);
+                }
+                landmark = farthest(nearest, node);
+            }
+            for (Future<?> search : searches) {
+                search.get();
+            }
+        } catch (ExecutionException e) {
+            for (Future<?> search : searches) {
+                search.cancel(true);
+            }
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+        return new Landmarks(network, landmarks, fromLandmarks,
+                toLandmarks);
+    }
+
+    /**
+     * @param distances  a distance for each node
+     * @param defaultNode the node returned if no node is reachable
+     * @return the node of largest finite distance
+     */
+    private static int farthest(final float[] distances,
+                                final int defaultNode) {
+        int farthest = defaultNode;
+        float largest = -1;
+        for (int node = 0; node < distances.length; node++) {
+            float distance = distances[node];
+            if (distance != Float.POSITIVE_INFINITY && distance > largest) {
+                largest = distance;
+                farthest = node;
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * @return the road network
+     */
+    public RoadNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * @return the landmark nodes
+     */
+    public int[] getLandmarks() {
+        return landmarks.clone();
+    }
+
+    @Override
+    public float lowerBound(final int from, final int to) {
+        int nbLandmarks = landmarks.length;
+        int fromOffset = from * nbLandmarks;
+        int toOffset = to * nbLandmarks;
+        float bound = 0;
+        for (int l = 0; l < nbLandmarks; l++) {
+            // an infinite distance gives no bound with this landmark
+            float forward = fromLandmarks[toOffset + l]
+                    - fromLandmarks[fromOffset + l];
+            if (forward > bound && forward != Float.POSITIVE_INFINITY) {
+                bound = forward;
+            }
+            float backward = toLandmarks[fromOffset + l]
+                    - toLandmarks[toOffset + l];
+            if (backward > bound && backward != Float.POSITIVE_INFINITY) {
+                bound = backward;
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Class Workspace. The workspace of a one-to-all Dijkstra search on the
+     * road network.
+     */
+    private static final class Workspace {
+        private final IndexedHeap heap;
+        private final boolean[] settled;
+
+        private Workspace(final int nbNodes) {
+            heap = new IndexedHeap(nbNodes);
+            settled = new boolean[nbNodes];
+        }
+
+        /**
+         * @param network   the road network
+         * @param start     the start node
+         * @param forward   true for the distances from the start node,
+         *                  false for the distances to it
+         * @param distances the distances, infinite for the nodes that
+         *                  can't be reached
+         */
+        private void distances(final RoadNetwork network, final int start,
+                               final boolean forward,
+                               final float[] distances) {
+            Arrays.fill(distances, Float.POSITIVE_INFINITY);
+            Arrays.fill(settled, false);
+            distances[start] = 0;
+            heap.insertOrDecrease(start, 0);
+            while (!heap.isEmpty()) {
+                int node = heap.poll();
+                settled[node] = true;
+                float distance = distances[node];
+                int end = forward ? network.edgeEnd(node)
+                        : network.inEdgeEnd(node);
+                for (int i = forward ? network.edgeStart(node)
+                        : network.inEdgeStart(node); i < end; i++) {
+                    int next = forward ? network.getTarget(i)
+                            : network.getInSource(i);
+                    float weight = distance + network.getLength(
+                            forward ? i : network.getInEdge(i));
+                    if (!settled[next] && weight < distances[next]) {
+                        distances[next] = weight;
+                        heap.insertOrDecrease(next, weight);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,759 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.graphs.MatrixGraph;
+import observer.Observer;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Class LargeNeighbourhoodSearch. The adaptive large neighbourhood search:
+ * each iteration ruins the tour by removing some requests, then recreates
+ * it by inserting them back, and the new tour replaces the current one
+ * under a simulated annealing criterion.
+ * The requests are removed at random, by relatedness to a random one, or
+ * the most expensive first; they are inserted back greedily, or the one
+ * that would lose the most by waiting first (regret-2 and regret-3). Each
+ * operator is drawn with a weight that adapts to how often its tours were
+ * new best, improving or accepted.
+ * A request is an isolated pickup and delivery pair, removed and inserted
+ * as a whole; a vertex with other partners is a request of its own,
+ * inserted between its partners. The cost of the edge closing each gap of
+ * the partial tour is cached and updated on each insertion, so the best
+ * insertion of a pair is one scan of the tour.
+ * The time limit is in milliseconds.
+ */
+public class LargeNeighbourhoodSearch extends TemplateTSP {
+    /**
+     * the number of iterations between two updates of the weights.
+     */
+    static final int SEGMENT_LENGTH = 100;
+    /**
+     * the share of the new weight of an operator taken from its last
+     * segment.
+     */
+    static final double REACTION = 0.1;
+    /**
+     * the score of an operator whose tour is a new best.
+     */
+    static final double SCORE_BEST = 33;
+    /**
+     * the score of an operator whose tour improves the current one.
+     */
+    private static final double SCORE_BETTER = 9;
+    /**
+     * the score of an operator whose worse tour is accepted.
+     */
+    private static final double SCORE_ACCEPTED = 13;
+    /**
+     * the maximal number of requests removed at once.
+     */
+    private static final int MAX_REMOVED = 30;
+    /**
+     * the maximal share of the requests removed at once.
+     */
+    private static final double REMOVED_SHARE = 0.4;
+    /**
+     * the exponent biasing the related and worst removals towards the
+     * most related and the most expensive requests.
+     */
+    private static final double DETERMINISM = 6;
+    /**
+     * the excess of a tour over the initial one that is accepted with a
+     * probability of 1/2 at the start.
+     */
+    private static final double START_WORSENING = 0.05;
+    /**
+     * the ratio of the final temperature to the initial one.
+     */
+    private static final double COOLING = 0.002;
+    /**
+     * the ruin operator removing random requests.
+     */
+    static final int RANDOM_REMOVAL = 0;
+    /**
+     * the ruin operator removing the requests close to a random one.
+     */
+    static final int RELATED_REMOVAL = 1;
+    /**
+     * the ruin operator removing the most expensive requests.
+     */
+    static final int WORST_REMOVAL = 2;
+    /**
+     * the number of ruin operators.
+     */
+    private static final int NB_RUINS = 3;
+    /**
+     * the number of recreate operators, inserting with a regret of 1
+     * (greedy), 2 and 3.
+     */
+    private static final int NB_RECREATES = 3;
+    /**
+     * the cost of an impossible insertion.
+     */
+    private static final float IMPOSSIBLE = Float.POSITIVE_INFINITY;
+
+    /**
+     * the random generator.
+     */
+    private SplittableRandom random = new SplittableRandom();
+    /**
+     * the graph, as a matrix.
+     */
+    private MatrixGraph matrix;
+    /**
+     * the cost matrix.
+     */
+    private float[] costs;
+    /**
+     * the number of vertices.
+     */
+    private int n;
+    /**
+     * the pickup and delivery precedences.
+     */
+    private PrecedenceConstraints precedences;
+    /**
+     * the vertices of each request: a pickup and its delivery, or a
+     * single vertex.
+     */
+    private int[][] requests;
+    /**
+     * the partial tour, starting at the depot.
+     */
+    private int[] route;
+    /**
+     * the number of vertices in the partial tour.
+     */
+    private int size;
+    /**
+     * the position of each vertex in the partial tour, -1 if removed.
+     */
+    private int[] positions;
+    /**
+     * <code>gapCosts[k]</code> is the cost of the edge leaving position k.
+     */
+    private float[] gapCosts;
+    /**
+     * the weight, the score and the number of uses in the current segment
+     * of each ruin operator.
+     */
+    private final double[][] ruins = new double[NB_RUINS][3];
+    /**
+     * the weight, the score and the number of uses in the current segment
+     * of each recreate operator.
+     */
+    private final double[][] recreates = new double[NB_RECREATES][3];
+    /**
+     * the number of iterations of the last search.
+     */
+    private long nbIterations;
+
+    /**
+     * constructor with observer.
+     *
+     * @param mainWindow the main observer
+     */
+    public LargeNeighbourhoodSearch(final Observer mainWindow) {
+        addObserver(mainWindow);
+    }
+
+    /**
+     * default constructor.
+     */
+    public LargeNeighbourhoodSearch() {
+    }
+
+    /**
+     * Seed the random generator, to reproduce a search.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(final long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @return the number of iterations of the last search
+     */
+    public long getNbIterations() {
+        return nbIterations;
+    }
+
+    @Override
+    public void computeSolution(final PlanningRequest planningRequest) {
+        prepare(MatrixGraph.of(g), planningRequest);
+        nbIterations = 0;
+        Incumbent incumbent = getSharedIncumbent() != null
+                ? getSharedIncumbent() : new Incumbent();
+
+        // the first tour inserts every request in the empty tour
+        int[] all = new int[requests.length];
+        for (int r = 0; r < all.length; r++) {
+            all[r] = r;
+        }
+        if (!recreate(all, all.length, 2)) {
+            // vertices with several partners may block each other
+            restore(precedences.randomTour(random));
+        }
+        int[] current = route.clone();
+        float currentCost = routeCost();
+        float bestCost = currentCost;
+        offer(incumbent, currentCost);
+
+        double t0 = -START_WORSENING * currentCost / Math.log(0.5);
+        int[] removed = new int[requests.length];
+        while (System.currentTimeMillis() - startTime <= timeLimit
+                && !shouldStop() && requests.length > 0) {
+            nbIterations++;
+            int ruin = draw(ruins);
+            int recreate = draw(recreates);
+            int nbRemoved = ruin(ruin, removed);
+            double score = 0;
+            if (recreate(removed, nbRemoved, recreate + 1)) {
+                float cost = routeCost();
+                double progress = (double) (System.currentTimeMillis()
+                        - startTime) / timeLimit;
+                double temperature = t0 * Math.pow(COOLING, progress);
+                if (cost < bestCost) {
+                    score = SCORE_BEST;
+                    bestCost = cost;
+                    offer(incumbent, cost);
+                } else if (cost < currentCost) {
+                    score = SCORE_BETTER;
+                } else if (random.nextDouble()
+                        < Math.exp((currentCost - cost) / temperature)) {
+                    score = SCORE_ACCEPTED;
+                }
+                if (score > 0) {
+                    System.arraycopy(route, 0, current, 0, n);
+                    currentCost = cost;
+                }
+            }
+            if (score == 0) {
+                restore(current);
+            }
+            reward(ruins[ruin], score);
+            reward(recreates[recreate], score);
+            if (nbIterations % SEGMENT_LENGTH == 0) {
+                updateWeights(ruins);
+                updateWeights(recreates);
+            }
+        }
+
+        int[] bestTour = incumbent.getTour();
+        bestSolCost = incumbent.getCost();
+        if (bestTour != null) {
+            for (int i = 0; i < n; i++) {
+                bestSol[i] = matrix.getId(bestTour[i]);
+            }
+        }
+    }
+
+    /**
+     * Prepare a search: the requests, the weights of the operators, and
+     * the partial tour, which only holds the depot.
+     *
+     * @param graph           the graph, as a matrix
+     * @param planningRequest the planning request
+     */
+    void prepare(final MatrixGraph graph,
+                 final PlanningRequest planningRequest) {
+        matrix = graph;
+        costs = matrix.getCosts();
+        n = matrix.getNbVertices();
+        precedences = new PrecedenceConstraints(matrix, planningRequest);
+        requests = requests();
+        route = new int[n];
+        positions = new int[n];
+        gapCosts = new float[n];
+        for (double[] ruin : ruins) {
+            Arrays.fill(ruin, 0);
+            ruin[0] = 1;
+        }
+        for (double[] recreate : recreates) {
+            Arrays.fill(recreate, 0);
+            recreate[0] = 1;
+        }
+        Arrays.fill(positions, -1);
+        route[0] = precedences.getStart();
+        positions[route[0]] = 0;
+        size = 1;
+        updateGaps();
+    }
+
+    /**
+     * @return the number of requests
+     */
+    int getNbRequests() {
+        return requests.length;
+    }
+
+    /**
+     * @return a copy of the partial tour
+     */
+    int[] getRoute() {
+        return Arrays.copyOf(route, size);
+    }
+
+    /**
+     * @return the requests: the isolated pickup and delivery pairs, and
+     * the other vertices but the depot on their own
+     */
+    private int[][] requests() {
+        int start = precedences.getStart();
+        boolean[] paired = new boolean[n];
+        int nbRequests = 0;
+        for (int vertex = 0; vertex < n; vertex++) {
+            int delivery = precedences.getPairedDelivery(vertex);
+            if (delivery >= 0) {
+                paired[delivery] = true;
+            }
+        }
+        int[][] all = new int[n][];
+        for (int vertex = 0; vertex < n; vertex++) {
+            if (vertex == start || paired[vertex]) {
+                continue;
+            }
+            int delivery = precedences.getPairedDelivery(vertex);
+            all[nbRequests++] = delivery >= 0
+                    ? new int[]{vertex, delivery} : new int[]{vertex};
+        }
+        return Arrays.copyOf(all, nbRequests);
+    }
+
+    /**
+     * Offer the partial tour, which is complete, as the best tour.
+     *
+     * @param incumbent the best tour
+     * @param cost      the cost of the tour
+     */
+    private void offer(final Incumbent incumbent, final float cost) {
+        if (incumbent.offer(route, cost) && isSnapshotDue(cost)) {
+            String[] ids = new String[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = matrix.getId(route[i]);
+            }
+            publishSnapshot(ids, cost);
+        }
+    }
+
+    /**
+     * @param origin      a vertex
+     * @param destination another vertex, or the same one when the depot is
+     *                    alone in the partial tour
+     * @return the cost of the edge, 0 from a vertex to itself
+     */
+    private float cost(final int origin, final int destination) {
+        return origin == destination ? 0 : costs[origin * n + destination];
+    }
+
+    /**
+     * @return the cost of the partial tour
+     */
+    private float routeCost() {
+        double cost = 0;
+        for (int k = 0; k < size; k++) {
+            cost += gapCosts[k];
+        }
+        return (float) cost;
+    }
+
+    /**
+     * Recompute the positions and the gap costs of the partial tour.
+     */
+    private void updateGaps() {
+        for (int k = 0; k < size; k++) {
+            positions[route[k]] = k;
+            gapCosts[k] = cost(route[k], route[k + 1 == size ? 0 : k + 1]);
+        }
+    }
+
+    /**
+     * Go back to a complete tour.
+     *
+     * @param tour the tour
+     */
+    private void restore(final int[] tour) {
+        System.arraycopy(tour, 0, route, 0, n);
+        size = n;
+        updateGaps();
+    }
+
+    /**
+     * @param operators the weight, score and uses of each operator
+     * @return an operator, drawn with a probability proportional to its
+     * weight
+     */
+    private int draw(final double[][] operators) {
+        double total = 0;
+        for (double[] operator : operators) {
+            total += operator[0];
+        }
+        double target = random.nextDouble() * total;
+        for (int i = 0; i < operators.length - 1; i++) {
+            target -= operators[i][0];
+            if (target < 0) {
+                return i;
+            }
+        }
+        return operators.length - 1;
+    }
+
+    /**
+     * @param operator the weight, score and uses of an operator
+     * @param score    the score of its last use
+     */
+    static void reward(final double[] operator, final double score) {
+        operator[1] += score;
+        operator[2]++;
+    }
+
+    /**
+     * Move the weight of each operator towards its mean score in the
+     * segment, and start a new segment.
+     *
+     * @param operators the weight, score and uses of each operator
+     */
+    static void updateWeights(final double[][] operators) {
+        for (double[] operator : operators) {
+            if (operator[2] > 0) {
+                operator[0] = Math.max((1 - REACTION) * operator[0]
+                        + REACTION * operator[1] / operator[2], 1e-3);
+            }
+            operator[1] = 0;
+            operator[2] = 0;
+        }
+    }
+
+    /**
+     * Remove requests from the tour.
+     *
+     * @param operator the ruin operator
+     * @param removed  the array receiving the removed requests
+     * @return the number of removed requests
+     */
+    int ruin(final int operator, final int[] removed) {
+        int max = Math.max(1, Math.min(MAX_REMOVED,
+                (int) (REMOVED_SHARE * requests.length)));
+        int count = 1 + random.nextInt(max);
+        int[] order = new int[requests.length];
+        for (int r = 0; r < order.length; r++) {
+            order[r] = r;
+        }
+        // random first, then sorted by relatedness or by cost
+        for (int r = order.length - 1; r > 0; r--) {
+            int other = random.nextInt(r + 1);
+            int swapped = order[r];
+            order[r] = order[other];
+            order[other] = swapped;
+        }
+        if (operator == RELATED_REMOVAL) {
+            int seed = order[0];
+            sortBy(order, r -> r == seed ? -1 : relatedness(seed, r));
+        } else if (operator == WORST_REMOVAL) {
+            sortBy(order, r -> -removalGain(r));
+        }
+        boolean biased = operator != RANDOM_REMOVAL;
+        int left = order.length;
+        for (int i = 0; i < count; i++) {
+            // the biased removals mostly take the first requests
+            int k = biased ? (int) (Math.pow(random.nextDouble(),
+                    DETERMINISM) * left) : 0;
+            removed[i] = order[k];
+            System.arraycopy(order, k + 1, order, k, left - k - 1);
+            left--;
+        }
+        for (int i = 0; i < count; i++) {
+            for (int vertex : requests[removed[i]]) {
+                positions[vertex] = -1;
+            }
+        }
+        int kept = 0;
+        for (int k = 0; k < size; k++) {
+            if (positions[route[k]] >= 0) {
+                route[kept++] = route[k];
+            }
+        }
+        size = kept;
+        updateGaps();
+        return count;
+    }
+
+    /**
+     * Sort requests by increasing key.
+     *
+     * @param order the requests
+     * @param key   the key of a request
+     */
+    private static void sortBy(final int[] order,
+                               final IntToDoubleFunction key) {
+        double[] keys = new double[order.length];
+        Integer[] sorted = new Integer[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = key.applyAsDouble(order[i]);
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, (a, b) -> Double.compare(keys[a], keys[b]));
+        int[] copy = order.clone();
+        for (int i = 0; i < order.length; i++) {
+            order[i] = copy[sorted[i]];
+        }
+    }
+
+    /**
+     * @param a a request
+     * @param b another request
+     * @return the cost of the cheapest round trip between a vertex of a
+     * request and a vertex of the other
+     */
+    private double relatedness(final int a, final int b) {
+        double related = Double.MAX_VALUE;
+        for (int x : requests[a]) {
+            for (int y : requests[b]) {
+                related = Math.min(related,
+                        (double) cost(x, y) + cost(y, x));
+            }
+        }
+        return related;
+    }
+
+    /**
+     * @param request a request of the tour
+     * @return the cost saved by removing the request from the tour
+     */
+    private double removalGain(final int request) {
+        int[] vertices = requests[request];
+        int first = positions[vertices[0]];
+        int last = positions[vertices[vertices.length - 1]];
+        if (last == first + 1) {
+            // a pickup right before its delivery
+            int previous = route[first - 1];
+            int next = route[last + 1 == size ? 0 : last + 1];
+            return cost(previous, vertices[0])
+                    + cost(vertices[0], vertices[1])
+                    + cost(vertices[1], next) - cost(previous, next);
+        }
+        double gain = 0;
+        for (int vertex : vertices) {
+            int position = positions[vertex];
+            int previous = route[position - 1];
+            int next = route[position + 1 == size ? 0 : position + 1];
+            gain += cost(previous, vertex) + cost(vertex, next)
+                    - cost(previous, next);
+        }
+        return gain;
+    }
+
+    /**
+     * Insert requests back, the one with the highest regret first: the
+     * difference between its best insertion and its k-1 next ones, or
+     * only its best insertion for k = 1.
+     *
+     * @param removed   the removed requests
+     * @param nbRemoved the number of removed requests
+     * @param regret    k, from 1 to 3
+     * @return true if every request could be inserted
+     */
+    boolean recreate(final int[] removed, final int nbRemoved,
+                     final int regret) {
+        int[] waiting = Arrays.copyOf(removed, nbRemoved);
+        int nbWaiting = nbRemoved;
+        Insertion insertion = new Insertion(regret);
+        Insertion chosen = new Insertion(regret);
+        while (nbWaiting > 0) {
+            int chosenIndex = -1;
+            double chosenPriority = 0;
+            for (int i = 0; i < nbWaiting; i++) {
+                insertion.evaluate(waiting[i]);
+                if (insertion.costs[0] == IMPOSSIBLE) {
+                    continue;
+                }
+                double priority = insertion.priority();
+                if (chosenIndex < 0 || priority > chosenPriority) {
+                    chosenIndex = i;
+                    chosenPriority = priority;
+                    chosen.copy(insertion);
+                }
+            }
+            if (chosenIndex < 0) {
+                return false;
+            }
+            chosen.apply();
+            waiting[chosenIndex] = waiting[--nbWaiting];
+        }
+        return true;
+    }
+
+    /**
+     * Insert a vertex after a position of the partial tour.
+     *
+     * @param after  the position
+     * @param vertex the vertex
+     */
+    private void insertAfter(final int after, final int vertex) {
+        int position = after + 1;
+        System.arraycopy(route, position, route, position + 1,
+                size - position);
+        System.arraycopy(gapCosts, position, gapCosts, position + 1,
+                size - position);
+        route[position] = vertex;
+        size++;
+        for (int k = position; k < size; k++) {
+            positions[route[k]] = k;
+        }
+        gapCosts[after] = cost(route[after], vertex);
+        gapCosts[position] = cost(vertex,
+                route[position + 1 == size ? 0 : position + 1]);
+    }
+
+    /**
+     * Class Insertion. The cheapest insertions of a request in the partial
+     * tour.
+     */
+    private final class Insertion {
+        /**
+         * the costs of the k cheapest insertions, cheapest first.
+         */
+        private final float[] costs;
+        /**
+         * the request.
+         */
+        private int request;
+        /**
+         * the position the first vertex is inserted after, in the
+         * cheapest insertion.
+         */
+        private int firstAfter;
+        /**
+         * the position the second vertex is inserted after, in the
+         * cheapest insertion, before the first one is inserted.
+         */
+        private int secondAfter;
+
+        /**
+         * @param k the number of insertions kept
+         */
+        Insertion(final int k) {
+            costs = new float[k];
+        }
+
+        /**
+         * @return how urgent inserting the request is: the opposite of its
+         * cost for k = 1, its regret otherwise
+         */
+        double priority() {
+            if (costs.length == 1) {
+                return -costs[0];
+            }
+            double regret = 0;
+            for (int i = 1; i < costs.length; i++) {
+                // a request with few insertions is the most urgent
+                regret += costs[i] == IMPOSSIBLE
+                        ? Float.MAX_VALUE : costs[i] - costs[0];
+            }
+            return regret;
+        }
+
+        void copy(final Insertion other) {
+            System.arraycopy(other.costs, 0, costs, 0, costs.length);
+            request = other.request;
+            firstAfter = other.firstAfter;
+            secondAfter = other.secondAfter;
+        }
+
+        /**
+         * Keep an insertion if it is among the k cheapest.
+         */
+        private void consider(final float cost, final int first,
+                              final int second) {
+            int i = costs.length;
+            if (cost >= costs[i - 1]) {
+                return;
+            }
+            while (i > 0 && cost < costs[i - 1]) {
+                if (i < costs.length) {
+                    costs[i] = costs[i - 1];
+                }
+                i--;
+            }
+            costs[i] = cost;
+            if (i == 0) {
+                firstAfter = first;
+                secondAfter = second;
+            }
+        }
+
+        /**
+         * Find the cheapest insertions of a request.
+         *
+         * @param r the request
+         */
+        void evaluate(final int r) {
+            request = r;
+            Arrays.fill(costs, IMPOSSIBLE);
+            int[] vertices = requests[r];
+            if (vertices.length == 2) {
+                evaluatePair(vertices[0], vertices[1]);
+            } else {
+                evaluateVertex(vertices[0]);
+            }
+        }
+
+        private void evaluatePair(final int pickup, final int delivery) {
+            float bestPickup = IMPOSSIBLE;
+            int bestPickupAfter = -1;
+            for (int k = 0; k < size; k++) {
+                int before = route[k];
+                int after = route[k + 1 == size ? 0 : k + 1];
+                float gap = gapCosts[k];
+                consider(cost(before, pickup) + cost(pickup, delivery)
+                        + cost(delivery, after) - gap, k, k);
+                if (bestPickupAfter >= 0) {
+                    consider(bestPickup + cost(before, delivery)
+                            + cost(delivery, after) - gap,
+                            bestPickupAfter, k);
+                }
+                float pickupCost = cost(before, pickup)
+                        + cost(pickup, after) - gap;
+                if (pickupCost < bestPickup) {
+                    bestPickup = pickupCost;
+                    bestPickupAfter = k;
+                }
+            }
+        }
+
+        private void evaluateVertex(final int vertex) {
+            // between its pickups and its deliveries in the partial tour
+            int low = 0;
+            for (int pickup : precedences.getPickupsBefore(vertex)) {
+                low = Math.max(low, positions[pickup]);
+            }
+            int high = size;
+            for (int delivery : precedences.getDeliveriesAfter(vertex)) {
+                if (positions[delivery] >= 0) {
+                    high = Math.min(high, positions[delivery]);
+                }
+            }
+            for (int k = low; k < high; k++) {
+                float gap = gapCosts[k];
+                consider(cost(route[k], vertex)
+                        + cost(vertex, route[k + 1 == size ? 0 : k + 1])
+                        - gap, k, -1);
+            }
+        }
+
+        /**
+         * Apply the cheapest insertion.
+         */
+        void apply() {
+            int[] vertices = requests[request];
+            insertAfter(firstAfter, vertices[0]);
+            if (vertices.length == 2) {
+                insertAfter(secondAfter + 1, vertices[1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package model.graphs.pathfinding;
+
+import model.graphs.MatrixGraph;
+
+/**
+ * Class LocalSearch. Improves a tour until no 2-opt, Or-opt or pickup and
+ * delivery pair relocation move improves it any more.
+ * The moves tried from a vertex only create edges towards its few nearest
+ * neighbours, and a vertex is looked at again only once the edges around
+ * it changed: the don't-look bits. The precedences of a move are checked
+ * in O(1): a reversed part must hold no pickup before one of its
+ * deliveries, which is read from the first delivery position of each
+ * suffix of the tour, and a moved part must not jump over a partner of one
+ * of its vertices.
+ * The tour never gets worse, since only improving moves are applied.
+ */
+public class LocalSearch {
+    /**
+     * the number of neighbours of a vertex the moves create edges to.
+     */
+    static final int NB_NEIGHBOURS = 8;
+    /**
+     * the maximal number of vertices of a part moved by Or-opt.
+     */
+    static final int MAX_PART = 3;
+    /**
+     * the minimal gain of an applied move, so that rounding errors don't
+     * make the search cycle.
+     */
+    private static final float EPSILON = 1e-3f;
+
+    /**
+     * the pickup and delivery precedences.
+     */
+    private final PrecedenceConstraints precedences;
+    /**
+     * the cost matrix.
+     */
+    private final float[] costs;
+    /**
+     * the neighbours of each vertex.
+     */
+    private final SortedNeighbours neighbours;
+    /**
+     * the number of vertices.
+     */
+    private final int n;
+    /**
+     * the number of neighbours tried for each vertex.
+     */
+    private final int nbNeighbours;
+    /**
+     * for each vertex, its delivery if they form an isolated pair, -1
+     * otherwise.
+     */
+    private final int[] pairedDelivery;
+    /**
+     * the tour being improved.
+     */
+    private TourMoves tour;
+    /**
+     * <code>firstDelivery[k]</code> is the first position of a delivery of
+     * the vertices from position k to the end of the tour.
+     */
+    private final int[] firstDelivery;
+    /**
+     * the vertices to look at, in a circular queue.
+     */
+    private final int[] queue;
+    /**
+     * the position of the first vertex of the queue.
+     */
+    private int head;
+    /**
+     * the number of vertices in the queue.
+     */
+    private int queued;
+    /**
+     * for each vertex, true if it is in the queue.
+     */
+    private final boolean[] inQueue;
+    /**
+     * the number of moves applied by the last search.
+     */
+    private int nbMoves;
+
+    /**
+     * @param graph       the graph
+     * @param precedences the pickup and delivery precedences
+     */
+    public LocalSearch(final MatrixGraph graph,
+                       final PrecedenceConstraints precedences) {
+        this(graph, precedences, new SortedNeighbours(graph));
+    }
+
+    /**
+     * @param graph       the graph
+     * @param precedences the pickup and delivery precedences
+     * @param neighbours  the neighbours of each vertex, which may be shared
+     *                    by several searches
+     */
+    LocalSearch(final MatrixGraph graph,
+                final PrecedenceConstraints precedences,
+                final SortedNeighbours neighbours) {
+        this.precedences = precedences;
+        this.costs = graph.getCosts();
+        this.neighbours = neighbours;
+        this.n = graph.getNbVertices();
+        this.firstDelivery = new int[n + 1];
+        this.queue = new int[n];
+        this.inQueue = new boolean[n];
+        this.nbNeighbours = Math.min(NB_NEIGHBOURS, Math.max(n - 1, 0));
+        this.pairedDelivery = new int[n];
+        for (int vertex = 0; vertex < n; vertex++) {
+            pairedDelivery[vertex] = precedences.getPairedDelivery(vertex);
+        }
+    }
+
+    /**
+     * @return the number of moves applied by the last search
+     */
+    public int getNbMoves() {
+        return nbMoves;
+    }
+
+    /**
+     * Improve a tour in place, without allocating.
+     *
+     * @param tour a tour keeping the precedences
+     * @return the cost of the improved tour
+     */
+    public float improve(final TourMoves tour) {
+        this.tour = tour;
+        nbMoves = 0;
+        head = 0;
+        queued = 0;
+        if (n < 3) {
+            return tour.getCost();
+        }
+        updateDeliveries();
+        for (int k = 1; k < n; k++) {
+            activate(tour.get(k));
+        }
+        while (queued > 0) {
+            int vertex = queue[head];
+            head = (head + 1) % n;
+            queued--;
+            inQueue[vertex] = false;
+            if (twoOpt(vertex) || orOpt(vertex) || relocatePair(vertex)) {
+                nbMoves++;
+                updateDeliveries();
+                activate(vertex);
+            }
+        }
+        return tour.getCost();
+    }
+
+    /**
+     * Look at a vertex again, with its neighbours in the tour.
+     *
+     * @param vertex a vertex
+     */
+    private void activate(final int vertex) {
+        int position = tour.positionOf(vertex);
+        enqueue(vertex);
+        if (position > 1) {
+            enqueue(tour.get(position - 1));
+        }
+        if (position + 1 < n) {
+            enqueue(tour.get(position + 1));
+        }
+    }
+
+    private void enqueue(final int vertex) {
+        if (!inQueue[vertex] && tour.positionOf(vertex) != 0) {
+            inQueue[vertex] = true;
+            queue[(head + queued) % n] = vertex;
+            queued++;
+        }
+    }
+
+    /**
+     * Recompute the first delivery position of each suffix of the tour.
+     */
+    private void updateDeliveries() {
+        firstDelivery[n] = n;
+        for (int k = n - 1; k >= 0; k--) {
+            firstDelivery[k] = Math.min(firstDelivery[k + 1],
+                    precedences.upperBound(tour, tour.get(k)));
+        }
+    }
+
+    /**
+     * @param i the first position of a part
+     * @param j the last position of the part
+     * @return true if reversing the part keeps the precedences: no vertex
+     * of the part has a delivery in it
+     */
+    private boolean canReverse(final int i, final int j) {
+        return firstDelivery[i] > j;
+    }
+
+    /**
+     * Try the 2-opt moves creating an edge from the vertex to one of its
+     * nearest successors, or to the vertex from one of its nearest
+     * predecessors, and apply the first improving one.
+     *
+     * @param vertex the vertex
+     * @return true if a move was applied
+     */
+    private boolean twoOpt(final int vertex) {
+        int position = tour.positionOf(vertex);
+        for (int rank = 0; rank < nbNeighbours; rank++) {
+            // vertex -> successor, reversing what lies between them
+            int j = tour.positionOf(neighbours.getSuccessor(vertex, rank));
+            if (j > position + 1 && canReverse(position + 1, j)
+                    && tour.twoOptDelta(position + 1, j) < -EPSILON) {
+                activate(tour.get(j));
+                tour.twoOpt(position + 1, j);
+                activate(tour.get(j));
+                return true;
+            }
+            // predecessor -> vertex, reversing from the predecessor
+            int i = tour.positionOf(neighbours.getPredecessor(vertex, rank));
+            if (i >= 1 && i < position - 1 && canReverse(i, position - 1)
+                    && tour.twoOptDelta(i, position - 1) < -EPSILON) {
+                activate(tour.get(i));
+                tour.twoOpt(i, position - 1);
+                activate(tour.get(i));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Try the Or-opt moves of the parts starting at the vertex after one of
+     * its nearest predecessors, and of the parts ending at the vertex
+     * before one of its nearest successors, and apply the first improving
+     * one.
+     *
+     * @param vertex the vertex
+     * @return true if a move was applied
+     */
+    private boolean orOpt(final int vertex) {
+        int position = tour.positionOf(vertex);
+        for (int length = 1; length <= MAX_PART; length++) {
+            for (int rank = 0; rank < nbNeighbours; rank++) {
+                int j = position + length - 1;
+                if (j < n && tryOrOpt(position, j, tour.positionOf(
+                        neighbours.getPredecessor(vertex, rank)))) {
+                    return true;
+                }
+                // before the depot is after the last position
+                int i = position - length + 1;
+                if (i >= 1 && tryOrOpt(i, position, (tour.positionOf(
+                        neighbours.getSuccessor(vertex, rank)) + n - 1) % n)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Apply an Or-opt move if it keeps the precedences and improves the
+     * tour.
+     *
+     * @param i     the first position of the moved part
+     * @param j     the last position of the moved part
+     * @param after the position of the vertex the part is moved after
+     * @return true if the move was applied
+     */
+    private boolean tryOrOpt(final int i, final int j, final int after) {
+        if (after >= i - 1 && after <= j
+                || !canJump(i, j, after)
+                || tour.orOptDelta(i, j, after) >= -EPSILON) {
+            return false;
+        }
+        int first = tour.get(i);
+        int last = tour.get(j);
+        activate(first);
+        activate(last);
+        tour.orOpt(i, j, after);
+        activate(first);
+        activate(last);
+        return true;
+    }
+
+    /**
+     * @param i     the first position of a part
+     * @param j     the last position of the part
+     * @param after the position of the vertex the part is moved after
+     * @return true if no vertex of the part has a partner among the
+     * vertices the part jumps over
+     */
+    private boolean canJump(final int i, final int j, final int after) {
+        for (int k = i; k <= j; k++) {
+            int vertex = tour.get(k);
+            if (after > j) {
+                for (int delivery : precedences.getDeliveriesAfter(vertex)) {
+                    if (tour.positionOf(delivery) <= after
+                            && tour.positionOf(delivery) > j) {
+                        return false;
+                    }
+                }
+            } else {
+                for (int pickup : precedences.getPickupsBefore(vertex)) {
+                    if (tour.positionOf(pickup) > after
+                            && tour.positionOf(pickup) < i) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * If the vertex is the pickup or the delivery of an isolated pair, try
+     * to move the pickup after one of its nearest predecessors and the
+     * delivery after one of its own, or right after the pickup, and apply
+     * the first improving move.
+     *
+     * @param vertex the vertex
+     * @return true if a move was applied
+     */
+    private boolean relocatePair(final int vertex) {
+        int pickup = vertex;
+        int delivery = pairedDelivery[vertex];
+        if (delivery < 0) {
+            int[] pickups = precedences.getPickupsBefore(vertex);
+            if (pickups.length != 1 || pairedDelivery[pickups[0]] != vertex) {
+                return false;
+            }
+            pickup = pickups[0];
+            delivery = vertex;
+        }
+        int pickupPosition = tour.positionOf(pickup);
+        int deliveryPosition = tour.positionOf(delivery);
+        float removal = removalGain(pickupPosition, deliveryPosition);
+
+        float bestDelta = -EPSILON;
+        int bestPickupAfter = -1;
+        int bestDeliveryAfter = -1;
+        for (int rank = 0; rank < nbNeighbours; rank++) {
+            int u = neighbours.getPredecessor(pickup, rank);
+            if (u == delivery) {
+                continue;
+            }
+            int pickupAfter = reducedPosition(tour.positionOf(u),
+                    pickupPosition, deliveryPosition);
+            int uNext = reducedNext(tour.positionOf(u), pickupPosition,
+                    deliveryPosition);
+            // right after the pickup
+            float delta = cost(u, pickup) + cost(pickup, delivery)
+                    + cost(delivery, uNext) - cost(u, uNext) - removal;
+            if (delta < bestDelta) {
+                bestDelta = delta;
+                bestPickupAfter = pickupAfter;
+                bestDeliveryAfter = pickupAfter;
+            }
+            float pickupInsertion = cost(u, pickup) + cost(pickup, uNext)
+                    - cost(u, uNext);
+            for (int other = 0; other < nbNeighbours; other++) {
+                int w = neighbours.getPredecessor(delivery, other);
+                if (w == pickup) {
+                    continue;
+                }
+                int deliveryAfter = reducedPosition(tour.positionOf(w),
+                        pickupPosition, deliveryPosition);
+                if (deliveryAfter <= pickupAfter) {
+                    continue;
+                }
+                int wNext = reducedNext(tour.positionOf(w), pickupPosition,
+                        deliveryPosition);
+                delta = pickupInsertion + cost(w, delivery)
+                        + cost(delivery, wNext) - cost(w, wNext) - removal;
+                if (delta < bestDelta) {
+                    bestDelta = delta;
+                    bestPickupAfter = pickupAfter;
+                    bestDeliveryAfter = deliveryAfter;
+                }
+            }
+        }
+        if (bestPickupAfter < 0) {
+            return false;
+        }
+        activate(pickup);
+        activate(delivery);
+        // both to the end, then each to its place
+        tour.relocate(deliveryPosition, n - 1);
+        tour.relocate(tour.positionOf(pickup), n - 1);
+        tour.relocate(n - 1, bestPickupAfter + 1);
+        tour.relocate(n - 1, bestDeliveryAfter + 2);
+        activate(pickup);
+        activate(delivery);
+        return true;
+    }
+
+    private float cost(final int origin, final int destination) {
+        return costs[origin * n + destination];
+    }
+
+    /**
+     * @param pickupPosition   the position of the pickup
+     * @param deliveryPosition the position of the delivery, after it
+     * @return the cost saved by removing both vertices from the tour
+     */
+    private float removalGain(final int pickupPosition,
+                              final int deliveryPosition) {
+        int pickup = tour.get(pickupPosition);
+        int delivery = tour.get(deliveryPosition);
+        int beforePickup = tour.get(pickupPosition - 1);
+        int afterDelivery = tour.get((deliveryPosition + 1) % n);
+        if (deliveryPosition == pickupPosition + 1) {
+            return cost(beforePickup, pickup) + cost(pickup, delivery)
+                    + cost(delivery, afterDelivery)
+                    - cost(beforePickup, afterDelivery);
+        }
+        int afterPickup = tour.get(pickupPosition + 1);
+        int beforeDelivery = tour.get(deliveryPosition - 1);
+        return cost(beforePickup, pickup) + cost(pickup, afterPickup)
+                - cost(beforePickup, afterPickup)
+                + cost(beforeDelivery, delivery)
+                + cost(delivery, afterDelivery)
+                - cost(beforeDelivery, afterDelivery);
+    }
+
+    /**
+     * @param position         a position, neither of the pair
+     * @param pickupPosition   the position of the removed pickup
+     * @param deliveryPosition the position of the removed delivery
+     * @return the position in the tour without the pair
+     */
+    private static int reducedPosition(final int position,
+                                       final int pickupPosition,
+                                       final int deliveryPosition) {
+        int reduced = position;
+        if (pickupPosition < position) {
+            reduced--;
+        }
+        if (deliveryPosition < position) {
+            reduced--;
+        }
+        return reduced;
+    }
+
+    /**
+     * @param position         a position, neither of the pair
+     * @param pickupPosition   the position of the removed pickup
+     * @param deliveryPosition the position of the removed delivery
+     * @return the vertex following the one at <code>position</code> in the
+     * tour without the pair
+     */
+    private int reducedNext(final int position, final int pickupPosition,
+                            final int deliveryPosition) {
+        int next = (position + 1) % n;
+        while (next == pickupPosition || next == deliveryPosition) {
+            next = (next + 1) % n;
+        }
+        return tour.get(next);
+    }
+}
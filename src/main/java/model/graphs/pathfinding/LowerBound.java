@@ -0,0 +1,34 @@
+package model.graphs.pathfinding;
+
+import model.graphs.MatrixGraph;
+
+/**
+ * Interface LowerBound. A lower bound of the cost of completing a path into
+ * a tour, used by BranchAndBound to cut the subtrees that can't beat the
+ * best tour.
+ * A bound relaxes the problem, so it stays a lower bound with the
+ * precedences; it is prepared once per search, then evaluated by several
+ * threads at once, and must not keep state between evaluations.
+ * @see BranchAndBound#setLowerBound(LowerBound)
+ */
+public interface LowerBound {
+    /**
+     * Precompute what the bound needs for a graph.
+     *
+     * @param graph the graph of the points of interest
+     * @param start the index of the depot
+     */
+    void prepare(MatrixGraph graph, int start);
+
+    /**
+     * @param currentVertex the last vertex of the path
+     * @param depth         the number of visited vertices
+     * @param visited       the mask of the visited vertices, the vertex
+     *                      <code>v</code> being the bit <code>v % 64</code>
+     *                      of <code>visited[v / 64]</code>
+     * @return a lower bound of the cost of the paths starting from
+     * <code>currentVertex</code>, visiting every unvisited vertex exactly
+     * once, and returning back to the depot
+     */
+    float bound(int currentVertex, int depth, long[] visited);
+}
@@ -0,0 +1,456 @@
+package model.graphs.pathfinding;
+
+import model.Segment;
+import model.graphs.Graph;
+import model.graphs.Plan;
+import model.graphs.RoadNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Class ManyToManyMatrix. Compute the shortest paths between every pair of
+ * points of interest on a contraction hierarchy with buckets: one backward
+ * upward search per target leaves an entry in the bucket of every node it
+ * settles, then one forward upward search per source scans the buckets of
+ * the nodes it settles. Each source only costs one small upward search
+ * instead of a Dijkstra search over the whole map.
+ * The searches of each phase run in parallel on an executor, each one
+ * borrowing a search workspace from a concurrent pool, so that no two
+ * threads share one. The backward search spaces are linked into the
+ * buckets between the two phases, which then only read them, and each
+ * forward search writes its own row of paths; the graph is filled by the
+ * calling thread once every search is done.
+ * A matrix must not fill two graphs at once.
+ * @see ContractionHierarchy
+ */
+public class ManyToManyMatrix {
+    /**
+     * the initial capacity of the bucket entries.
+     */
+    private static final int INITIAL_ENTRIES = 1024;
+
+    /**
+     * the hierarchy of the road network.
+     */
+    private final ContractionHierarchy hierarchy;
+    /**
+     * the executor running the searches.
+     */
+    private final Executor executor;
+    /**
+     * the workspaces not used by a running search.
+     */
+    private final Queue<Workspace> workspaces = new ConcurrentLinkedQueue<>();
+
+    /**
+     * for each node, its first bucket entry, -1 if its bucket is empty.
+     */
+    private final int[] bucketHeads;
+    // bucket entries, each bucket being a linked list of entries
+    private int[] entryNode = new int[INITIAL_ENTRIES];
+    private int[] entryNext = new int[INITIAL_ENTRIES];
+    private int[] entryTarget = new int[INITIAL_ENTRIES];
+    private float[] entryWeight = new float[INITIAL_ENTRIES];
+    private int[] entryEdge = new int[INITIAL_ENTRIES];
+    private int[] entryTowardsTarget = new int[INITIAL_ENTRIES];
+    private int nbEntries;
+
+    /**
+     * matrix running its searches on the common ForkJoinPool.
+     *
+     * @param hierarchy the hierarchy of the road network
+     */
+    public ManyToManyMatrix(final ContractionHierarchy hierarchy) {
+        this(hierarchy, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param hierarchy the hierarchy of the road network
+     * @param executor  the executor running the searches,
+     *                  <code>Runnable::run</code> to run them one after the
+     *                  other in the calling thread
+     */
+    public ManyToManyMatrix(final ContractionHierarchy hierarchy,
+                            final Executor executor) {
+        this.hierarchy = hierarchy;
+        this.executor = executor;
+        bucketHeads = new int[hierarchy.getNetwork().getNbNodes()];
+        Arrays.fill(bucketHeads, -1);
+    }
+
+    /**
+     * Add to <code>graph</code> the shortest path between every ordered
+     * pair of distinct points of interest.
+     *
+     * @param plan              the plan of the hierarchy
+     * @param pointsOfInterests the ids of the points of interest
+     * @param graph             the graph to fill
+     * @throws Exception if a point of interest can't be reached from
+     *                   another one
+     */
+    public void fill(final Plan plan,
+                     final List<String> pointsOfInterests,
+                     final Graph graph) throws Exception {
+        RoadNetwork network = hierarchy.getNetwork();
+        Map<String, Integer> distinct = new LinkedHashMap<>();
+        for (String poi : pointsOfInterests) {
+            distinct.putIfAbsent(poi, network.indexOf(poi));
+        }
+        int size = distinct.size();
+        String[] ids = distinct.keySet().toArray(new String[size]);
+        int[] nodes = new int[size];
+        for (int i = 0; i < size; i++) {
+            nodes[i] = distinct.get(ids[i]);
+            if (nodes[i] < 0) {
+                throw noRoute(ids[i == 0 && size > 1 ? 1 : 0], ids[i]);
+            }
+        }
+
+        try {
+            SearchSpace[] spaces = new SearchSpace[size];
+            runAll(size, (workspace, j) ->
+                    spaces[j] = workspace.backwardSearch(nodes[j]));
+            for (int j = 0; j < size; j++) {
+                addEntries(j, spaces[j]);
+            }
+            Edge[][] rows = new Edge[size][];
+            runAll(size, (workspace, i) ->
+                    rows[i] = workspace.row(plan, ids, nodes, i));
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    if (j != i) {
+                        graph.addEdge(ids[i], ids[j], rows[i][j]);
+                    }
+                }
+            }
+        } finally {
+            clearBuckets();
+        }
+    }
+
+    /**
+     * Run a search per point of interest on the executor, each with a
+     * workspace of its own, and wait for all of them.
+     *
+     * @param size   the number of points of interest
+     * @param search the search
+     * @throws Exception the exception of a failed search
+     */
+    private void runAll(final int size, final Search search)
+            throws Exception {
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[size];
+        for (int k = 0; k < size; k++) {
+            final int poi = k;
+            tasks[k] = CompletableFuture.runAsync(() -> {
+                Workspace workspace = workspaces.poll();
+                if (workspace == null) {
+                    workspace = new Workspace();
+                }
+                try {
+                    search.run(workspace, poi);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                } finally {
+                    workspaces.offer(workspace);
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(tasks).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * Interface Search. A search from or to one point of interest.
+     */
+    private interface Search {
+        /**
+         * @param workspace the workspace of the search
+         * @param poi       the index of the point of interest
+         * @throws Exception if a point of interest can't be reached
+         */
+        void run(Workspace workspace, int poi) throws Exception;
+    }
+
+    private static Exception noRoute(final String origin,
+                                     final String destination) {
+        String errorMsg = "No route has been found from %s to %s !";
+        return new Exception(String.format(errorMsg, origin, destination));
+    }
+
+    /**
+     * Link the search space of a target into the buckets of its nodes.
+     *
+     * @param target the index of the target among the points of interest
+     * @param space  the backward search space of the target
+     */
+    private void addEntries(final int target, final SearchSpace space) {
+        int first = nbEntries;
+        for (int k = 0; k < space.nodes.length; k++) {
+            int towards = space.towardsTarget[k];
+            addEntry(space.nodes[k], target, space.weights[k],
+                    space.edges[k], towards < 0 ? -1 : first + towards);
+        }
+    }
+
+    private int addEntry(final int node, final int target,
+                         final float weight, final int edge,
+                         final int towardsTarget) {
+        if (nbEntries == entryNode.length) {
+            int capacity = nbEntries * 2;
+            entryNode = Arrays.copyOf(entryNode, capacity);
+            entryNext = Arrays.copyOf(entryNext, capacity);
+            entryTarget = Arrays.copyOf(entryTarget, capacity);
+            entryWeight = Arrays.copyOf(entryWeight, capacity);
+            entryEdge = Arrays.copyOf(entryEdge, capacity);
+            entryTowardsTarget = Arrays.copyOf(entryTowardsTarget, capacity);
+        }
+        int entry = nbEntries++;
+        entryNode[entry] = node;
+        entryTarget[entry] = target;
+        entryWeight[entry] = weight;
+        entryEdge[entry] = edge;
+        entryTowardsTarget[entry] = towardsTarget;
+        entryNext[entry] = bucketHeads[node];
+        bucketHeads[node] = entry;
+        return entry;
+    }
+
+    private void clearBuckets() {
+        for (int entry = 0; entry < nbEntries; entry++) {
+            bucketHeads[entryNode[entry]] = -1;
+        }
+        nbEntries = 0;
+    }
+
+    /**
+     * Class SearchSpace. The nodes settled by a backward search, with
+     * their weight to the target, the hierarchy edge and the index of the
+     * next node towards the target, -1 for the target itself.
+     */
+    private static final class SearchSpace {
+        private final int[] nodes;
+        private final float[] weights;
+        private final int[] edges;
+        private final int[] towardsTarget;
+
+        /**
+         * @param size the number of settled nodes
+         */
+        SearchSpace(final int size) {
+            nodes = new int[size];
+            weights = new float[size];
+            edges = new int[size];
+            towardsTarget = new int[size];
+        }
+    }
+
+    /**
+     * Class Workspace. The arrays of the upward searches of a thread.
+     */
+    private final class Workspace {
+        private final float[] weights;
+        private final int[] previous;
+        private final int[] edges;
+        private final int[] reachedIn;
+        private final IndexedHeap heap;
+        private int search;
+        /**
+         * for each node, its index in the current backward search space.
+         */
+        private final int[] indexInSpace;
+        /**
+         * the nodes of the current backward search space, in settling
+         * order.
+         */
+        private int[] settled = new int[INITIAL_ENTRIES];
+
+        Workspace() {
+            int nbNodes = hierarchy.getNetwork().getNbNodes();
+            weights = new float[nbNodes];
+            previous = new int[nbNodes];
+            edges = new int[nbNodes];
+            reachedIn = new int[nbNodes];
+            heap = new IndexedHeap(nbNodes);
+            indexInSpace = new int[nbNodes];
+        }
+
+        /**
+         * Settle the whole backward upward search space of a target.
+         *
+         * @param node the node of the target
+         * @return the search space
+         */
+        SearchSpace backwardSearch(final int node) {
+            startSearch(node);
+            int size = 0;
+            while (!heap.isEmpty()) {
+                int current = heap.poll();
+                if (size == settled.length) {
+                    settled = Arrays.copyOf(settled, size * 2);
+                }
+                indexInSpace[current] = size;
+                settled[size++] = current;
+                float weight = weights[current];
+                for (int edge = hierarchy.downStart(current);
+                     edge < hierarchy.downEnd(current); edge++) {
+                    relax(current, hierarchy.getDownSource(edge),
+                            weight + hierarchy.getDownWeight(edge), edge);
+                }
+            }
+            SearchSpace space = new SearchSpace(size);
+            for (int k = 0; k < size; k++) {
+                int current = settled[k];
+                int next = previous[current];
+                space.nodes[k] = current;
+                space.weights[k] = weights[current];
+                space.edges[k] = edges[current];
+                space.towardsTarget[k] = next < 0 ? -1 : indexInSpace[next];
+            }
+            return space;
+        }
+
+        /**
+         * Compute the shortest paths from a source to every other point of
+         * interest, through the buckets.
+         *
+         * @param plan   the plan of the hierarchy
+         * @param ids    the ids of the points of interest
+         * @param nodes  the nodes of the points of interest
+         * @param source the index of the source
+         * @return the paths from the source, indexed by target
+         * @throws Exception if a point of interest can't be reached from
+         *                   the source
+         */
+        Edge[] row(final Plan plan, final String[] ids, final int[] nodes,
+                   final int source) throws Exception {
+            float[] best = new float[ids.length];
+            int[] meetingEntries = new int[ids.length];
+            forwardSearch(nodes[source], best, meetingEntries);
+            Edge[] row = new Edge[ids.length];
+            for (int j = 0; j < ids.length; j++) {
+                if (j == source) {
+                    continue;
+                }
+                if (meetingEntries[j] < 0) {
+                    throw noRoute(ids[source], ids[j]);
+                }
+                row[j] = buildEdge(plan, ids[source], ids[j], nodes[source],
+                        meetingEntries[j]);
+            }
+            return row;
+        }
+
+        /**
+         * Settle the whole forward upward search space of the source,
+         * keeping for each target the bucket entry of the shortest path.
+         *
+         * @param node           the node of the source
+         * @param best           the best weight found for each target
+         * @param meetingEntries the best entry found for each target
+         */
+        private void forwardSearch(final int node, final float[] best,
+                                   final int[] meetingEntries) {
+            Arrays.fill(best, Float.MAX_VALUE);
+            Arrays.fill(meetingEntries, -1);
+            startSearch(node);
+            while (!heap.isEmpty()) {
+                int current = heap.poll();
+                float weight = weights[current];
+                for (int entry = bucketHeads[current]; entry >= 0;
+                     entry = entryNext[entry]) {
+                    int target = entryTarget[entry];
+                    if (weight + entryWeight[entry] < best[target]) {
+                        best[target] = weight + entryWeight[entry];
+                        meetingEntries[target] = entry;
+                    }
+                }
+                for (int edge = hierarchy.upStart(current);
+                     edge < hierarchy.upEnd(current); edge++) {
+                    relax(current, hierarchy.getUpTarget(edge),
+                            weight + hierarchy.getUpWeight(edge), edge);
+                }
+            }
+        }
+
+        private void startSearch(final int start) {
+            if (++search == 0) {
+                Arrays.fill(reachedIn, 0);
+                search = 1;
+            }
+            reachedIn[start] = search;
+            weights[start] = 0;
+            previous[start] = -1;
+            edges[start] = -1;
+            heap.insertOrDecrease(start, 0);
+        }
+
+        private void relax(final int node, final int next,
+                           final float weight, final int edge) {
+            if (reachedIn[next] != search || weight < weights[next]) {
+                reachedIn[next] = search;
+                weights[next] = weight;
+                previous[next] = node;
+                edges[next] = edge;
+                heap.insertOrDecrease(next, weight);
+            }
+        }
+
+        /**
+         * Unpack the path from the source of the last forward search to
+         * the target of <code>meetingEntry</code>.
+         *
+         * @param plan         the plan of the hierarchy
+         * @param origin       the id of the source
+         * @param destination  the id of the target
+         * @param source       the node of the source
+         * @param meetingEntry the bucket entry where the searches met
+         * @return the shortest path
+         */
+        private Edge buildEdge(final Plan plan, final String origin,
+                               final String destination, final int source,
+                               final int meetingEntry) {
+            List<Segment> segments = new ArrayList<>();
+            int meeting = entryNode[meetingEntry];
+
+            int[] upPath = new int[16];
+            int length = 0;
+            for (int node = meeting; node != source; node = previous[node]) {
+                if (length == upPath.length) {
+                    upPath = Arrays.copyOf(upPath, length * 2);
+                }
+                upPath[length++] = node;
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                int node = upPath[i];
+                hierarchy.unpack(plan, previous[node], node,
+                        hierarchy.getUpMiddle(edges[node]), segments);
+            }
+            for (int entry = meetingEntry; entryTowardsTarget[entry] >= 0;
+                 entry = entryTowardsTarget[entry]) {
+                hierarchy.unpack(plan, entryNode[entry],
+                        entryNode[entryTowardsTarget[entry]],
+                        hierarchy.getDownMiddle(entryEdge[entry]), segments);
+            }
+
+            float duration = 0;
+            for (Segment segment : segments) {
+                duration += segment.getLength();
+            }
+            return new Edge(origin, destination, segments, duration);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.graphs.MatrixGraph;
+import observer.Observer;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class MemeticAlgorithm. A genetic algorithm whose children are improved
+ * by a LocalSearch.
+ * Each generation breeds a batch of children in parallel: two parents
+ * drawn by tournament are mixed by the precedence preserving crossover,
+ * which repeatedly takes the first vertex not taken yet of one parent or
+ * the other, so that the pickups of a vertex are always taken before it;
+ * the child is then sometimes shaken by random moves, and improved by the
+ * local search, which also computes its cost. A child replaces the worst
+ * tour of the population if it is cheaper and its cost is not already in
+ * the population, which keeps it diverse.
+ * The population, the children and the buffers of every breeding task are
+ * allocated once, and the tasks themselves are reused, so the generations
+ * don't allocate.
+ * The time limit is in milliseconds.
+ */
+public class MemeticAlgorithm extends TemplateTSP {
+    /**
+     * the number of tours of the population.
+     */
+    static final int POPULATION_SIZE = 30;
+    /**
+     * the number of children bred by each thread of the pool at each
+     * generation.
+     */
+    private static final int CHILDREN_PER_THREAD = 2;
+    /**
+     * the probability that a child is shaken before its local search.
+     */
+    private static final double MUTATION_RATE = 0.3;
+    /**
+     * the share of the vertices moved when a child is shaken.
+     */
+    private static final double MUTATION_STRENGTH = 0.1;
+
+    /**
+     * the pool breeding the children.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * the random generator, from which the breeding tasks split their own.
+     */
+    private SplittableRandom random = new SplittableRandom();
+    /**
+     * the graph, as a matrix.
+     */
+    private MatrixGraph matrix;
+    /**
+     * the number of vertices.
+     */
+    private int n;
+    /**
+     * the tours of the population.
+     */
+    private int[][] population;
+    /**
+     * the cost of each tour of the population.
+     */
+    private float[] populationCosts;
+    /**
+     * the breeding tasks, one per child of a generation.
+     */
+    private Offspring[] offspring;
+    /**
+     * the number of generations of the last search.
+     */
+    private long nbGenerations;
+
+    /**
+     * constructor with observer, on the common pool.
+     *
+     * @param mainWindow the main observer
+     */
+    public MemeticAlgorithm(final Observer mainWindow) {
+        this(ForkJoinPool.commonPool());
+        addObserver(mainWindow);
+    }
+
+    /**
+     * default constructor, on the common pool.
+     */
+    public MemeticAlgorithm() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool the pool breeding the children
+     */
+    public MemeticAlgorithm(final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Seed the random generator, to reproduce the population of a search.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(final long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @return the number of generations of the last search
+     */
+    public long getNbGenerations() {
+        return nbGenerations;
+    }
+
+    @Override
+    public void computeSolution(final PlanningRequest planningRequest) {
+        matrix = MatrixGraph.of(g);
+        n = matrix.getNbVertices();
+        PrecedenceConstraints precedences =
+                new PrecedenceConstraints(matrix, planningRequest);
+        SortedNeighbours neighbours = new SortedNeighbours(matrix);
+        Incumbent incumbent = getSharedIncumbent() != null
+                ? getSharedIncumbent() : new Incumbent();
+        nbGenerations = 0;
+
+        offspring = new Offspring[Math.max(1, pool.getParallelism())
+                * CHILDREN_PER_THREAD];
+        for (int i = 0; i < offspring.length; i++) {
+            offspring[i] = new Offspring(precedences,
+                    new LocalSearch(matrix, precedences, neighbours),
+                    random.split());
+        }
+        population = new int[POPULATION_SIZE][];
+        populationCosts = new float[POPULATION_SIZE];
+        Offspring first = offspring[0];
+        for (int i = 0; i < POPULATION_SIZE; i++) {
+            first.tour.setTour(precedences.randomTour(first.random));
+            populationCosts[i] = first.localSearch.improve(first.tour);
+            population[i] = new int[n];
+            first.tour.copyTo(population[i]);
+            offer(incumbent, population[i], populationCosts[i]);
+        }
+
+        Generation generation = new Generation();
+        while (System.currentTimeMillis() - startTime <= timeLimit
+                && !shouldStop()) {
+            pool.invoke(generation);
+            generation.reinitialize();
+            for (Offspring child : offspring) {
+                child.reinitialize();
+                if (replaceWorst(population, populationCosts, child.child,
+                        child.cost)) {
+                    offer(incumbent, child.child, child.cost);
+                }
+            }
+            nbGenerations++;
+        }
+
+        int[] bestTour = incumbent.getTour();
+        bestSolCost = incumbent.getCost();
+        if (bestTour != null) {
+            for (int i = 0; i < n; i++) {
+                bestSol[i] = matrix.getId(bestTour[i]);
+            }
+        }
+    }
+
+    /**
+     * @param incumbent the best tour
+     * @param tour      a tour
+     * @param cost      the cost of the tour
+     */
+    private void offer(final Incumbent incumbent, final int[] tour,
+                       final float cost) {
+        if (cost < incumbent.getCost() && incumbent.offer(tour, cost)
+                && isSnapshotDue(cost)) {
+            String[] ids = new String[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = matrix.getId(tour[i]);
+            }
+            publishSnapshot(ids, cost);
+        }
+    }
+
+    /**
+     * Put a child in the place of the worst tour of the population, if it
+     * is cheaper and no tour of the population has its cost.
+     *
+     * @param population      the tours of the population
+     * @param populationCosts the cost of each tour of the population
+     * @param child           the child
+     * @param cost            the cost of the child
+     * @return true if the child entered the population
+     */
+    static boolean replaceWorst(final int[][] population,
+                                final float[] populationCosts,
+                                final int[] child, final float cost) {
+        int worst = 0;
+        for (int i = 0; i < populationCosts.length; i++) {
+            if (populationCosts[i] == cost) {
+                return false;
+            }
+            if (populationCosts[i] > populationCosts[worst]) {
+                worst = i;
+            }
+        }
+        if (cost >= populationCosts[worst]) {
+            return false;
+        }
+        System.arraycopy(child, 0, population[worst], 0, child.length);
+        populationCosts[worst] = cost;
+        return true;
+    }
+
+    /**
+     * The precedence preserving crossover: fill the child by taking, from
+     * a parent drawn at each position, its first vertex not taken yet.
+     * Since the parents keep the precedences, the pickups of this vertex
+     * are before it in the parent, so they are already taken.
+     *
+     * @param mother a parent
+     * @param father the other parent, with the same first vertex
+     * @param child  the array receiving the child
+     * @param taken  a buffer of the same length, for each vertex true once
+     *               taken
+     * @param random the random generator drawing the parents
+     */
+    static void crossover(final int[] mother, final int[] father,
+                          final int[] child, final boolean[] taken,
+                          final SplittableRandom random) {
+        Arrays.fill(taken, false);
+        child[0] = mother[0];
+        taken[mother[0]] = true;
+        int inMother = 1;
+        int inFather = 1;
+        for (int position = 1; position < child.length; position++) {
+            int vertex;
+            if (random.nextBoolean()) {
+                while (taken[mother[inMother]]) {
+                    inMother++;
+                }
+                vertex = mother[inMother];
+            } else {
+                while (taken[father[inFather]]) {
+                    inFather++;
+                }
+                vertex = father[inFather];
+            }
+            taken[vertex] = true;
+            child[position] = vertex;
+        }
+    }
+
+    /**
+     * Class Generation. The task breeding every child of a generation.
+     */
+    private final class Generation extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            invokeAll(offspring);
+        }
+    }
+
+    /**
+     * Class Offspring. The task breeding one child, with its own buffers
+     * and random generator.
+     */
+    private final class Offspring extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * the local search improving the child.
+         */
+        private final LocalSearch localSearch;
+        /**
+         * the random generator.
+         */
+        private final SplittableRandom random;
+        /**
+         * the tour the child is shaken and improved in.
+         */
+        private final TourMoves tour;
+        /**
+         * the random moves shaking the child.
+         */
+        private final RandomMoves moves;
+        /**
+         * for each vertex, true if the crossover took it.
+         */
+        private final boolean[] taken;
+        /**
+         * the child.
+         */
+        private final int[] child;
+        /**
+         * the cost of the child.
+         */
+        private float cost;
+
+        /**
+         * @param precedences the pickup and delivery precedences
+         * @param localSearch the local search improving the child
+         * @param random      the random generator
+         */
+        Offspring(final PrecedenceConstraints precedences,
+                  final LocalSearch localSearch,
+                  final SplittableRandom random) {
+            this.localSearch = localSearch;
+            this.random = random;
+            this.tour = new TourMoves(matrix, precedences.randomTour(random));
+            this.moves = new RandomMoves(tour, precedences, random);
+            this.taken = new boolean[n];
+            this.child = new int[n];
+        }
+
+        @Override
+        protected void compute() {
+            crossover(population[tournament()], population[tournament()],
+                    child, taken, random);
+            tour.setTour(child);
+            if (random.nextDouble() < MUTATION_RATE) {
+                int nbMoves = 1 + (int) (MUTATION_STRENGTH * n);
+                for (int i = 0; i < nbMoves; i++) {
+                    if (!Float.isNaN(
+                            moves.draw(SimulatedAnnealing.MOVE_ATTEMPTS))) {
+                        moves.apply();
+                    }
+                }
+            }
+            cost = localSearch.improve(tour);
+            tour.copyTo(child);
+        }
+
+        /**
+         * @return the cheaper of two tours of the population drawn at
+         * random
+         */
+        private int tournament() {
+            int a = random.nextInt(POPULATION_SIZE);
+            int b = random.nextInt(POPULATION_SIZE);
+            return populationCosts[a] <= populationCosts[b] ? a : b;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import observer.Observer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class ParallelBranchAndBound. The Branch And Bound Algorithm, run on a
+ * ForkJoinPool.
+ * The first levels of the tree are split into tasks, one per path, that
+ * idle workers steal; below them each task explores its subtree alone, as
+ * the sequential algorithm does. Every worker prunes against the same
+ * incumbent, so a tour found by one of them cuts the subtrees of all the
+ * others at once.
+ */
+public class ParallelBranchAndBound extends BranchAndBound {
+    /**
+     * the depth down to which the tree is split into tasks.
+     */
+    private static final int SPLIT_DEPTH = 3;
+    /**
+     * the number of unvisited vertices below which a subtree is too small
+     * to be split.
+     */
+    private static final int MIN_SPLIT_SIZE = 6;
+
+    /**
+     * the pool running the tasks.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * the number of subtrees explored alone by a task.
+     */
+    private final AtomicInteger nbSubtrees = new AtomicInteger();
+
+    /**
+     * constructor with observer, on the common pool.
+     *
+     * @param mainWindow the main observer
+     */
+    public ParallelBranchAndBound(final Observer mainWindow) {
+        super(mainWindow);
+        this.pool = ForkJoinPool.commonPool();
+    }
+
+    /**
+     * default constructor, on the common pool.
+     */
+    public ParallelBranchAndBound() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool the pool running the tasks
+     */
+    public ParallelBranchAndBound(final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return the number of subtrees explored alone by a task in the last
+     * search
+     */
+    int getNbSubtrees() {
+        return nbSubtrees.get();
+    }
+
+    @Override
+    public void computeSolution(final PlanningRequest planningRequest) {
+        prepare(planningRequest);
+        nbSubtrees.set(0);
+        pool.invoke(new Subtree(new int[]{start}, 0));
+        finish();
+    }
+
+    /**
+     * Class Subtree. The task exploring the tours starting with a path.
+     */
+    private final class Subtree extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * the path every explored tour starts with.
+         */
+        private final int[] prefix;
+        /**
+         * the cost of the path.
+         */
+        private final float prefixCost;
+
+        /**
+         * @param prefix     the path every explored tour starts with
+         * @param prefixCost the cost of the path
+         */
+        Subtree(final int[] prefix, final float prefixCost) {
+            this.prefix = prefix;
+            this.prefixCost = prefixCost;
+        }
+
+        @Override
+        protected void compute() {
+            if (isTimeOut()) {
+                return;
+            }
+            int depth = prefix.length;
+            Search search = new Search();
+            for (int i = 0; i < depth; i++) {
+                search.enter(i, prefix[i]);
+            }
+            if (depth >= SPLIT_DEPTH || n - depth < MIN_SPLIT_SIZE) {
+                search.branchAndBound(depth, prefixCost);
+                addNodes(search);
+                nbSubtrees.incrementAndGet();
+                return;
+            }
+            search.nbNodes++;
+            boolean promising = search.isPromising(depth, prefixCost);
+            addNodes(search);
+            if (!promising) {
+                return;
+            }
+            int last = prefix[depth - 1];
+            int nbCandidates = search.fillCandidates(depth);
+            List<Subtree> children = new ArrayList<>(nbCandidates);
+            for (int i = 0; i < nbCandidates; i++) {
+                int next = search.candidates[depth][i];
+                int[] childPrefix = new int[depth + 1];
+                System.arraycopy(prefix, 0, childPrefix, 0, depth);
+                childPrefix[depth] = next;
+                children.add(new Subtree(childPrefix,
+                        prefixCost + costs[last * n + next]));
+            }
+            invokeAll(children);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.graphs.MatrixGraph;
+import observer.Observer;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Class ParallelTempering. Simulated annealing on several replicas at once,
+ * one per core, each at its own fixed temperature.
+ * Each replica has its own tour and its own random generator, so the
+ * replicas run a round of steps in parallel without sharing anything but
+ * the incumbent, the global best tour, whose cost is read and lowered
+ * without locking.
+ * Between two rounds, neighbouring temperatures exchange their replicas
+ * with the Metropolis probability of the swap: the cold replicas refine
+ * the good tours while the hot ones keep leaving their local minima, and
+ * a tour reaching a better minimum at a high temperature moves down the
+ * ladder. Exchanging is swapping two temperatures, so no tour is copied
+ * and, as no replica runs between the rounds, no lock is needed.
+ * The time limit is in milliseconds.
+ * @see SimulatedAnnealing
+ */
+public class ParallelTempering extends TemplateTSP {
+    /**
+     * the minimal number of replicas, whatever the number of cores.
+     */
+    static final int MIN_REPLICAS = 4;
+    /**
+     * the number of steps of each replica between two exchanges.
+     */
+    private static final int STEPS_PER_ROUND = 2000;
+    /**
+     * the ratio of the hottest temperature to the coldest one.
+     */
+    private static final float TEMPERATURE_RANGE = 1000;
+    /**
+     * the number of moves drawn to choose the hottest temperature.
+     */
+    private static final int CALIBRATION_DRAWS = 1000;
+
+    /**
+     * the pool running the replicas.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * the number of replicas.
+     */
+    private final int nbReplicas;
+    /**
+     * the random generator, from which the replicas split their own.
+     */
+    private SplittableRandom random = new SplittableRandom();
+    /**
+     * the graph, as a matrix.
+     */
+    private MatrixGraph matrix;
+    /**
+     * the best tour found by any replica.
+     */
+    private Incumbent incumbent;
+    /**
+     * the temperatures of the last search, the coldest first.
+     */
+    private float[] temperatures = new float[0];
+    /**
+     * the number of exchanges tried by the last search.
+     */
+    private long nbExchanges;
+    /**
+     * the number of exchanges accepted by the last search.
+     */
+    private long nbAccepted;
+
+    /**
+     * constructor with observer, on the common pool.
+     *
+     * @param mainWindow the main observer
+     */
+    public ParallelTempering(final Observer mainWindow) {
+        this(ForkJoinPool.commonPool());
+        addObserver(mainWindow);
+    }
+
+    /**
+     * default constructor, on the common pool.
+     */
+    public ParallelTempering() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool the pool running the replicas, one per thread of the pool
+     */
+    public ParallelTempering(final ForkJoinPool pool) {
+        this.pool = pool;
+        this.nbReplicas = Math.max(MIN_REPLICAS, pool.getParallelism());
+    }
+
+    /**
+     * Seed the random generator, to reproduce the replicas of a search.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(final long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @return the number of replicas
+     */
+    public int getNbReplicas() {
+        return nbReplicas;
+    }
+
+    /**
+     * @return a copy of the temperatures of the last search, the coldest
+     * first
+     */
+    float[] getTemperatures() {
+        return temperatures.clone();
+    }
+
+    /**
+     * @return the share of the exchanges of the last search that were
+     * accepted, 0 if none was tried
+     */
+    public double getExchangeRate() {
+        return nbExchanges == 0 ? 0 : (double) nbAccepted / nbExchanges;
+    }
+
+    @Override
+    public void computeSolution(final PlanningRequest planningRequest) {
+        matrix = MatrixGraph.of(g);
+        PrecedenceConstraints precedences =
+                new PrecedenceConstraints(matrix, planningRequest);
+        incumbent = getSharedIncumbent() != null
+                ? getSharedIncumbent() : new Incumbent();
+        nbExchanges = 0;
+        nbAccepted = 0;
+
+        // ladder[k] is the replica at the k-th coldest temperature
+        Replica[] ladder = new Replica[nbReplicas];
+        for (int k = 0; k < nbReplicas; k++) {
+            SplittableRandom replicaRandom = random.split();
+            ladder[k] = new Replica(new RandomMoves(
+                    new TourMoves(matrix,
+                            precedences.randomTour(replicaRandom)),
+                    precedences, replicaRandom));
+            ladder[k].offerTour();
+        }
+        temperatures = temperatures(ladder[0].moves);
+        for (int k = 0; k < nbReplicas; k++) {
+            ladder[k].temperature = temperatures[k];
+        }
+
+        for (int round = 0;
+             System.currentTimeMillis() - startTime <= timeLimit
+                     && !shouldStop(); round++) {
+            runRound(ladder);
+            exchange(ladder, round % 2);
+        }
+
+        int[] bestTour = incumbent.getTour();
+        bestSolCost = incumbent.getCost();
+        if (bestTour != null) {
+            bestSol = toIds(bestTour);
+        }
+    }
+
+    /**
+     * Choose the temperatures from the moves of a random tour: the hottest
+     * one accepts the median uphill move with a probability of
+     * <code>1/e</code>, and the others decrease geometrically.
+     *
+     * @param moves the moves of a random tour
+     * @return the temperatures, the coldest first
+     */
+    private float[] temperatures(final RandomMoves moves) {
+        float[] uphill = new float[CALIBRATION_DRAWS];
+        int nbUphill = 0;
+        for (int i = 0; i < CALIBRATION_DRAWS; i++) {
+            float delta = moves.draw();
+            if (delta > 0 && delta < MatrixGraph.NO_EDGE) {
+                uphill[nbUphill++] = delta;
+            }
+        }
+        float hottest = 1;
+        if (nbUphill > 0) {
+            Arrays.sort(uphill, 0, nbUphill);
+            hottest = uphill[nbUphill / 2];
+        }
+        float[] temperatures = new float[nbReplicas];
+        for (int k = 0; k < nbReplicas; k++) {
+            temperatures[k] = hottest / (float) Math.pow(TEMPERATURE_RANGE,
+                    (double) (nbReplicas - 1 - k) / (nbReplicas - 1));
+        }
+        return temperatures;
+    }
+
+    /**
+     * Run a round of steps on every replica, in parallel.
+     *
+     * @param ladder the replicas
+     */
+    private void runRound(final Replica[] ladder) {
+        try {
+            pool.submit(() -> Arrays.stream(ladder).parallel()
+                    .forEach(Replica::run)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Try to exchange the replicas of neighbouring temperatures, the pairs
+     * starting at an even or an odd temperature in turn so that each
+     * replica takes part in one exchange at most.
+     * The replicas of temperatures <code>t1 &lt; t2</code> and costs
+     * <code>c1, c2</code> are exchanged with the probability
+     * <code>min(1, exp((1/t1 - 1/t2) * (c1 - c2)))</code>, always when the
+     * hotter one is cheaper.
+     *
+     * @param ladder the replicas, the coldest first
+     * @param parity the first temperature of the pairs
+     */
+    private void exchange(final Replica[] ladder, final int parity) {
+        for (int k = parity; k + 1 < nbReplicas; k += 2) {
+            Replica cold = ladder[k];
+            Replica hot = ladder[k + 1];
+            double logRatio = (1.0 / temperatures[k]
+                    - 1.0 / temperatures[k + 1])
+                    * ((double) cold.getCost() - hot.getCost());
+            nbExchanges++;
+            if (logRatio >= 0 || random.nextDouble() < Math.exp(logRatio)) {
+                nbAccepted++;
+                ladder[k] = hot;
+                ladder[k + 1] = cold;
+                hot.temperature = temperatures[k];
+                cold.temperature = temperatures[k + 1];
+            }
+        }
+    }
+
+    /**
+     * @param tour a tour, as vertex indices
+     * @return the tour, as vertex ids
+     */
+    private String[] toIds(final int[] tour) {
+        String[] ids = new String[tour.length];
+        for (int i = 0; i < tour.length; i++) {
+            ids[i] = matrix.getId(tour[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Class Replica. A tour annealed at a fixed temperature, set between
+     * the rounds.
+     */
+    private final class Replica {
+        /**
+         * the moves drawn on the tour of the replica.
+         */
+        private final RandomMoves moves;
+        /**
+         * the buffer the tour is copied in to be offered.
+         */
+        private final int[] buffer;
+        /**
+         * the current temperature.
+         */
+        private float temperature;
+
+        /**
+         * @param moves the moves drawn on the tour of the replica
+         */
+        Replica(final RandomMoves moves) {
+            this.moves = moves;
+            this.buffer = new int[moves.getTour().size()];
+        }
+
+        /**
+         * @return the cost of the tour of the replica
+         */
+        float getCost() {
+            return moves.getTour().getCost();
+        }
+
+        /**
+         * Run a round of Metropolis steps at the current temperature.
+         */
+        void run() {
+            SplittableRandom replicaRandom = moves.getRandom();
+            for (int step = 0; step < STEPS_PER_ROUND; step++) {
+                float delta = moves.draw(SimulatedAnnealing.MOVE_ATTEMPTS);
+                if (Float.isNaN(delta)) {
+                    continue;
+                }
+                if (delta < 0 || replicaRandom.nextDouble()
+                        < Math.exp(-delta / temperature)) {
+                    moves.apply();
+                    if (delta < 0 && getCost() < incumbent.getCost()) {
+                        offerTour();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Offer the tour of the replica as the global best.
+         */
+        void offerTour() {
+            TourMoves tour = moves.getTour();
+            float cost = tour.getCost();
+            tour.copyTo(buffer);
+            if (incumbent.offer(buffer, cost) && isSnapshotDue(cost)) {
+                publishSnapshot(toIds(buffer), cost);
+            }
+        }
+    }
+}
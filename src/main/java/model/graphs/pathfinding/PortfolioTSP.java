@@ -0,0 +1,217 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.graphs.MatrixGraph;
+import observer.Observer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Class PortfolioTSP. Races several algorithms on the same graph, each on
+ * its own thread, and keeps the best tour any of them finds.
+ * The algorithms share one incumbent: the tours of the heuristics lower
+ * the cost the exact algorithms prune against, and the exact algorithms
+ * stop the race as soon as one of them proves its tour optimal.
+ * The time limit is the deadline of the race, in milliseconds. Each
+ * algorithm is given its own budget, since the simulated annealing counts
+ * iterations where the others count milliseconds; every algorithm stops
+ * at the deadline anyway.
+ */
+public class PortfolioTSP extends TemplateTSP {
+    /**
+     * the time between two checks of the cancellation while waiting.
+     */
+    private static final long POLL_PERIOD = 50;
+    /**
+     * the budget of an algorithm that runs until the deadline of the race.
+     */
+    public static final int UNTIL_DEADLINE = -1;
+    /**
+     * the default number of iterations of the simulated annealing.
+     */
+    public static final int ANNEALING_ITERATIONS = 100000;
+
+    /**
+     * the factories of the racing algorithms, each search using new ones.
+     */
+    private final List<Supplier<TemplateTSP>> solvers;
+    /**
+     * the limit given to each racing algorithm, or UNTIL_DEADLINE.
+     */
+    private final int[] budgets;
+    /**
+     * true if the last search proved its tour optimal.
+     */
+    private boolean provenOptimal;
+
+    /**
+     * constructor with observer, racing branch and bound and simulated
+     * annealing.
+     *
+     * @param mainWindow          the main observer
+     * @param annealingIterations the number of iterations of the simulated
+     *                            annealing
+     */
+    public PortfolioTSP(final Observer mainWindow,
+                        final int annealingIterations) {
+        this(annealingIterations);
+        addObserver(mainWindow);
+    }
+
+    /**
+     * constructor with observer, racing branch and bound and simulated
+     * annealing for ANNEALING_ITERATIONS iterations.
+     *
+     * @param mainWindow the main observer
+     */
+    public PortfolioTSP(final Observer mainWindow) {
+        this(mainWindow, ANNEALING_ITERATIONS);
+    }
+
+    /**
+     * default constructor, racing branch and bound and simulated annealing
+     * for ANNEALING_ITERATIONS iterations.
+     */
+    public PortfolioTSP() {
+        this(ANNEALING_ITERATIONS);
+    }
+
+    /**
+     * racing branch and bound, until the deadline, and simulated annealing.
+     *
+     * @param annealingIterations the number of iterations of the simulated
+     *                            annealing
+     */
+    public PortfolioTSP(final int annealingIterations) {
+        this(Arrays.asList(BranchAndBound::new, SimulatedAnnealing::new),
+                new int[]{UNTIL_DEADLINE, annealingIterations});
+    }
+
+    /**
+     * @param solvers the factories of the racing algorithms, all running
+     *                until the deadline
+     */
+    public PortfolioTSP(final List<Supplier<TemplateTSP>> solvers) {
+        this(solvers, untilDeadline(solvers.size()));
+    }
+
+    /**
+     * @param solvers the factories of the racing algorithms
+     * @param budgets the limit given to the <code>searchSolution</code> of
+     *                each algorithm, or UNTIL_DEADLINE
+     */
+    public PortfolioTSP(final List<Supplier<TemplateTSP>> solvers,
+                        final int[] budgets) {
+        if (budgets.length != solvers.size()) {
+            throw new IllegalArgumentException(solvers.size()
+                    + " solvers but " + budgets.length + " budgets");
+        }
+        this.solvers = new ArrayList<>(solvers);
+        this.budgets = budgets.clone();
+    }
+
+    private static int[] untilDeadline(final int nbSolvers) {
+        int[] budgets = new int[nbSolvers];
+        Arrays.fill(budgets, UNTIL_DEADLINE);
+        return budgets;
+    }
+
+    @Override
+    public boolean isProvenOptimal() {
+        return provenOptimal;
+    }
+
+    @Override
+    public void computeSolution(final PlanningRequest planningRequest) {
+        provenOptimal = false;
+        MatrixGraph matrix = MatrixGraph.of(g);
+        Incumbent incumbent = new Incumbent();
+        List<TemplateTSP> racers = new ArrayList<>(solvers.size());
+        for (Supplier<TemplateTSP> solver : solvers) {
+            TemplateTSP racer = solver.get();
+            racer.shareIncumbent(incumbent);
+            racer.setDeadline(startTime + timeLimit);
+            // the improving tours of every racer are tours of the race
+            racer.addObserver((observable, arg) -> {
+                if (arg instanceof TourSnapshot) {
+                    TourSnapshot snapshot = (TourSnapshot) arg;
+                    publishSnapshot(snapshot.getOrder(), snapshot.getCost());
+                }
+            });
+            racer.setSnapshotPeriod(getSnapshotPeriod());
+            racers.add(racer);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                racers.size(), runnable -> {
+                    Thread thread = new Thread(runnable, "tsp-portfolio");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        ExecutorCompletionService<TemplateTSP> race =
+                new ExecutorCompletionService<>(executor);
+        for (int i = 0; i < racers.size(); i++) {
+            TemplateTSP racer = racers.get(i);
+            int budget = budgets[i] == UNTIL_DEADLINE ? timeLimit
+                    : budgets[i];
+            race.submit(() -> {
+                racer.searchSolution(budget, matrix, planningRequest);
+                return racer;
+            });
+        }
+        try {
+            int finished = 0;
+            while (finished < racers.size() && !provenOptimal
+                    && !shouldStop()) {
+                Future<TemplateTSP> result =
+                        race.poll(POLL_PERIOD, TimeUnit.MILLISECONDS);
+                if (result != null) {
+                    finished++;
+                    provenOptimal = isProvenOptimal(result);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (TemplateTSP racer : racers) {
+                racer.cancel();
+            }
+            executor.shutdown();
+        }
+
+        // the tour found by any racer, on the indices of the shared matrix
+        int[] bestTour = incumbent.getTour();
+        bestSolCost = incumbent.getCost();
+        if (bestTour != null) {
+            for (int i = 0; i < bestTour.length; i++) {
+                bestSol[i] = matrix.getId(bestTour[i]);
+            }
+        }
+    }
+
+    /**
+     * @param result a finished racer
+     * @return true if the racer proved its tour optimal, false if it
+     * didn't or failed
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private static boolean isProvenOptimal(final Future<TemplateTSP> result)
+            throws InterruptedException {
+        try {
+            return result.get().isProvenOptimal();
+        } catch (ExecutionException e) {
+            System.err.println("A solver of the portfolio failed: "
+                    + e.getCause());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.Request;
+import model.graphs.MatrixGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Class PrecedenceConstraints. The pickup before delivery constraints of a
+ * planning request, on the vertex indices of a MatrixGraph.
+ * Each vertex knows its partners: the pickups that must be visited before
+ * it and the deliveries that must be visited after it, so that the
+ * positions where it may go in a tour are read from the positions of its
+ * partners only.
+ * A request whose pickup and delivery are the same intersection, or whose
+ * delivery is the depot, can't be ordered and is ignored.
+ */
+public class PrecedenceConstraints {
+    /**
+     * the index of the depot.
+     */
+    private final int start;
+    /**
+     * for each vertex, the pickups that must be visited before it.
+     */
+    private final int[][] pickupsBefore;
+    /**
+     * for each vertex, the deliveries that must be visited after it.
+     */
+    private final int[][] deliveriesAfter;
+
+    /**
+     * @param graph           the graph of the points of interest
+     * @param planningRequest the planning request
+     */
+    public PrecedenceConstraints(final MatrixGraph graph,
+                                 final PlanningRequest planningRequest) {
+        int n = graph.getNbVertices();
+        start = graph.indexOf(planningRequest.getStartId());
+        List<List<Integer>> before = new ArrayList<>(n);
+        List<List<Integer>> after = new ArrayList<>(n);
+        for (int vertex = 0; vertex < n; vertex++) {
+            before.add(new ArrayList<>());
+            after.add(new ArrayList<>());
+        }
+        for (Request request : planningRequest.getRequests()) {
+            int pickup = graph.indexOf(request.getPickupId());
+            int delivery = graph.indexOf(request.getDeliveryId());
+            if (pickup < 0 || delivery < 0 || pickup == delivery
+                    || delivery == start || pickup == start) {
+                continue;
+            }
+            before.get(delivery).add(pickup);
+            after.get(pickup).add(delivery);
+        }
+        pickupsBefore = toArrays(before);
+        deliveriesAfter = toArrays(after);
+    }
+
+    private static int[][] toArrays(final List<List<Integer>> lists) {
+        int[][] arrays = new int[lists.size()][];
+        for (int vertex = 0; vertex < arrays.length; vertex++) {
+            List<Integer> list = lists.get(vertex);
+            arrays[vertex] = new int[list.size()];
+            for (int i = 0; i < list.size(); i++) {
+                arrays[vertex][i] = list.get(i);
+            }
+        }
+        return arrays;
+    }
+
+    /**
+     * @return the index of the depot
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int getNbVertices() {
+        return pickupsBefore.length;
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return the pickups that must be visited before the vertex
+     */
+    public int[] getPickupsBefore(final int vertex) {
+        return pickupsBefore[vertex];
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return the deliveries that must be visited after the vertex
+     */
+    public int[] getDeliveriesAfter(final int vertex) {
+        return deliveriesAfter[vertex];
+    }
+
+    /**
+     * @param pickup a vertex
+     * @return the delivery of the vertex if it is the pickup of a single
+     * delivery which has no other pickup, and neither has other partners:
+     * the pair can be moved alone; -1 otherwise
+     */
+    public int getPairedDelivery(final int pickup) {
+        if (deliveriesAfter[pickup].length != 1
+                || pickupsBefore[pickup].length != 0) {
+            return -1;
+        }
+        int delivery = deliveriesAfter[pickup][0];
+        if (pickupsBefore[delivery].length != 1
+                || deliveriesAfter[delivery].length != 0) {
+            return -1;
+        }
+        return delivery;
+    }
+
+    /**
+     * @param tour   a tour
+     * @param vertex a vertex of the tour
+     * @return the last position of the pickups of the vertex, 0 if it has
+     * none
+     */
+    public int lowerBound(final TourMoves tour, final int vertex) {
+        int bound = 0;
+        for (int pickup : pickupsBefore[vertex]) {
+            bound = Math.max(bound, tour.positionOf(pickup));
+        }
+        return bound;
+    }
+
+    /**
+     * @param tour   a tour
+     * @param vertex a vertex of the tour
+     * @return the first position of the deliveries of the vertex, the size
+     * of the tour if it has none
+     */
+    public int upperBound(final TourMoves tour, final int vertex) {
+        int bound = tour.size();
+        for (int delivery : deliveriesAfter[vertex]) {
+            bound = Math.min(bound, tour.positionOf(delivery));
+        }
+        return bound;
+    }
+
+    /**
+     * @param tour a tour
+     * @return true if every pickup is visited before its deliveries
+     */
+    public boolean isFeasible(final TourMoves tour) {
+        for (int vertex = 0; vertex < pickupsBefore.length; vertex++) {
+            if (lowerBound(tour, vertex) > tour.positionOf(vertex)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Draw a random tour that keeps the precedences, by repeatedly
+     * appending a random vertex among those whose pickups are all visited.
+     *
+     * @param random the random generator
+     * @return the tour, starting at the depot
+     */
+    public int[] randomTour(final SplittableRandom random) {
+        int n = pickupsBefore.length;
+        int[] tour = new int[n];
+        int[] missingPickups = new int[n];
+        int[] available = new int[n];
+        int nbAvailable = 0;
+        for (int vertex = 0; vertex < n; vertex++) {
+            missingPickups[vertex] = pickupsBefore[vertex].length;
+            if (vertex != start && missingPickups[vertex] == 0) {
+                available[nbAvailable++] = vertex;
+            }
+        }
+        tour[0] = start;
+        for (int position = 1; position < n; position++) {
+            if (nbAvailable == 0) {
+                throw new IllegalStateException(
+                        "The pickups and deliveries form a cycle");
+            }
+            int chosen = random.nextInt(nbAvailable);
+            int vertex = available[chosen];
+            available[chosen] = available[--nbAvailable];
+            tour[position] = vertex;
+            for (int delivery : deliveriesAfter[vertex]) {
+                if (--missingPickups[delivery] == 0) {
+                    available[nbAvailable++] = delivery;
+                }
+            }
+        }
+        return tour;
+    }
+}
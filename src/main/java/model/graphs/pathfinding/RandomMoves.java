@@ -0,0 +1,157 @@
+package model.graphs.pathfinding;
+
+import java.util.SplittableRandom;
+
+/**
+ * Class RandomMoves. Draws random relocate, swap and 2-opt moves of a tour
+ * among the moves that keep the precedences, and applies the last drawn
+ * one.
+ * The positions allowed for a vertex are bounded by the positions of its
+ * partners, so the moves are drawn inside these bounds instead of being
+ * drawn anywhere then rejected.
+ */
+class RandomMoves {
+    /**
+     * the tour the moves are drawn on.
+     */
+    private final TourMoves tour;
+    /**
+     * the pickup and delivery precedences.
+     */
+    private final PrecedenceConstraints precedences;
+    /**
+     * the random generator.
+     */
+    private final SplittableRandom random;
+    /**
+     * the kind of the drawn move: relocate, swap or 2-opt.
+     */
+    private int lastMove;
+    /**
+     * the first position of the drawn move.
+     */
+    private int lastI;
+    /**
+     * the second position of the drawn move.
+     */
+    private int lastJ;
+
+    /**
+     * @param tour        the tour the moves are drawn on
+     * @param precedences the pickup and delivery precedences
+     * @param random      the random generator
+     */
+    RandomMoves(final TourMoves tour,
+                final PrecedenceConstraints precedences,
+                final SplittableRandom random) {
+        this.tour = tour;
+        this.precedences = precedences;
+        this.random = random;
+    }
+
+    /**
+     * @return the tour the moves are drawn on
+     */
+    TourMoves getTour() {
+        return tour;
+    }
+
+    /**
+     * @return the random generator
+     */
+    SplittableRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * Draw a random move without applying it.
+     *
+     * @return the cost delta of the move, NaN if the drawn vertex can't
+     * move this way
+     */
+    float draw() {
+        int size = tour.size();
+        if (size < 3) {
+            return Float.NaN;
+        }
+        lastMove = random.nextInt(3);
+        lastI = random.nextInt(size - 1) + 1;
+        int vertex = tour.get(lastI);
+        switch (lastMove) {
+            case 0: {
+                // between its last pickup and its first delivery
+                int low = precedences.lowerBound(tour, vertex);
+                int high = precedences.upperBound(tour, vertex);
+                int count = high - low - 2;
+                if (count <= 0) {
+                    return Float.NaN;
+                }
+                lastJ = low + 1 + random.nextInt(count);
+                if (lastJ >= lastI) {
+                    lastJ++;
+                }
+                return tour.relocateDelta(lastI, lastJ);
+            }
+            case 1: {
+                // with a later vertex before its first delivery, which
+                // itself has no pickup after lastI
+                int count = precedences.upperBound(tour, vertex) - lastI - 1;
+                if (count <= 0) {
+                    return Float.NaN;
+                }
+                lastJ = lastI + 1 + random.nextInt(count);
+                if (precedences.lowerBound(tour, tour.get(lastJ)) >= lastI) {
+                    return Float.NaN;
+                }
+                return tour.swapDelta(lastI, lastJ);
+            }
+            default: {
+                // reversing must not put a delivery before its pickup, so
+                // the part stops before the first delivery of its vertices
+                int limit = precedences.upperBound(tour, vertex) - 1;
+                for (int k = lastI + 1; k <= limit; k++) {
+                    limit = Math.min(limit,
+                            precedences.upperBound(tour, tour.get(k)) - 1);
+                }
+                int count = limit - lastI;
+                if (count <= 0) {
+                    return Float.NaN;
+                }
+                lastJ = lastI + 1 + random.nextInt(count);
+                return tour.twoOptDelta(lastI, lastJ);
+            }
+        }
+    }
+
+    /**
+     * Draw a random move, with a few more draws when the drawn vertex is
+     * stuck between its partners, each draw being O(1).
+     *
+     * @param attempts the maximal number of draws
+     * @return the cost delta of the move, NaN if no draw could move
+     */
+    float draw(final int attempts) {
+        float delta = draw();
+        for (int retry = 1; retry < attempts && Float.isNaN(delta); retry++) {
+            delta = draw();
+        }
+        return delta;
+    }
+
+    /**
+     * Apply the last drawn move.
+     */
+    void apply() {
+        switch (lastMove) {
+            case 0:
+                tour.relocate(lastI, lastJ);
+                break;
+            case 1:
+                tour.swap(lastI, lastJ);
+                break;
+            default:
+                tour.twoOpt(lastI, lastJ);
+                break;
+        }
+    }
+}
@@ -1,21 +1,28 @@
 package model.graphs.pathfinding;
 
 import model.PlanningRequest;
-import model.Request;
+import model.graphs.MatrixGraph;
 import observer.Observer;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Random;
-import java.util.Set;
+import java.util.SplittableRandom;
 
 
 /**
  * Class SimulatedAnnealing. Represent the Simulated Annealing algorithm.
+ * The tour is a permutation of vertex indices of the MatrixGraph, changed
+ * in place by relocate, swap and 2-opt moves whose cost delta is computed
+ * from the changed edges only.
+ * @see TourMoves
  */
 public class SimulatedAnnealing extends TemplateTSP implements TSP {
-
+    /**
+     * the number of draws of a step before giving up moving.
+     */
+    static final int MOVE_ATTEMPTS = 9;
+    /**
+     * the number of steps between two checks of the stop condition.
+     */
+    static final int STOP_CHECK_PERIOD = 1024;
 
     /**
      * the initial temperature.
@@ -35,17 +42,29 @@ public class SimulatedAnnealing extends TemplateTSP implements TSP {
      */
     private final float beta0 = 0.0001f;
     /**
-     * the list of all delivery points.
+     * the graph, as a matrix.
      */
-    private List<String> deliveryPoints;
+    private MatrixGraph matrix;
     /**
-     * the list of all pickup points.
+     * the pickup and delivery precedences.
      */
-    private List<String> pickupPoints;
+    private PrecedenceConstraints precedences;
     /**
-     * the current generated permutation.
+     * the current tour.
      */
-    private String[] permutation;
+    private TourMoves tour;
+    /**
+     * the best tour found.
+     */
+    private int[] bestTour;
+    /**
+     * the random generator, shared by every step.
+     */
+    private SplittableRandom random = new SplittableRandom();
+    /**
+     * the moves drawn on the current tour.
+     */
+    private RandomMoves moves;
 
 
     /**
@@ -68,6 +87,15 @@ public class SimulatedAnnealing extends TemplateTSP implements TSP {
     public SimulatedAnnealing() {
     }
 
+    /**
+     * Seed the random generator, to reproduce a search.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(final long seed) {
+        random = new SplittableRandom(seed);
+    }
+
     @Override
     public void computeSolution(final PlanningRequest planningRequest) {
 
@@ -76,22 +104,17 @@ public class SimulatedAnnealing extends TemplateTSP implements TSP {
         }
 
         rejected = 0;
-        deliveryPoints = new ArrayList<>();
-        pickupPoints = new ArrayList<>();
-
-        List<Request> requests = planningRequest.getRequests();
-        for (Request request : requests) {
-            deliveryPoints.add(request.getDeliveryId());
-            pickupPoints.add(request.getPickupId());
-        }
+        matrix = MatrixGraph.of(g);
+        precedences = new PrecedenceConstraints(matrix, planningRequest);
 
         startTime = System.currentTimeMillis();
 
 
         float curCost = randomPermutation(planningRequest.getStartId());
 
-        bestSol = Arrays.copyOf(permutation, permutation.length);
-        bestSolCost = getPermutationCost();
+        bestTour = new int[tour.size()];
+        tour.copyTo(bestTour);
+        bestSolCost = curCost;
 
 
         //heat();
@@ -104,15 +127,23 @@ public class SimulatedAnnealing extends TemplateTSP implements TSP {
 
 
         int nbIter = 0;
+        int nbSteps = 0;
+        boolean stopped = false;
         final float minTemperature = 0.1f;
 
-        while (nbIter < timeLimit && temp > minTemperature) {
+        while (nbIter < timeLimit && temp > minTemperature && !stopped) {
 
             int totalRejected = 0;
             while (timer >= 0) {
                 curCost = saStep(curCost, temp);
                 totalRejected += rejected;
                 timer--;
+                // a level can last long, so cancellation is checked
+                // inside it
+                if (++nbSteps % STOP_CHECK_PERIOD == 0 && shouldStop()) {
+                    stopped = true;
+                    break;
+                }
             }
 
             temp *= alpha;
@@ -122,28 +153,26 @@ public class SimulatedAnnealing extends TemplateTSP implements TSP {
 
         }
 
-
+        bestSol = toIds(bestTour);
     }
 
     /**
-     * @return the cost of the current permutation
+     * @param vertices a tour, as vertex indices
+     * @return the tour, as vertex ids
      */
-    private float getPermutationCost() {
-        float cost = 0;
-
-        for (int i = 1; i < permutation.length; i++) {
-
-            cost += g.getCost(permutation[i - 1], permutation[i]);
+    private String[] toIds(final int[] vertices) {
+        String[] ids = new String[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            ids[i] = matrix.getId(vertices[i]);
         }
-        cost += g.getCost(permutation[permutation.length - 1], permutation[0]);
-        return cost;
+        return ids;
     }
 
 
     /**
-     * Simulated Annealing step : move a vertex randomly, check if it improved
-     * the route and accept it
-     * if it doesn't improve, accept it with a probability
+     * Simulated Annealing step : draw a random move, apply it if it
+     * improves the route
+     * or else with a probability
      * of <code>Math.exp(-deltaCost/temp))</code>.
      *
      * @param curCost the current cost of the permutation
@@ -151,34 +180,29 @@ public class SimulatedAnnealing extends TemplateTSP implements TSP {
      * @return the cost of the accepted permutation
      */
     float saStep(float curCost, final float temp) {
+        float deltaCost = moves.draw(MOVE_ATTEMPTS);
+        if (Float.isNaN(deltaCost)) {
+            rejected = 1;
+            return curCost;
+        }
 
-        float newCost;
-        float deltaCost;
-        String[] current = Arrays.copyOf(permutation, permutation.length);
-
-        randomMove();
-        newCost = getPermutationCost();
-        deltaCost = newCost - curCost;
-
-        if (deltaCost < 0) {
-            curCost = newCost;
-            //System.out.println(curCost);
+        if (deltaCost < 0
+                || random.nextDouble() < Math.exp(-deltaCost / temp)) {
+            moves.apply();
+            curCost = tour.getCost();
             if (curCost < bestSolCost) {
                 bestSolCost = curCost;
-                bestSol = Arrays.copyOf(permutation, permutation.length);
-                rejected = 0;
+                tour.copyTo(bestTour);
+                if (getSharedIncumbent() != null) {
+                    getSharedIncumbent().offer(bestTour, curCost);
+                }
+                if (isSnapshotDue(curCost)) {
+                    publishSnapshot(toIds(bestTour), curCost);
+                }
             }
+            rejected = 0;
         } else {
-            Random rd = new Random();
-            if (rd.nextFloat() < Math.exp(-deltaCost / temp)) {
-                curCost = newCost;
-                rejected = 0;
-            } else {
-                rejected = 1;
-                permutation = current;
-                //undo(permutation);
-
-            }
+            rejected = 1;
         }
         return curCost;
     }
@@ -187,7 +211,7 @@ public class SimulatedAnnealing extends TemplateTSP implements TSP {
      * increase the temperature so we have enough rejections.
      */
     private void heat() {
-        float curCost = getPermutationCost();
+        float curCost = tour.getCost();
         float temp = 1.0f;
         float prctReject = 1.0f;
         float rejectionThreshold = 0.05f;
@@ -211,127 +235,26 @@ public class SimulatedAnnealing extends TemplateTSP implements TSP {
     }
 
     /**
-     * swap 2 elements in an array.
+     * draw a random relocate, swap or 2-opt move among the moves that keep
+     * the precedences, without applying it.
      *
-     * @param a           the index of the first node to be swapped
-     * @param b           the index of the second node to be swapped
+     * @return the cost delta of the move, NaN if the drawn vertex can't
+     * move this way
+     * @see RandomMoves
      */
-    private void swap(final int a, final int b) {
-        String tmp = permutation[a];
-        String curr = permutation[b];
-        permutation[a] = curr;
-        permutation[b] = tmp;
+    public float randomMove() {
+        return moves.draw();
     }
 
-
     /**
-     * @param source the source index to me moved
-     * @param dest   the destination where the source should be moved
-     */
-    private void moveElement(final int source,
-                             final int dest) {
-
-        // Converting array to ArrayList
-        List<String> list = new ArrayList<>(
-                Arrays.asList(permutation));
-
-        // Does the move by removing the source and adding it at the
-        // destination index
-        list.add(dest, list.remove(source));
-
-
-        // Converting the list back to array
-        permutation = list.toArray(permutation);
-
-
-    }
-
-    /**
-     * move one vertex randomly across the tour.
-     */
-    public void randomMove() {
-
-        int size = permutation.length;
-        Random rd = new Random();
-
-
-        boolean isValid = false;
-        while (!isValid) {
-
-            int lastI = rd.nextInt(size - 1) + 1;
-            int lastJ = rd.nextInt(size - 1) + 1;
-
-            moveElement(lastI, lastJ);
-            if (checkIsValid() && lastJ != lastI) {
-                isValid = true;
-            }
-
-        }
-
-
-    }
-
-
-    /**
-     * @return true if the current generated permutation has all the pickup and
-     * delivery precedence respected
-     */
-    private boolean checkIsValid() {
-        for (int j = 0; j < permutation.length; j++) {
-
-            if (deliveryPoints.contains(permutation[j])) {
-                boolean isValid = false;
-                int deliveryIndex = deliveryPoints.indexOf(permutation[j]);
-                String pickup = pickupPoints.get(deliveryIndex);
-                for (int k = 0; k < j; k++) {
-
-                    if (permutation[k].equals(pickup)) {
-                        isValid = true;
-                        break;
-                    }
-                }
-                if (!isValid) {
-                    return false;
-                }
-
-            }
-        }
-        return true;
-    }
-
-    /**
-     * create a random permutation of the tour.
+     * create a random permutation of the tour that keeps the precedences.
      *
      * @param startNode the starting point
      * @return the cost of the generated permutation
      */
     public float randomPermutation(final String startNode) {
-
-        int size = g.getNbVertices();
-        permutation = new String[size];
-
-        permutation[0] = startNode;
-
-        Set<String> vertices = g.getVertices();
-
-        int i = 1;
-        for (String node : vertices) {
-            if (!node.equals(startNode)) {
-                permutation[i] = node;
-                i++;
-            }
-        }
-
-        Random rd = new Random();
-
-        do {
-            int b = rd.nextInt(size - 1) + 1;
-            for (int j = 1; j < permutation.length; j++) {
-                swap(j, b);
-            }
-        } while (!checkIsValid());
-
-
-        return getPermutationCost();
+        tour = new TourMoves(matrix, precedences.randomTour(random));
+        moves = new RandomMoves(tour, precedences, random);
+        return tour.getCost();
     }
 }
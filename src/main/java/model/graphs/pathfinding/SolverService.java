@@ -0,0 +1,132 @@
+package model.graphs.pathfinding;
+
+import model.DeliveryTour;
+import model.PlanningRequest;
+import model.graphs.Graph;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class SolverService. Runs the TSP searches on a bounded pool of daemon
+ * threads, each search with a budget and a deadline.
+ * The future of a search cancels the TSP itself, which stops at its next
+ * check instead of running until its time limit, and frees its thread.
+ */
+public class SolverService {
+    /**
+     * the executor running the searches.
+     */
+    private final ThreadPoolExecutor executor;
+    /**
+     * the searches running or waiting.
+     */
+    private final Set<SolverFuture> searches = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param nbThreads     the number of searches running at once
+     * @param queueCapacity the number of searches waiting for a thread
+     */
+    public SolverService(final int nbThreads, final int queueCapacity) {
+        executor = new ThreadPoolExecutor(nbThreads, nbThreads,
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "tsp-solver");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Start a search.
+     *
+     * @param tsp             the TSP
+     * @param budget          the limit given to <code>searchSolution</code>:
+     *                        iterations for the simulated annealing,
+     *                        milliseconds for the other algorithms
+     * @param timeout         the time after which the search stops, from
+     *                        now, in milliseconds
+     * @param g               the graph
+     * @param planningRequest the planning request
+     * @return the future of the best tour, null if none was found; its
+     * cancel() stops the search
+     * @throws RejectedExecutionException if too many searches are waiting
+     */
+    public Future<DeliveryTour> submit(final TemplateTSP tsp,
+                                       final int budget,
+                                       final long timeout,
+                                       final Graph g,
+                                       final PlanningRequest
+                                               planningRequest) {
+        tsp.setDeadline(System.currentTimeMillis() + timeout);
+        SolverFuture future = new SolverFuture(tsp, () -> {
+            tsp.searchSolution(budget, g, planningRequest);
+            String[] solution = tsp.getSolution();
+            if (solution == null || solution.length == 0
+                    || solution[0] == null) {
+                return null;
+            }
+            return tsp.getDeliveryTour();
+        });
+        searches.add(future);
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            searches.remove(future);
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Cancel the running and waiting searches, and stop the threads.
+     */
+    public void shutdown() {
+        for (SolverFuture search : searches) {
+            search.cancel(true);
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Class SolverFuture. The future of a search, cancelling its TSP.
+     */
+    private final class SolverFuture
+            extends FutureTask<DeliveryTour> {
+        /**
+         * the TSP searching.
+         */
+        private final TemplateTSP tsp;
+
+        /**
+         * @param tsp    the TSP searching
+         * @param search the search
+         */
+        SolverFuture(final TemplateTSP tsp,
+                     final Callable<DeliveryTour> search) {
+            super(search);
+            this.tsp = tsp;
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            tsp.cancel();
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            // a waiting search leaves the queue at once
+            executor.remove(this);
+            return cancelled;
+        }
+
+        @Override
+        protected void done() {
+            searches.remove(this);
+        }
+    }
+}
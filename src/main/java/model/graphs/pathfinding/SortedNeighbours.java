@@ -0,0 +1,129 @@
+package model.graphs.pathfinding;
+
+import model.graphs.MatrixGraph;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Class SortedNeighbours. For each vertex of a MatrixGraph, its successors
+ * by increasing cost of the edge towards them, and its predecessors by
+ * increasing cost of the edge from them.
+ * The cheapest edge towards the unvisited vertices of a search, given by
+ * the bitmask of the visited ones, is the first unvisited neighbour of the
+ * list: while many vertices are left it is found in a few steps, and
+ * visiting or unvisiting a vertex only flips its bit, with nothing to
+ * update.
+ */
+public class SortedNeighbours {
+    /**
+     * the number of vertices.
+     */
+    private final int n;
+    /**
+     * the cost matrix.
+     */
+    private final float[] costs;
+    /**
+     * the successors of each vertex, cheapest first, indexed by
+     * <code>vertex * (n - 1) + rank</code>.
+     */
+    private final int[] successors;
+    /**
+     * the predecessors of each vertex, cheapest first, indexed like
+     * <code>successors</code>.
+     */
+    private final int[] predecessors;
+
+    /**
+     * @param graph the graph
+     */
+    public SortedNeighbours(final MatrixGraph graph) {
+        n = graph.getNbVertices();
+        costs = graph.getCosts();
+        int width = Math.max(n - 1, 0);
+        successors = new int[n * width];
+        predecessors = new int[n * width];
+        Integer[] others = new Integer[width];
+        for (int vertex = 0; vertex < n; vertex++) {
+            final int current = vertex;
+            for (int other = 0, k = 0; other < n; other++) {
+                if (other != vertex) {
+                    others[k++] = other;
+                }
+            }
+            Arrays.sort(others, Comparator.comparingDouble(
+                    other -> costs[current * n + other]));
+            for (int k = 0; k < width; k++) {
+                successors[vertex * width + k] = others[k];
+            }
+            Arrays.sort(others, Comparator.comparingDouble(
+                    other -> costs[other * n + current]));
+            for (int k = 0; k < width; k++) {
+                predecessors[vertex * width + k] = others[k];
+            }
+        }
+    }
+
+    /**
+     * @param vertex a vertex
+     * @param rank   a rank, lower than the number of vertices minus one
+     * @return the successor of the vertex at this rank, the cheapest
+     * being at rank 0
+     */
+    public int getSuccessor(final int vertex, final int rank) {
+        return successors[vertex * (n - 1) + rank];
+    }
+
+    /**
+     * @param vertex a vertex
+     * @param rank   a rank, lower than the number of vertices minus one
+     * @return the predecessor of the vertex at this rank, the cheapest
+     * being at rank 0
+     */
+    public int getPredecessor(final int vertex, final int rank) {
+        return predecessors[vertex * (n - 1) + rank];
+    }
+
+    /**
+     * @param vertex  a vertex
+     * @param visited the mask of the visited vertices
+     * @param extra   a successor allowed even if visited, -1 if none
+     * @return the cost of the cheapest edge from <code>vertex</code> to an
+     * unvisited vertex or <code>extra</code>,
+     * <code>MatrixGraph.NO_EDGE</code> if there is none
+     */
+    public float cheapestOut(final int vertex, final long[] visited,
+                             final int extra) {
+        int width = n - 1;
+        for (int k = vertex * width, end = k + width; k < end; k++) {
+            int other = successors[k];
+            if (other == extra
+                    || (visited[other >> 6] & (1L << other)) == 0) {
+                return costs[vertex * n + other];
+            }
+        }
+        return MatrixGraph.NO_EDGE;
+    }
+
+    /**
+     * @param vertex  a vertex
+     * @param visited the mask of the visited vertices
+     * @param extra   a predecessor allowed even if visited, -1 if none
+     * @return the cost of the cheapest edge to <code>vertex</code> from an
+     * unvisited vertex or <code>extra</code>,
+     * <code>MatrixGraph.NO_EDGE</code> if there is none
+     */
+    public float cheapestIn(final int vertex, final long[] visited,
+                            final int extra) {
+        int width = n - 1;
+        for (int k = vertex * width, end = k + width; k < end; k++) {
+            int other = predecessors[k];
+            if (other == extra
+                    || (visited[other >> 6] & (1L << other)) == 0) {
+                return costs[other * n + vertex];
+            }
+        }
+        return MatrixGraph.NO_EDGE;
+    }
+}
@@ -0,0 +1,229 @@
+package model.graphs.pathfinding;
+
+import model.graphs.MatrixGraph;
+
+import java.util.Arrays;
+
+/**
+ * Class SpanningTreeBound. The rest of the tour is a path from the current
+ * vertex to the depot through the unvisited vertices, so a spanning tree
+ * of these vertices: its cost is at least the one of their minimum
+ * spanning tree, on the cheaper direction of each edge.
+ * The tree cost is computed on costs shifted by a penalty per vertex,
+ * which are zero here; the cost of a path shifted this way is known, so
+ * that any penalties keep it a lower bound.
+ * At the root the whole tour is bounded by a 1-tree: a spanning tree of
+ * the vertices but the depot, plus the two cheapest edges of the depot.
+ * Each thread evaluating the bound gets its own buffers once per search,
+ * so that an evaluation allocates nothing.
+ * @see LagrangianBound
+ */
+public class SpanningTreeBound implements LowerBound {
+    /**
+     * the number of vertices.
+     */
+    int n;
+    /**
+     * the index of the depot.
+     */
+    int start;
+    /**
+     * the cost of each edge in its cheaper direction, indexed by
+     * <code>i * n + j</code>.
+     */
+    float[] symmetricCosts;
+    /**
+     * the penalty of each vertex.
+     */
+    float[] penalties;
+    /**
+     * the bound of the whole tour.
+     */
+    float rootBound;
+    /**
+     * the buffers of the spanning trees, one per thread.
+     */
+    private ThreadLocal<Workspace> workspaces;
+
+    @Override
+    public void prepare(final MatrixGraph graph, final int start) {
+        this.n = graph.getNbVertices();
+        this.start = start;
+        symmetricCosts = new float[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                symmetricCosts[i * n + j] = Math.min(graph.getCost(i, j),
+                        graph.getCost(j, i));
+            }
+        }
+        penalties = new float[n];
+        rootBound = oneTree(new int[n]);
+        final int size = n;
+        workspaces = ThreadLocal.withInitial(() -> new Workspace(size));
+    }
+
+    /**
+     * @param i a vertex
+     * @param j another vertex
+     * @return the cost of the edge between them, shifted by their penalties
+     */
+    float cost(final int i, final int j) {
+        return symmetricCosts[i * n + j] + penalties[i] + penalties[j];
+    }
+
+    @Override
+    public float bound(final int currentVertex, final int depth,
+                       final long[] visited) {
+        if (currentVertex == start) {
+            return rootBound;
+        }
+        Workspace workspace = workspaces.get();
+        int[] vertices = workspace.vertices;
+        int size = 0;
+        float penalty = penalties[currentVertex] + penalties[start];
+        for (int vertex = 0; vertex < n; vertex++) {
+            if ((visited[vertex >> 6] & (1L << vertex)) == 0) {
+                vertices[size++] = vertex;
+                // an inner vertex of the path has two edges
+                penalty += 2 * penalties[vertex];
+            }
+        }
+        vertices[size++] = currentVertex;
+        vertices[size++] = start;
+        return spanningTree(workspace, size) - penalty;
+    }
+
+    /**
+     * Prim's algorithm on a subset of the vertices, without the edge
+     * between the current vertex and the depot, the two last ones, which
+     * the path never takes while vertices are left between them.
+     *
+     * @param workspace the buffers, holding the vertices
+     * @param size      the number of vertices
+     * @return the cost of a minimum spanning tree of the vertices
+     */
+    private float spanningTree(final Workspace workspace, final int size) {
+        int[] vertices = workspace.vertices;
+        float[] distance = workspace.distance;
+        boolean[] inTree = workspace.inTree;
+        Arrays.fill(distance, 0, size, MatrixGraph.NO_EDGE);
+        Arrays.fill(inTree, 0, size, false);
+        distance[0] = 0;
+        float total = 0;
+        for (int added = 0; added < size; added++) {
+            int nearest = -1;
+            for (int k = 0; k < size; k++) {
+                if (!inTree[k] && (nearest < 0
+                        || distance[k] < distance[nearest])) {
+                    nearest = k;
+                }
+            }
+            inTree[nearest] = true;
+            total += distance[nearest];
+            int vertex = vertices[nearest];
+            for (int k = 0; k < size; k++) {
+                if (!inTree[k] && !(k >= size - 2 && nearest >= size - 2)) {
+                    distance[k] = Math.min(distance[k],
+                            cost(vertex, vertices[k]));
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * The 1-tree of all the vertices, rooted at the depot.
+     *
+     * @param degrees receives the degree of each vertex in the 1-tree
+     * @return the cost of the 1-tree, minus twice the penalties, which is
+     * a lower bound of the cost of any tour
+     */
+    float oneTree(final int[] degrees) {
+        Arrays.fill(degrees, 0);
+        if (n < 3) {
+            return 0;
+        }
+        float[] distance = new float[n];
+        int[] parent = new int[n];
+        boolean[] inTree = new boolean[n];
+        Arrays.fill(distance, MatrixGraph.NO_EDGE);
+        Arrays.fill(parent, -1);
+        inTree[start] = true;
+        int first = start == 0 ? 1 : 0;
+        distance[first] = 0;
+        float total = 0;
+        for (int added = 1; added < n; added++) {
+            int nearest = -1;
+            for (int vertex = 0; vertex < n; vertex++) {
+                if (!inTree[vertex] && (nearest < 0
+                        || distance[vertex] < distance[nearest])) {
+                    nearest = vertex;
+                }
+            }
+            inTree[nearest] = true;
+            total += distance[nearest];
+            if (parent[nearest] >= 0) {
+                degrees[nearest]++;
+                degrees[parent[nearest]]++;
+            }
+            for (int vertex = 0; vertex < n; vertex++) {
+                float edge = cost(nearest, vertex);
+                if (!inTree[vertex] && edge < distance[vertex]) {
+                    distance[vertex] = edge;
+                    parent[vertex] = nearest;
+                }
+            }
+        }
+        // the two cheapest edges of the depot
+        int closest = -1;
+        int second = -1;
+        for (int vertex = 0; vertex < n; vertex++) {
+            if (vertex == start) {
+                continue;
+            }
+            if (closest < 0 || cost(start, vertex) < cost(start, closest)) {
+                second = closest;
+                closest = vertex;
+            } else if (second < 0
+                    || cost(start, vertex) < cost(start, second)) {
+                second = vertex;
+            }
+        }
+        total += cost(start, closest) + cost(start, second);
+        degrees[start] = 2;
+        degrees[closest]++;
+        degrees[second]++;
+        float penalty = 0;
+        for (float vertexPenalty : penalties) {
+            penalty += 2 * vertexPenalty;
+        }
+        return total - penalty;
+    }
+
+    /**
+     * Class Workspace. The buffers of the spanning trees of a thread.
+     */
+    private static final class Workspace {
+        /**
+         * the vertices of the tree.
+         */
+        private final int[] vertices;
+        /**
+         * the distance of each vertex to the tree.
+         */
+        private final float[] distance;
+        /**
+         * for each vertex, true once in the tree.
+         */
+        private final boolean[] inTree;
+
+        /**
+         * @param n the number of vertices
+         */
+        Workspace(final int n) {
+            vertices = new int[n];
+            distance = new float[n];
+            inTree = new boolean[n];
+        }
+    }
+}
@@ -4,6 +4,7 @@ import model.DeliveryTour;
 import model.PlanningRequest;
 import model.Segment;
 import model.graphs.Graph;
+import model.graphs.MatrixGraph;
 import observer.Observable;
 
 import java.util.ArrayList;
@@ -34,6 +35,133 @@ public abstract class TemplateTSP extends Observable implements TSP {
      * the starting time
      */
     protected long startTime;
+    /**
+     * the time after which the search stops, in milliseconds since the
+     * epoch.
+     */
+    private volatile long deadline = Long.MAX_VALUE;
+    /**
+     * true once the search is cancelled.
+     */
+    private volatile boolean cancelled;
+    /**
+     * the best tour shared with the other searches of a portfolio, null if
+     * the search runs alone.
+     */
+    private Incumbent sharedIncumbent;
+    /**
+     * the minimal time between two snapshots, in milliseconds, 0 if no
+     * snapshot is published.
+     */
+    private long snapshotPeriod;
+    /**
+     * the time of the last snapshot.
+     */
+    private long lastSnapshotTime;
+    /**
+     * the cost of the last snapshot.
+     */
+    private float lastSnapshotCost;
+    /**
+     * true if the tour found is improved by a local search.
+     */
+    private boolean polishing;
+
+    /**
+     * Publish the improving tours while searching: the observers are
+     * notified with a TourSnapshot when the best tour improves, at most
+     * once per <code>period</code>, and still with the final DeliveryTour
+     * at the end.
+     *
+     * @param period the minimal time between two snapshots, in
+     *               milliseconds, 0 to only notify the final tour
+     */
+    public void setSnapshotPeriod(final long period) {
+        this.snapshotPeriod = period;
+    }
+
+    /**
+     * @return the minimal time between two snapshots, in milliseconds, 0
+     * if no snapshot is published
+     */
+    protected long getSnapshotPeriod() {
+        return snapshotPeriod;
+    }
+
+    /**
+     * Improve the tour found by the algorithm with a LocalSearch, before
+     * notifying the observers. The tour never gets worse.
+     *
+     * @param polishing true to improve the tour found
+     */
+    public void setPolishing(final boolean polishing) {
+        this.polishing = polishing;
+    }
+
+    /**
+     * Stop the search at a given time, whatever its time limit, keeping
+     * the best tour found.
+     *
+     * @param deadline the time, in milliseconds since the epoch
+     */
+    public void setDeadline(final long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Stop the search as soon as possible, from any thread. A cancelled
+     * search doesn't notify its observers, and a cancelled TSP stays
+     * cancelled.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if the search was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Share the best tour with other searches on the same MatrixGraph: the
+     * algorithm offers its tours to the incumbent, and the exact ones
+     * prune against it.
+     *
+     * @param incumbent the shared best tour
+     */
+    void shareIncumbent(final Incumbent incumbent) {
+        this.sharedIncumbent = incumbent;
+    }
+
+    /**
+     * @return the best tour shared with other searches, null if the search
+     * runs alone
+     */
+    protected Incumbent getSharedIncumbent() {
+        return sharedIncumbent;
+    }
+
+    /**
+     * @return true if the last search proved its tour optimal, which only
+     * the exact algorithms can do, when they complete
+     */
+    public boolean isProvenOptimal() {
+        return false;
+    }
+
+    /**
+     * The check the algorithms make every few steps, cheap enough to be
+     * made often.
+     *
+     * @return true if the search must stop: it was cancelled, its thread
+     * was interrupted, or its deadline has passed
+     */
+    protected boolean shouldStop() {
+        return cancelled || Thread.currentThread().isInterrupted()
+                || System.currentTimeMillis() > deadline;
+    }
 
 
     /**
@@ -55,9 +183,45 @@ public abstract class TemplateTSP extends Observable implements TSP {
         this.timeLimit = timeLimit;
         this.g = g;
         bestSol = new String[g.getNbVertices()];
+        // the first improving tour is published at once
+        lastSnapshotTime = 0;
+        lastSnapshotCost = Float.MAX_VALUE;
 
         computeSolution(planningRequest);
-        notifyObservers(getDeliveryTour());
+        if (polishing && !cancelled) {
+            polish(planningRequest);
+        }
+        if (!cancelled) {
+            notifyObservers(getDeliveryTour());
+        }
+    }
+
+    /**
+     * Improve the best tour with a local search, keeping it if it is
+     * cheaper.
+     *
+     * @param planningRequest the planning request
+     */
+    private void polish(final PlanningRequest planningRequest) {
+        if (bestSol == null || bestSol.length == 0 || bestSol[0] == null) {
+            return;
+        }
+        MatrixGraph matrix = MatrixGraph.of(g);
+        int[] order = new int[bestSol.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = matrix.indexOf(bestSol[i]);
+        }
+        TourMoves tour = new TourMoves(matrix, order);
+        float cost = new LocalSearch(matrix,
+                new PrecedenceConstraints(matrix, planningRequest))
+                .improve(tour);
+        if (cost < bestSolCost) {
+            tour.copyTo(order);
+            for (int i = 0; i < order.length; i++) {
+                bestSol[i] = matrix.getId(order[i]);
+            }
+            bestSolCost = cost;
+        }
     }
 
     /**
@@ -68,31 +232,69 @@ public abstract class TemplateTSP extends Observable implements TSP {
     protected abstract void computeSolution(PlanningRequest
                                                     planningRequest);
 
+    /**
+     * @param cost the cost of a tour strictly better than the best one
+     * @return true if the tour should be published as a snapshot: anytime
+     * mode is on, it is cheaper than the last snapshot, the last one is
+     * old enough, and the search is not cancelled
+     */
+    protected boolean isSnapshotDue(final float cost) {
+        return snapshotPeriod > 0 && !cancelled && cost < lastSnapshotCost
+                && System.currentTimeMillis() - lastSnapshotTime
+                >= snapshotPeriod;
+    }
+
+    /**
+     * Notify the observers with a snapshot of an improving tour. The
+     * searching threads may call it at once.
+     *
+     * @param order the vertices of the tour, in order
+     * @param cost  the cost of the tour
+     */
+    protected synchronized void publishSnapshot(final String[] order,
+                                                final float cost) {
+        if (!isSnapshotDue(cost)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        lastSnapshotTime = now;
+        lastSnapshotCost = cost;
+        notifyObservers(new TourSnapshot(cost, order, now - startTime,
+                buildDeliveryTour(order, cost)));
+    }
+
     /**
      * @return a DeliveryTour object that contains, all the computed information
      */
     @Override
     public DeliveryTour getDeliveryTour() {
+        return buildDeliveryTour(bestSol, bestSolCost);
+    }
 
+    /**
+     * @param order the vertices of a tour, in order
+     * @param cost  the cost of the tour
+     * @return the DeliveryTour going through the vertices
+     */
+    private DeliveryTour buildDeliveryTour(final String[] order,
+                                           final float cost) {
         List<Segment> segmentList = new ArrayList<>();
 
-        int solutionSize = bestSol.length;
+        int solutionSize = order.length;
         for (int i = 1; i < solutionSize; i++) {
-            Edge edge = g.getEdge(bestSol[i - 1], bestSol[i]);
+            Edge edge = g.getEdge(order[i - 1], order[i]);
             List<Segment> edgeSegmentList = edge.getSegmentList();
             if (edgeSegmentList != null) {
                 segmentList.addAll(edgeSegmentList);
             }
         }
-        Edge edge = g.getEdge(bestSol[solutionSize - 1], bestSol[0]);
+        Edge edge = g.getEdge(order[solutionSize - 1], order[0]);
         List<Segment> edgeSegmentList = edge.getSegmentList();
         if (edgeSegmentList != null) {
             segmentList.addAll(edgeSegmentList);
         }
 
-        //System.out.println(bestSolCost);
-        //System.out.println(Arrays.toString(bestSol));
-        return new DeliveryTour(segmentList, bestSolCost, bestSol);
+        return new DeliveryTour(segmentList, cost, order);
     }
 
     /**
@@ -0,0 +1,308 @@
+package model.graphs.pathfinding;
+
+import model.graphs.MatrixGraph;
+
+/**
+ * Class TourMoves. A tour over the vertices of a MatrixGraph, with the
+ * relocate, Or-opt, swap and 2-opt moves.
+ * The cost delta of a move only reads the edges it changes, so it is
+ * computed in O(1) before deciding to apply it; 2-opt reverses a part of
+ * the tour, whose cost in both directions is read from prefix sums.
+ * Moves are applied in place and undone by applying their inverse.
+ * The vertex at position 0 never moves.
+ */
+public class TourMoves {
+    /**
+     * the number of vertices.
+     */
+    private final int n;
+    /**
+     * the cost matrix of the graph.
+     */
+    private final float[] costs;
+    /**
+     * the vertex at each position.
+     */
+    private final int[] tour;
+    /**
+     * the position of each vertex.
+     */
+    private final int[] positions;
+    /**
+     * <code>forward[k]</code> is the cost of the tour from position 0 to
+     * position k.
+     */
+    private final double[] forward;
+    /**
+     * <code>backward[k]</code> is the cost of going from position k back to
+     * position 0 against the tour.
+     */
+    private final double[] backward;
+
+    /**
+     * @param graph the graph
+     * @param tour  the initial tour, a permutation of the vertex indices;
+     *              it is copied
+     */
+    public TourMoves(final MatrixGraph graph, final int[] tour) {
+        this.n = graph.getNbVertices();
+        this.costs = graph.getCosts();
+        this.tour = new int[n];
+        this.positions = new int[n];
+        this.forward = new double[n];
+        this.backward = new double[n];
+        setTour(tour);
+    }
+
+    /**
+     * Replace the tour, without allocating.
+     *
+     * @param tour a permutation of the vertex indices; it is copied
+     */
+    public void setTour(final int[] tour) {
+        System.arraycopy(tour, 0, this.tour, 0, n);
+        for (int k = 0; k < n; k++) {
+            positions[tour[k]] = k;
+        }
+        update(0);
+    }
+
+    /**
+     * @return the number of vertices of the tour
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * @param position a position in the tour
+     * @return the vertex at this position
+     */
+    public int get(final int position) {
+        return tour[position];
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return the position of the vertex in the tour
+     */
+    public int positionOf(final int vertex) {
+        return positions[vertex];
+    }
+
+    /**
+     * @param destination the array receiving the tour, of length size()
+     */
+    public void copyTo(final int[] destination) {
+        System.arraycopy(tour, 0, destination, 0, n);
+    }
+
+    /**
+     * @return the cost of the tour, closing edge included
+     */
+    public float getCost() {
+        return (float) (forward[n - 1] + cost(tour[n - 1], tour[0]));
+    }
+
+    private float cost(final int origin, final int destination) {
+        return costs[origin * n + destination];
+    }
+
+    private int next(final int position) {
+        return position + 1 == n ? tour[0] : tour[position + 1];
+    }
+
+    /**
+     * @param from the position of the moved vertex, at least 1
+     * @param to   the position of the vertex after the move, at least 1
+     * @return the cost delta of moving the vertex at <code>from</code> to
+     * <code>to</code>, shifting the vertices in between
+     */
+    public float relocateDelta(final int from, final int to) {
+        if (from == to) {
+            return 0;
+        }
+        int vertex = tour[from];
+        int previous = tour[from - 1];
+        int following = next(from);
+        float removal = cost(previous, vertex) + cost(vertex, following)
+                - cost(previous, following);
+        // the neighbours of the vertex once moved, in the tour without it
+        int before;
+        int after;
+        if (from < to) {
+            before = tour[to];
+            after = next(to);
+        } else {
+            before = tour[to - 1];
+            after = tour[to];
+        }
+        float insertion = cost(before, vertex) + cost(vertex, after)
+                - cost(before, after);
+        return insertion - removal;
+    }
+
+    /**
+     * Move the vertex at <code>from</code> to <code>to</code>, shifting the
+     * vertices in between. <code>relocate(to, from)</code> undoes it.
+     *
+     * @param from the position of the moved vertex, at least 1
+     * @param to   the position of the vertex after the move, at least 1
+     */
+    public void relocate(final int from, final int to) {
+        int vertex = tour[from];
+        if (from < to) {
+            System.arraycopy(tour, from + 1, tour, from, to - from);
+        } else {
+            System.arraycopy(tour, to, tour, to + 1, from - to);
+        }
+        tour[to] = vertex;
+        int first = Math.min(from, to);
+        int last = Math.max(from, to);
+        for (int k = first; k <= last; k++) {
+            positions[tour[k]] = k;
+        }
+        update(first);
+    }
+
+    /**
+     * @param i     the first position of the moved part, at least 1
+     * @param j     the last position of the moved part, from i
+     * @param after the position of the vertex the part is moved after,
+     *              before i - 1 or after j
+     * @return the cost delta of moving the part between i and j, in the
+     * same direction, after the vertex at <code>after</code>
+     */
+    public float orOptDelta(final int i, final int j, final int after) {
+        int previous = tour[i - 1];
+        int following = next(j);
+        float removal = cost(previous, tour[i]) + cost(tour[j], following)
+                - cost(previous, following);
+        int before = tour[after];
+        int beforeNext = next(after);
+        float insertion = cost(before, tour[i]) + cost(tour[j], beforeNext)
+                - cost(before, beforeNext);
+        return insertion - removal;
+    }
+
+    /**
+     * Move the part between i and j, in the same direction, after the
+     * vertex at <code>after</code>, shifting the vertices in between.
+     *
+     * @param i     the first position of the moved part, at least 1
+     * @param j     the last position of the moved part, from i
+     * @param after the position of the vertex the part is moved after,
+     *              before i - 1 or after j
+     */
+    public void orOpt(final int i, final int j, final int after) {
+        int length = j - i + 1;
+        int[] part = new int[length];
+        System.arraycopy(tour, i, part, 0, length);
+        int first;
+        int last;
+        if (after > j) {
+            System.arraycopy(tour, j + 1, tour, i, after - j);
+            System.arraycopy(part, 0, tour, after - length + 1, length);
+            first = i;
+            last = after;
+        } else {
+            System.arraycopy(tour, after + 1, tour, after + 1 + length,
+                    i - after - 1);
+            System.arraycopy(part, 0, tour, after + 1, length);
+            first = after + 1;
+            last = j;
+        }
+        for (int k = first; k <= last; k++) {
+            positions[tour[k]] = k;
+        }
+        update(first);
+    }
+
+    /**
+     * @param a the position of a vertex, at least 1
+     * @param b the position of another vertex, at least 1
+     * @return the cost delta of swapping the two vertices
+     */
+    public float swapDelta(final int a, final int b) {
+        if (a == b) {
+            return 0;
+        }
+        int i = Math.min(a, b);
+        int j = Math.max(a, b);
+        int x = tour[i];
+        int y = tour[j];
+        int beforeX = tour[i - 1];
+        int afterY = next(j);
+        if (j == i + 1) {
+            return cost(beforeX, y) + cost(y, x) + cost(x, afterY)
+                    - cost(beforeX, x) - cost(x, y) - cost(y, afterY);
+        }
+        int afterX = tour[i + 1];
+        int beforeY = tour[j - 1];
+        return cost(beforeX, y) + cost(y, afterX)
+                + cost(beforeY, x) + cost(x, afterY)
+                - cost(beforeX, x) - cost(x, afterX)
+                - cost(beforeY, y) - cost(y, afterY);
+    }
+
+    /**
+     * Swap two vertices, which is its own inverse.
+     *
+     * @param a the position of a vertex, at least 1
+     * @param b the position of another vertex, at least 1
+     */
+    public void swap(final int a, final int b) {
+        int x = tour[a];
+        tour[a] = tour[b];
+        tour[b] = x;
+        positions[tour[a]] = a;
+        positions[tour[b]] = b;
+        update(Math.min(a, b));
+    }
+
+    /**
+     * @param i the first position of the reversed part, at least 1
+     * @param j the last position of the reversed part, after i
+     * @return the cost delta of reversing the tour between i and j
+     */
+    public float twoOptDelta(final int i, final int j) {
+        int before = tour[i - 1];
+        int after = next(j);
+        double removed = cost(before, tour[i]) + forward[j] - forward[i]
+                + cost(tour[j], after);
+        double added = cost(before, tour[j]) + backward[j] - backward[i]
+                + cost(tour[i], after);
+        return (float) (added - removed);
+    }
+
+    /**
+     * Reverse the tour between i and j, which is its own inverse.
+     *
+     * @param i the first position of the reversed part, at least 1
+     * @param j the last position of the reversed part, after i
+     */
+    public void twoOpt(final int i, final int j) {
+        for (int left = i, right = j; left < right; left++, right--) {
+            int vertex = tour[left];
+            tour[left] = tour[right];
+            tour[right] = vertex;
+        }
+        for (int k = i; k <= j; k++) {
+            positions[tour[k]] = k;
+        }
+        update(i);
+    }
+
+    /**
+     * Recompute the prefix sums from a position.
+     *
+     * @param first the first position whose incoming edge changed
+     */
+    private void update(final int first) {
+        int start = Math.max(first, 1);
+        for (int k = start; k < n; k++) {
+            forward[k] = forward[k - 1] + cost(tour[k - 1], tour[k]);
+            backward[k] = backward[k - 1] + cost(tour[k], tour[k - 1]);
+        }
+    }
+}
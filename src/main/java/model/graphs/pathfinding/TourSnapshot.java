@@ -0,0 +1,73 @@
+package model.graphs.pathfinding;
+
+import model.DeliveryTour;
+
+/**
+ * Class TourSnapshot. An improving tour published by a TSP while it is
+ * still searching, with the time it took to find it.
+ * The snapshot never changes: it keeps its own copy of the tour.
+ * @see TemplateTSP#setSnapshotPeriod(long)
+ */
+public class TourSnapshot {
+    /**
+     * the cost of the tour.
+     */
+    private final float cost;
+    /**
+     * the vertices of the tour, in order.
+     */
+    private final String[] order;
+    /**
+     * the time from the start of the search, in milliseconds.
+     */
+    private final long elapsedTime;
+    /**
+     * the tour, with its segments.
+     */
+    private final DeliveryTour deliveryTour;
+
+    /**
+     * @param cost         the cost of the tour
+     * @param order        the vertices of the tour, in order; they are
+     *                     copied
+     * @param elapsedTime  the time from the start of the search, in
+     *                     milliseconds
+     * @param deliveryTour the tour, with its segments
+     */
+    public TourSnapshot(final float cost, final String[] order,
+                        final long elapsedTime,
+                        final DeliveryTour deliveryTour) {
+        this.cost = cost;
+        this.order = order.clone();
+        this.elapsedTime = elapsedTime;
+        this.deliveryTour = deliveryTour;
+    }
+
+    /**
+     * @return the cost of the tour
+     */
+    public float getCost() {
+        return cost;
+    }
+
+    /**
+     * @return a copy of the vertices of the tour, in order
+     */
+    public String[] getOrder() {
+        return order.clone();
+    }
+
+    /**
+     * @return the time from the start of the search, in milliseconds
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * @return the tour, with its segments
+     */
+    public DeliveryTour getDeliveryTour() {
+        return deliveryTour;
+    }
+}
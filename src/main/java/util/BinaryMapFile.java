@@ -0,0 +1,286 @@
+package util;
+
+import model.Intersection;
+import model.Segment;
+import model.graphs.Key;
+import model.graphs.Plan;
+import model.graphs.RoadNetwork;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Class BinaryMapFile: compile a map into a binary file and load it back
+ * by memory-mapping it, without parsing xml nor computing projections.
+ *
+ * The file is a header followed by a payload:
+ * <ul>
+ *     <li>header: magic number, format version, CRC32 of the payload and
+ *     payload length</li>
+ *     <li>payload: bounds of the plan, node and edge counts, the string
+ *     table (intersection ids then street names), the projected latitudes
+ *     and longitudes, and the CSR topology of the road network</li>
+ * </ul>
+ * @see RoadNetwork
+ * @see XMLParser
+ */
+public class BinaryMapFile {
+    /**
+     * the magic number of a compiled map ("UBMP").
+     */
+    public static final int MAGIC = 0x55424D50;
+    /**
+     * the version of the format, to bump when the layout changes.
+     */
+    public static final int VERSION = 1;
+    /**
+     * the extension of compiled maps.
+     */
+    public static final String EXTENSION = ".ubm";
+
+    /**
+     * the size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+
+    /**
+     * @param xmlFile the xml map file
+     * @return the compiled map file next to it
+     */
+    public static File getCompiledFile(File xmlFile) {
+        String name = xmlFile.getName();
+        int extension = name.lastIndexOf('.');
+        if (extension > 0) {
+            name = name.substring(0, extension);
+        }
+        return new File(xmlFile.getAbsoluteFile().getParentFile(), name + EXTENSION);
+    }
+
+    /**
+     * Compile a map xml file into a binary map file.
+     * @param xmlPath the path of the map xml file
+     * @param binaryPath the path of the binary file to write
+     * @return the plan read from the xml file
+     */
+    public static Plan compile(String xmlPath, String binaryPath) throws Exception {
+        Plan plan = new XMLParser().readMap(xmlPath);
+        write(plan, new File(binaryPath));
+        return plan;
+    }
+
+    /**
+     * Write the road network of a plan into a binary map file.
+     * @param plan the plan to write
+     * @param file the file to write
+     */
+    public static void write(Plan plan, File file) throws IOException {
+        RoadNetwork network = plan.getRoadNetwork();
+        int nbNodes = network.getNbNodes();
+        int nbEdges = network.getNbEdges();
+        int nbNames = network.getNbStreetNames();
+
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(32 * nbNodes + 16 * nbEdges);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        payload.writeFloat(plan.getMaxLatitude());
+        payload.writeFloat(plan.getMinLatitude());
+        payload.writeFloat(plan.getMaxLongitude());
+        payload.writeFloat(plan.getMinLongitude());
+        payload.writeInt(nbNodes);
+        payload.writeInt(plan.getIntersectionMap().size());
+        payload.writeInt(nbEdges);
+        payload.writeInt(nbNames);
+
+        // String table
+        for (int node = 0; node < nbNodes; node++) {
+            writeString(payload, network.getId(node));
+        }
+        for (int name = 0; name < nbNames; name++) {
+            writeString(payload, network.getStreetName(name));
+        }
+
+        // Pre-projected coordinates
+        for (int node = 0; node < nbNodes; node++) {
+            payload.writeFloat(network.getLatitude(node));
+        }
+        for (int node = 0; node < nbNodes; node++) {
+            payload.writeFloat(network.getLongitude(node));
+        }
+
+        // Topology
+        for (int node = 0; node < nbNodes; node++) {
+            payload.writeInt(network.edgeStart(node));
+        }
+        payload.writeInt(nbEdges);
+        for (int edge = 0; edge < nbEdges; edge++) {
+            payload.writeInt(network.getTarget(edge));
+        }
+        for (int edge = 0; edge < nbEdges; edge++) {
+            payload.writeFloat(network.getLength(edge));
+        }
+        for (int edge = 0; edge < nbEdges; edge++) {
+            payload.writeInt(network.getNameIndex(edge));
+        }
+        payload.flush();
+
+        byte[] content = payloadBytes.toByteArray();
+        CRC32 checksum = new CRC32();
+        checksum.update(content, 0, content.length);
+
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(checksum.getValue());
+            output.writeInt(content.length);
+            output.write(content);
+        }
+    }
+
+    /**
+     * Load a binary map file by memory-mapping it.
+     * @param file the binary map file
+     * @return the plan, with its road network already built
+     * @throws Exception if the file is not a valid compiled map of the current version
+     */
+    public static Plan read(File file) throws Exception {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new Exception("Compiled map is truncated");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new Exception("Not a compiled map file");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new Exception("Unsupported compiled map version " + version);
+            }
+            long expectedChecksum = buffer.getLong();
+            int payloadLength = buffer.getInt();
+            if (payloadLength != channel.size() - HEADER_SIZE) {
+                throw new Exception("Compiled map is truncated");
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate());
+            if (checksum.getValue() != expectedChecksum) {
+                throw new Exception("Compiled map is corrupted");
+            }
+            return readPayload(buffer);
+        }
+    }
+
+    /**
+     * @param buffer the buffer, positioned at the start of the payload
+     * @return the plan described by the payload
+     */
+    private static Plan readPayload(ByteBuffer buffer) {
+        float maxLatitude = buffer.getFloat();
+        float minLatitude = buffer.getFloat();
+        float maxLongitude = buffer.getFloat();
+        float minLongitude = buffer.getFloat();
+        int nbNodes = buffer.getInt();
+        int nbIntersections = buffer.getInt();
+        int nbEdges = buffer.getInt();
+        int nbNames = buffer.getInt();
+
+        String[] nodeIds = new String[nbNodes];
+        for (int node = 0; node < nbNodes; node++) {
+            nodeIds[node] = readString(buffer);
+        }
+        String[] streetNames = new String[nbNames];
+        for (int name = 0; name < nbNames; name++) {
+            streetNames[name] = readString(buffer);
+        }
+
+        float[] latitudes = new float[nbNodes];
+        float[] longitudes = new float[nbNodes];
+        int[] offsets = new int[nbNodes + 1];
+        int[] targets = new int[nbEdges];
+        float[] lengths = new float[nbEdges];
+        int[] nameIndices = new int[nbEdges];
+        readFloats(buffer, latitudes);
+        readFloats(buffer, longitudes);
+        readInts(buffer, offsets);
+        readInts(buffer, targets);
+        readFloats(buffer, lengths);
+        readInts(buffer, nameIndices);
+
+        RoadNetwork network = new RoadNetwork(nodeIds, latitudes, longitudes,
+                offsets, targets, lengths, nameIndices, streetNames);
+
+        // The maps still used by the rest of the application
+        Map<String, Intersection> intersectionMap = new HashMap<>(nbIntersections * 2);
+        Map<String, List<String>> adjacentsMap = new HashMap<>(nbNodes * 2);
+        Map<Key, Segment> segmentMap = new HashMap<>(nbEdges * 2);
+        for (int node = 0; node < nbNodes; node++) {
+            String origin = nodeIds[node];
+            if (node < nbIntersections) {
+                intersectionMap.put(origin, new Intersection(origin, latitudes[node], longitudes[node]));
+            } else if (offsets[node] == offsets[node + 1]) {
+                continue;
+            }
+            List<String> adjacents = new ArrayList<>(offsets[node + 1] - offsets[node]);
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                String destination = nodeIds[targets[edge]];
+                adjacents.add(destination);
+                segmentMap.put(new Key(origin, destination),
+                        new Segment(origin, destination, lengths[edge], streetNames[nameIndices[edge]]));
+            }
+            adjacentsMap.put(origin, adjacents);
+        }
+
+        return new Plan(intersectionMap, adjacentsMap, segmentMap, network,
+                maxLatitude, minLatitude, maxLongitude, minLongitude);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void readFloats(ByteBuffer buffer, float[] values) {
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + 4 * values.length);
+    }
+
+    private static void readInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * values.length);
+    }
+
+    /**
+     * Compile a map from the command line.
+     * @param args the map xml file, and optionally the binary file to write
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: BinaryMapFile <map.xml> [<map" + EXTENSION + ">]");
+            return;
+        }
+        String output = args.length > 1 ? args[1] : getCompiledFile(new File(args[0])).getPath();
+        compile(args[0], output);
+        System.out.println("Compiled " + args[0] + " into " + output);
+    }
+}
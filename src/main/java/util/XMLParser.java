@@ -16,8 +16,15 @@ import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -72,7 +79,32 @@ public class XMLParser {
         return (float) Math.log(Math.tan((Math.PI/4)+(latRad/2)));
     }
 
+    /**
+     * Create a StAX reader on the file, with DTDs and external entities
+     * disabled to avoid attacks like XML External Entities (XXE).
+     * @param inputStream the stream of the file to read
+     * @return the streaming reader
+     */
+    private XMLStreamReader createStreamReader(InputStream inputStream) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory.createXMLStreamReader(inputStream);
+    }
+
+    /**
+     * @param reader the reader, positioned on a start element
+     * @param name the name of the attribute
+     * @return the value of the attribute, or an empty string if it is absent (like in DOM)
+     */
+    private String getAttribute(XMLStreamReader reader, String name){
+        String value = reader.getAttributeValue(null, name);
+        return value == null ? "" : value;
+    }
+
     /** Read a map xml file composed of intersections and segments.
+     * The file is streamed: intersections and segments go straight into the
+     * plan structures in a single pass, without building a DOM.
      *
      * @param filePath the path of the file to read
      * @return the graph resulting of the parsing. (to change to Plan)
@@ -81,7 +113,6 @@ public class XMLParser {
         if(!filePath.contains(".xml")){
             throw new Exception("Please only select .xml files");
         }
-        Document doc = parseXMLFile(filePath);
         Map<String, Intersection> intersectionMap = new HashMap<>();
         Map<String, List<String>> adjacentsMap = new HashMap<>();
         Map<Key,Segment> segmentMap = new HashMap<>();
@@ -91,77 +122,87 @@ public class XMLParser {
         float maxLongitude = Integer.MIN_VALUE;
         float minLongitude = Integer.MAX_VALUE;
 
-        // Get all intersections
-        NodeList intersections = doc.getElementsByTagName("intersection");
-        if(intersections.getLength() ==0){
-            throw new Exception("No intersections found in file");
-        }
-        for (int i = 0; i < intersections.getLength(); i++) {
-            Node node = intersections.item(i);
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-                Element element = (Element) node;
-                String id = element.getAttribute("id");
-                String latitudeString = element.getAttribute("latitude");
-                String longitudeString = element.getAttribute("longitude");
-
-                // If we lack important data we ignore the intersection
-                if(id.isEmpty() || latitudeString.isEmpty() || longitudeString.isEmpty()){
-                    continue;
+        int nbIntersections = 0;
+        int nbSegments = 0;
+
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(filePath))) {
+            XMLStreamReader reader = createStreamReader(inputStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    String tagName = reader.getLocalName();
+                    if (tagName.equals("intersection")) {
+                        nbIntersections++;
+                        String id = getAttribute(reader, "id");
+                        String latitudeString = getAttribute(reader, "latitude");
+                        String longitudeString = getAttribute(reader, "longitude");
+
+                        // If we lack important data we ignore the intersection
+                        if(id.isEmpty() || latitudeString.isEmpty() || longitudeString.isEmpty()){
+                            continue;
+                        }
+                        float latitude = getMercatorY(Float.parseFloat(latitudeString));
+                        float longitude = Float.parseFloat(longitudeString);
+
+
+                        maxLatitude = Math.max(maxLatitude,latitude);
+                        minLatitude = Math.min(minLatitude,latitude);
+                        maxLongitude= Math.max(maxLongitude,longitude);
+                        minLongitude= Math.min(minLongitude,longitude);
+
+                        Intersection intersection = new Intersection(id, latitude, longitude);
+                        intersectionMap.put(id, intersection);
+                        adjacentsMap.putIfAbsent(id,new ArrayList<>());
+                    } else if (tagName.equals("segment")) {
+                        nbSegments++;
+                        String origin = getAttribute(reader, "origin");
+                        String destination = getAttribute(reader, "destination");
+                        String lengthString = getAttribute(reader, "length");
+                        String name = getAttribute(reader, "name").isEmpty() ? "Unspecified" : getAttribute(reader, "name");
+
+                        // If we lack important data we ignore the segment
+                        if(origin.isEmpty() || destination.isEmpty() || lengthString.isEmpty()){
+                            continue;
+                        }
+
+                        float length = Float.parseFloat(lengthString);
+                        Segment segment = new Segment(origin,destination, length, name);
+                        // A segment may come before its origin intersection in the file
+                        adjacentsMap.computeIfAbsent(origin, key -> new ArrayList<>()).add(destination);
+
+                        Key key = new Key(origin,destination);
+                        segmentMap.put(key,segment);
+                    }
                 }
-                float latitude = getMercatorY(Float.parseFloat(latitudeString));
-                float longitude = Float.parseFloat(longitudeString);
-
-
-                maxLatitude = Math.max(maxLatitude,latitude);
-                minLatitude = Math.min(minLatitude,latitude);
-                maxLongitude= Math.max(maxLongitude,longitude);
-                minLongitude= Math.min(minLongitude,longitude);
-
-                Intersection intersection = new Intersection(id, latitude, longitude);
-                intersectionMap.put(id, intersection);
-                adjacentsMap.put(id,new ArrayList<>());
+            } finally {
+                reader.close();
             }
         }
 
+        if(nbIntersections==0){
+            throw new Exception("No intersections found in file");
+        }
         if(intersectionMap.isEmpty()){
             throw new Exception ("All intersections in the file lack important data");
         }
-
-        // Get all segments
-        NodeList segments = doc.getElementsByTagName("segment");
-        if(segments.getLength()==0){
+        if(nbSegments==0){
             throw new Exception("No segments found in file");
         }
-
-        for (int i = 0; i < segments.getLength(); i++) {
-            Node node = segments.item(i);
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-                Element element = (Element) node;
-                String origin = element.getAttribute("origin");
-                String destination = element.getAttribute("destination");
-                String lengthString = element.getAttribute("length");
-                String name = element.getAttribute("name").isEmpty() ? "Unspecified" : element.getAttribute("name");
-
-                // If we lack important data we ignore the segment
-                if(origin.isEmpty() || destination.isEmpty() || lengthString.isEmpty()){
-                    continue;
-                }
-
-                float length = Float.parseFloat(lengthString);
-                Segment segment = new Segment(origin,destination, length, name);
-                adjacentsMap.get(origin).add(destination);
-
-                Key key = new Key(origin,destination);
-                segmentMap.put(key,segment);
-            }
-
-        }
-
         if(segmentMap.isEmpty()){
             throw new Exception("All segments in the file lack important data");
         }
-        
+        // Segments may come before their intersections, so they are checked once the whole file is read
+        for(Segment segment : segmentMap.values()){
+            if(!intersectionMap.containsKey(segment.getOrigin()) || !intersectionMap.containsKey(segment.getDestination())){
+                throw new Exception("The segment from "+segment.getOrigin()+" to "+segment.getDestination()+" links an unknown intersection");
+            }
+        }
+
         Plan plan = new Plan(intersectionMap,adjacentsMap,segmentMap,maxLatitude,minLatitude,maxLongitude,minLongitude);
+        // Build the compressed road network once, at load time
+        plan.getRoadNetwork();
 
         return plan;
     }
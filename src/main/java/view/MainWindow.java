@@ -13,6 +13,7 @@ import model.PlanningRequest;
 import model.Request;
 import model.graphs.Plan;
 import model.graphs.pathfinding.TSP;
+import model.graphs.pathfinding.TourSnapshot;
 import observer.Observable;
 import observer.Observer;
 import view.plan.PlanPanel;
@@ -39,6 +40,9 @@ public class MainWindow extends javax.swing.JFrame implements Observer {
     // The currently highlighted on the summary panel
     private PointOfInterestPanel highlighted;
     private Map<String,PointOfInterestPanel> pointOfInterestsPanelMap;
+    // The last tour published by the TSP while searching, null once the
+    // final tour is received
+    private volatile TourSnapshot latestSnapshot;
 
     /**
      * Creates new form MainWindow.
@@ -233,21 +237,52 @@ public class MainWindow extends javax.swing.JFrame implements Observer {
 
     @Override
     public void update(Observable o, Object arg){
-        if(o instanceof TSP){
+        // The TSP notifies from its own thread, so the tours are shown on
+        // the event dispatch thread, in the order they were received
+        if(arg instanceof TourSnapshot){
+            latestSnapshot = (TourSnapshot) arg;
+            SwingUtilities.invokeLater(this::showLatestSnapshot);
+        } else if(o instanceof TSP){
+            latestSnapshot = null;
             DeliveryTour deliveryTour = (DeliveryTour) arg;
-            PlanningRequest planningRequest = planPanel.getPlanData().getPlanningRequest();
-            planPanel.getPlanData().setDeliveryTour(deliveryTour);
-            State calculatingTimesState = new CalculatingTimesState();
-            calculatingTimesState.execute(this);
-            planningRequest.calculateTimes(deliveryTour);
-            State readyState = new ReadyState();
-            readyState.execute(this);
-            planPanel.repaint();
-            showDelivery(planningRequest);
-            showSummary(planningRequest,deliveryTour);
+            SwingUtilities.invokeLater(() -> showDeliveryTour(deliveryTour));
         }
     }
 
+    /**
+     * Show the last tour found while the TSP is still searching, skipping
+     * the older ones still waiting to be shown.
+     */
+    private void showLatestSnapshot(){
+        TourSnapshot snapshot = latestSnapshot;
+        if(snapshot == null){
+            return;
+        }
+        latestSnapshot = null;
+        planPanel.getPlanData().setDeliveryTour(snapshot.getDeliveryTour());
+        planPanel.repaint();
+        setSystemInfoText(String.format(
+                "Calculating best route from requests... (best tour so far found in %.1f s)",
+                snapshot.getElapsedTime() / 1000.0));
+    }
+
+    /**
+     * Show the final tour computed by the TSP.
+     * @param deliveryTour the tour.
+     */
+    private void showDeliveryTour(DeliveryTour deliveryTour){
+        PlanningRequest planningRequest = planPanel.getPlanData().getPlanningRequest();
+        planPanel.getPlanData().setDeliveryTour(deliveryTour);
+        State calculatingTimesState = new CalculatingTimesState();
+        calculatingTimesState.execute(this);
+        planningRequest.calculateTimes(deliveryTour);
+        State readyState = new ReadyState();
+        readyState.execute(this);
+        planPanel.repaint();
+        showDelivery(planningRequest);
+        showSummary(planningRequest,deliveryTour);
+    }
+
     /**
      * update the plan.
      * @param planData the plan to update.
@@ -1,8 +1,8 @@
 package view.plan;
 
 import model.*;
-import model.graphs.Key;
 import model.graphs.Plan;
+import model.graphs.RoadNetwork;
 
 import java.awt.*;
 import java.awt.geom.*;
@@ -16,7 +16,6 @@ import java.util.Map;
 public class PlanDrawing {
 	private final Plan planData;
 	private final PlanPanel planPanel;
-	private final Map<Key, Segment> segmentMap;
 	private final Map<String, Intersection> intersectionMap;
 	private final Graphics g;
 	private final String selectedStreetName;
@@ -32,7 +31,6 @@ public class PlanDrawing {
 		this.planData = planData;
 		this.planPanel = panel;
 		this.g = g;
-		segmentMap = this.planData.getSegmentMap();
 		intersectionMap = this.planData.getIntersectionMap();
 		selectedStreetName = this.planData.getSelectedStreetName();
 	}
@@ -42,14 +40,26 @@ public class PlanDrawing {
 	 * If the user has selected a street, every segment composing it is drawn in blue.
 	 */
 	public void drawPlan(){
-		segmentMap.forEach((key, segment) -> {
-			if(!selectedStreetName.isEmpty() && segment.getName().equals(selectedStreetName)){
-				drawSegment(segment, Color.BLUE, 1);
-			}
-			else{
-				drawSegment(segment, Color.WHITE, 1);
+		RoadNetwork network = planData.getRoadNetwork();
+		Graphics2D g2 = (Graphics2D) g;
+		g2.setStroke(new BasicStroke(1));
+		for(int origin = 0; origin < network.getNbNodes(); origin++){
+			int xOrigin = planPanel.scaleXCoordinateToPlan(network.getLongitude(origin));
+			int yOrigin = planPanel.scaleYCoordinateToPlan(network.getLatitude(origin));
+			for(int edge = network.edgeStart(origin); edge < network.edgeEnd(origin); edge++){
+				int destination = network.getTarget(edge);
+				String name = network.getStreetName(network.getNameIndex(edge));
+				if(!selectedStreetName.isEmpty() && name.equals(selectedStreetName)){
+					g2.setColor(Color.BLUE);
+				}
+				else{
+					g2.setColor(Color.WHITE);
+				}
+				int xDestination = planPanel.scaleXCoordinateToPlan(network.getLongitude(destination));
+				int yDestination = planPanel.scaleYCoordinateToPlan(network.getLatitude(destination));
+				g2.draw(new Line2D.Float(xOrigin, yOrigin, xDestination, yDestination));
 			}
-		});
+		}
 	}
 
 	/**
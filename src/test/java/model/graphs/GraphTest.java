@@ -0,0 +1,50 @@
+package model.graphs;
+
+import model.graphs.pathfinding.Edge;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class GraphTest {
+    Graph g = new Graph();
+
+    @Before
+    public void setUp() {
+        g.addEdge("1", "2", new Edge("1", "2", null, 3.0f));
+        g.addEdge("2", "1", new Edge("2", "1", null, 1.0f));
+        g.addEdge("1", "4", new Edge("1", "4", null, 3.5f));
+        g.addEdge("4", "1", new Edge("4", "1", null, 4.0f));
+        g.addEdge("2", "4", new Edge("2", "4", null, 2.0f));
+        g.addEdge("4", "2", new Edge("4", "2", null, 3.0f));
+        g.calculateMinCost();
+    }
+
+    @Test
+    public void getMinCostOfSubgraphCache() {
+        // the hash codes of both lists XOR to 0
+        assertEquals(2.0f, g.getMinCost(Arrays.asList("4", "4")), 0);
+        assertEquals(1.0f, g.getMinCost(Arrays.asList("1", "1")), 0);
+        g.addEdge("4", "4", new Edge("4", "4", null, 0.5f));
+        assertEquals(0.5f, g.getMinCost(Arrays.asList("4")), 0);
+    }
+
+    @Test
+    public void getMinCostOfSubgraphFromEdges() {
+        Graph copy = new Graph(new HashSet<>(g.getVertices()),
+                new HashMap<>(g.getEdges()));
+        assertEquals(2.0f, copy.getMinCost(Arrays.asList("4")), 0);
+        assertEquals(1.0f, copy.getMinCost(Arrays.asList("1", "4")), 0);
+    }
+
+    @Test
+    public void getCost() {
+        assertEquals(3.5f, g.getCost("1", "4"), 0);
+        assertEquals(MatrixGraph.NO_EDGE, g.getCost("1", "1"), 0);
+        assertEquals(MatrixGraph.NO_EDGE, g.getCost("1", "3"), 0);
+    }
+}
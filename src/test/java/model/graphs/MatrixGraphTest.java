@@ -0,0 +1,53 @@
+package model.graphs;
+
+import model.graphs.pathfinding.Edge;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MatrixGraphTest {
+    Graph g = new Graph();
+
+    @Before
+    public void setUp() {
+        g.addEdge("1", "2", new Edge("1", "2", null, 3.0f));
+        g.addEdge("2", "1", new Edge("2", "1", null, 1.0f));
+        g.addEdge("1", "4", new Edge("1", "4", null, 3.5f));
+        g.addEdge("4", "1", new Edge("4", "1", null, 4.0f));
+        g.addEdge("2", "4", new Edge("2", "4", null, 2.0f));
+        g.addEdge("4", "2", new Edge("4", "2", null, 3.0f));
+        g.calculateMinCost();
+    }
+
+    @Test
+    public void ofGraph() {
+        MatrixGraph matrix = MatrixGraph.of(g);
+        assertEquals(g.getNbVertices(), matrix.getNbVertices());
+        assertEquals(g.getNbEdges(), matrix.getNbEdges());
+        assertEquals(g.getEdges(), matrix.getEdges());
+        assertEquals(g.getMinCost(), matrix.getMinCost(), 0);
+
+        int one = matrix.indexOf("1");
+        int four = matrix.indexOf("4");
+        assertEquals("4", matrix.getId(four));
+        assertEquals(3.5f, matrix.getCost(one, four), 0);
+        assertSame(g.getEdge("1", "4"), matrix.getEdge(one, four));
+        assertEquals(MatrixGraph.NO_EDGE, matrix.getCost(one, one), 0);
+        assertEquals(MatrixGraph.NO_EDGE, matrix.getCost("1", "1"), 0);
+        assertEquals(MatrixGraph.NO_EDGE, matrix.getCost("1", "3"), 0);
+        assertFalse(matrix.isArc("1", "1"));
+        assertEquals(-1, matrix.indexOf("3"));
+        assertSame(matrix, MatrixGraph.of(matrix));
+    }
+
+    @Test
+    public void getMinCostOfSubgraph() {
+        MatrixGraph matrix = MatrixGraph.of(g);
+        assertEquals(2.0f, matrix.getMinCost(Arrays.asList("4")), 0);
+        assertEquals(1.0f, matrix.getMinCost(Arrays.asList("1")), 0);
+        assertEquals(1.0f, matrix.getMinCost(Arrays.asList("1", "4")), 0);
+    }
+}
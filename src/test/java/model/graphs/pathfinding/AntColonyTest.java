@@ -0,0 +1,163 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.Request;
+import model.graphs.Graph;
+import model.graphs.MatrixGraph;
+import model.graphs.Plan;
+import org.junit.Before;
+import org.junit.Test;
+import util.XMLParser;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class AntColonyTest {
+    PlanningRequest planningRequest;
+    Graph g;
+
+    @Before
+    public void setUp() throws Exception {
+        XMLParser parser = new XMLParser();
+        Plan plan = parser.readMap("files/largeMap.xml");
+        planningRequest = parser.readRequests("files/requestsLarge9.xml", plan.getIntersectionMap());
+        plan.setPlanningRequest(planningRequest);
+        g = Graph.generateCompleteGraphFromPlan(plan);
+    }
+
+    @Test
+    public void searchSol() {
+        AntColony antColony = new AntColony();
+        antColony.setSeed(7);
+        TSP heldKarp = new HeldKarp();
+
+        antColony.searchSolution(2000,g,planningRequest);
+        heldKarp.searchSolution(20000,g,planningRequest);
+        assertEquals(heldKarp.getSolutionCost(),
+                antColony.getSolutionCost(), 0.01);
+        assertTrue(antColony.getNbIterations() > 0);
+        List<String> tour = Arrays.asList(antColony.getSolution());
+        for (Request request : planningRequest.getRequests()) {
+            assertTrue(tour.indexOf(request.getPickupId())
+                    <= tour.indexOf(request.getDeliveryId()));
+        }
+    }
+
+    @Test
+    public void deposit() {
+        MatrixGraph matrix = MatrixGraph.of(g);
+        PrecedenceConstraints precedences =
+                new PrecedenceConstraints(matrix, planningRequest);
+        SplittableRandom random = new SplittableRandom(7);
+        int n = matrix.getNbVertices();
+        AntColony antColony = new AntColony();
+        antColony.prepare(matrix, planningRequest);
+        // a tour, and a cheaper one
+        int[] first = precedences.randomTour(random);
+        int[] second = precedences.randomTour(random);
+        float firstCost = new TourMoves(matrix, first).getCost();
+        float secondCost = new TourMoves(matrix, second).getCost();
+        assertTrue(firstCost != secondCost);
+        int[] worse = firstCost > secondCost ? first : second;
+        int[] tour = firstCost > secondCost ? second : first;
+        float worseCost = Math.max(firstCost, secondCost);
+        antColony.resetPheromones(worseCost);
+        // the edges of the other tours evaporate
+        for (int i = 0; i < 10; i++) {
+            antColony.deposit(worse, worseCost);
+            assertBounded(antColony, n);
+        }
+
+        float[] before = new float[n * n];
+        for (int edge = 0; edge < n * n; edge++) {
+            before[edge] = antColony.getPheromone(edge / n, edge % n);
+        }
+        antColony.deposit(tour, new TourMoves(matrix, tour).getCost());
+        assertBounded(antColony, n);
+        int raised = 0;
+        for (int i = 0; i < n; i++) {
+            int origin = tour[i];
+            int destination = tour[(i + 1) % n];
+            float pheromone = antColony.getPheromone(origin, destination);
+            if (before[origin * n + destination]
+                    < antColony.getMaxPheromone()) {
+                assertTrue(pheromone > before[origin * n + destination]);
+                raised++;
+            } else {
+                assertEquals(antColony.getMaxPheromone(), pheromone, 0);
+            }
+        }
+        assertTrue(raised > 0);
+    }
+
+    /**
+     * @param antColony the colony
+     * @param n         the number of vertices
+     */
+    private void assertBounded(final AntColony antColony, final int n) {
+        assertTrue(antColony.getMinPheromone() > 0);
+        assertTrue(antColony.getMinPheromone()
+                < antColony.getMaxPheromone());
+        for (int origin = 0; origin < n; origin++) {
+            for (int destination = 0; destination < n; destination++) {
+                float pheromone =
+                        antColony.getPheromone(origin, destination);
+                assertTrue(pheromone >= antColony.getMinPheromone());
+                assertTrue(pheromone <= antColony.getMaxPheromone());
+            }
+        }
+    }
+
+    @Test
+    public void nextIsAllowed() {
+        MatrixGraph matrix = MatrixGraph.of(g);
+        AntColony antColony = new AntColony();
+        antColony.prepare(matrix, planningRequest);
+        AntColony.Ant ant = antColony.newAnt(new SplittableRandom(7));
+        int n = matrix.getNbVertices();
+
+        for (int i = 0; i < 50; i++) {
+            ant.begin();
+            int current = new PrecedenceConstraints(matrix, planningRequest)
+                    .getStart();
+            for (int position = 1; position < n; position++) {
+                int next = ant.next(current);
+                assertTrue(ant.isAllowed(next));
+                ant.visit(next);
+                current = next;
+            }
+        }
+    }
+
+    @Test
+    public void nextOutsideCandidates() {
+        MatrixGraph matrix = MatrixGraph.of(g);
+        int start = new PrecedenceConstraints(matrix, planningRequest)
+                .getStart();
+        SortedNeighbours neighbours = new SortedNeighbours(matrix);
+        AntColony antColony = new AntColony();
+        antColony.prepare(matrix, planningRequest);
+        AntColony.Ant ant = antColony.newAnt(new SplittableRandom(7));
+        assertTrue(matrix.getNbVertices() > AntColony.NB_CANDIDATES + 1);
+
+        // every candidate of the depot is already visited
+        Set<Integer> candidates = new HashSet<>();
+        for (int rank = 0; rank < AntColony.NB_CANDIDATES; rank++) {
+            candidates.add(neighbours.getSuccessor(start, rank));
+        }
+        for (int i = 0; i < 20; i++) {
+            ant.begin();
+            for (int candidate : candidates) {
+                ant.visit(candidate);
+            }
+            int next = ant.next(start);
+            assertFalse(candidates.contains(next));
+            assertTrue(ant.isAllowed(next));
+        }
+    }
+}
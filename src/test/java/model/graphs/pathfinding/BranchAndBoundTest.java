@@ -1,14 +1,21 @@
 package model.graphs.pathfinding;
 
+import model.DeliveryTour;
 import model.PlanningRequest;
 import model.graphs.Graph;
+import model.graphs.Plan;
 import org.junit.Before;
 import org.junit.Test;
+import util.XMLParser;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class BranchAndBoundTest {
     Graph g = new Graph();
@@ -54,4 +61,102 @@ public class BranchAndBoundTest {
         assert(Arrays.equals(sa.getSolution(), solution));
         System.out.println(sa.getSolutionCost());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void parallelSearchSol() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (String requests : new String[]{"files/requestsLarge7.xml",
+                    "files/requestsLarge9.xml"}) {
+                XMLParser parser = new XMLParser();
+                Plan plan = parser.readMap("files/largeMap.xml");
+                PlanningRequest planningRequest = parser.readRequests(requests, plan.getIntersectionMap());
+                plan.setPlanningRequest(planningRequest);
+                Graph graph = Graph.generateCompleteGraphFromPlan(plan);
+                BranchAndBound sequential = new BranchAndBound();
+                ParallelBranchAndBound parallel = new ParallelBranchAndBound(pool);
+
+                sequential.searchSolution(60000,graph,planningRequest);
+                parallel.searchSolution(60000,graph,planningRequest);
+                assertTrue(sequential.isProvenOptimal());
+                assertTrue(parallel.isProvenOptimal());
+                assertEquals(sequential.getSolutionCost(),
+                        parallel.getSolutionCost(), 0.01);
+                assertEquals(planningRequest.getStartId(), parallel.getSolution()[0]);
+                // the tree was split into several tasks
+                assertTrue(parallel.getNbSubtrees() > 1);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void lowerBounds() throws Exception {
+        XMLParser parser = new XMLParser();
+        Plan plan = parser.readMap("files/largeMap.xml");
+        PlanningRequest planningRequest = parser.readRequests("files/requestsMedium5.xml", plan.getIntersectionMap());
+        plan.setPlanningRequest(planningRequest);
+        Graph graph = Graph.generateCompleteGraphFromPlan(plan);
+        LowerBound[] lowerBounds = {new CheapestEdgeBound(),
+                new EdgeSumBound(), new SpanningTreeBound(),
+                new LagrangianBound()};
+        BranchAndBound[] searches = new BranchAndBound[lowerBounds.length];
+        for (int i = 0; i < lowerBounds.length; i++) {
+            searches[i] = new BranchAndBound();
+            searches[i].setLowerBound(lowerBounds[i]);
+            searches[i].searchSolution(60000,graph,planningRequest);
+            assertTrue(searches[i].isProvenOptimal());
+            assertEquals(searches[0].getSolutionCost(),
+                    searches[i].getSolutionCost(), 0.01);
+            assertTrue(searches[i].getPruningRatio() >= 0
+                    && searches[i].getPruningRatio() <= 1);
+        }
+        BranchAndBound cheapestEdge = searches[0];
+        BranchAndBound edgeSum = searches[1];
+        BranchAndBound spanningTree = searches[2];
+        BranchAndBound lagrangian = searches[3];
+        // a tighter bound prunes more and explores fewer nodes
+        for (int i = 1; i < searches.length; i++) {
+            assertTrue(searches[i].getNbNodes() < cheapestEdge.getNbNodes());
+            assertTrue(searches[i].getPruningRatio()
+                    > cheapestEdge.getPruningRatio());
+        }
+        assertTrue(lagrangian.getNbNodes() < spanningTree.getNbNodes());
+        assertTrue(lagrangian.getNbNodes() < edgeSum.getNbNodes());
+    }
+
+    @Test
+    public void snapshots() {
+        List<Object> notifications = new ArrayList<>();
+        BranchAndBound bb = new BranchAndBound(
+                (observable, arg) -> notifications.add(arg));
+        bb.setSnapshotPeriod(1);
+        PlanningRequest planningRequest = new PlanningRequest("1","0202");
+
+        bb.searchSolution(20000,g,planningRequest);
+        assert(notifications.size() >= 2);
+        float previousCost = Float.MAX_VALUE;
+        for (Object notification : notifications.subList(0,
+                notifications.size() - 1)) {
+            TourSnapshot snapshot = (TourSnapshot) notification;
+            assert(snapshot.getCost() < previousCost);
+            assertEquals("1", snapshot.getOrder()[0]);
+            previousCost = snapshot.getCost();
+        }
+        DeliveryTour deliveryTour =
+                (DeliveryTour) notifications.get(notifications.size() - 1);
+        assertEquals(previousCost, deliveryTour.getGlobalTime(), 0);
+    }
+
+    @Test
+    public void portfolio() {
+        PortfolioTSP portfolio = new PortfolioTSP();
+        PlanningRequest planningRequest = new PlanningRequest("1","0202");
+
+        portfolio.searchSolution(20000,g,planningRequest);
+        assertEquals(19.5f, portfolio.getSolutionCost(), 0);
+        assertEquals("1", portfolio.getSolution()[0]);
+        assert(portfolio.isProvenOptimal());
+    }
+}
@@ -0,0 +1,67 @@
+package model.graphs.pathfinding;
+
+import model.Segment;
+import model.graphs.Plan;
+import model.graphs.RoadNetwork;
+import org.junit.Before;
+import org.junit.Test;
+import util.XMLParser;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ContractionHierarchyTest {
+    Plan plan;
+
+    @Before
+    public void setUp() throws Exception {
+        plan = new XMLParser().readMap("files/smallMap.xml");
+    }
+
+    @Test
+    public void findShortestPathMatchesDijkstra() throws Exception {
+        RoadNetwork network = plan.getRoadNetwork();
+        ContractionHierarchy.Query query = plan.getContractionHierarchy().newQuery();
+        Dijkstra dijkstra = new Dijkstra();
+        Random random = new Random(42);
+
+        int nbCompared = 0;
+        for (int i = 0; i < 300; i++) {
+            String origin = network.getId(random.nextInt(network.getNbNodes()));
+            String destination = network.getId(random.nextInt(network.getNbNodes()));
+            if (origin.equals(destination)) {
+                continue;
+            }
+            Edge expected;
+            try {
+                expected = dijkstra.computeEdges(plan, origin, Arrays.asList(origin, destination)).get(0);
+            } catch (Exception e) {
+                continue;
+            }
+            Edge edge = query.findShortestPath(plan, origin, destination);
+            assertEquals(expected.getDuration(), edge.getDuration(), 0.01);
+
+            // the unpacked segments must form a path from origin to destination
+            String current = origin;
+            for (Segment segment : edge.getSegmentList()) {
+                assertEquals(current, segment.getOrigin());
+                current = segment.getDestination();
+            }
+            assertEquals(destination, current);
+            nbCompared++;
+        }
+        assertTrue(nbCompared > 100);
+    }
+
+    @Test
+    public void findShortestPathUnknownIntersection() {
+        try {
+            plan.getContractionHierarchy().newQuery().findShortestPath(plan, "unknown", "unknown2");
+            fail("No route should be found");
+        } catch (Exception e) {
+            assertEquals("No route has been found from unknown to unknown2 !", e.getMessage());
+        }
+    }
+}
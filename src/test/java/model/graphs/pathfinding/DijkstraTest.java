@@ -153,4 +153,21 @@ public class DijkstraTest {
 
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void executeAlgorithmShortestDistances() throws Exception {
+        List<String> pointsOfInterests = Arrays.asList("1", "2", "4", "6", "7");
+        Graph newGraph = new Graph();
+        dijkstra.executeAlgorithm(plan, "1", newGraph, pointsOfInterests);
+        // a second search on the same instance must not reuse the first one
+        dijkstra.executeAlgorithm(plan, "7", newGraph, pointsOfInterests);
+
+        assert(newGraph.getCost("1", "2") == 3.0f);
+        assert(newGraph.getCost("1", "4") == 3.5f);
+        assert(newGraph.getCost("1", "6") == 5.5f);
+        assert(newGraph.getCost("1", "7") == 8.5f);
+        assert(newGraph.getCost("7", "1") == 11.0f);
+        assert(newGraph.getEdge("1", "6").getSegmentList().size() == 3);
+        assert(newGraph.getEdge("1", "6").getSegmentList().get(0).getDestination().equals("3"));
+    }
+}
@@ -0,0 +1,139 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.Request;
+import model.graphs.Graph;
+import model.graphs.Plan;
+import org.junit.Before;
+import org.junit.Test;
+import util.XMLParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HeldKarpTest {
+    Graph g = new Graph();
+
+    @Before
+    public void setUp() throws Exception {
+        List<Edge> edgeList = new ArrayList<>();
+        edgeList.add(new Edge("2","1",null,1.0f));
+        edgeList.add(new Edge("7","6",null,6.0f));
+        edgeList.add(new Edge("6","7",null,3.0f));
+        edgeList.add(new Edge("1","2",null,3.0f));
+        edgeList.add(new Edge("4","6",null,2.0f));
+        edgeList.add(new Edge("2","4",null,2.0f));
+        edgeList.add(new Edge("4","7",null,5.0f));
+        edgeList.add(new Edge("1","4",null,3.5f));
+        edgeList.add(new Edge("2","6",null,4.0f));
+        edgeList.add( new Edge("2","7",null,7.0f));
+        edgeList.add( new Edge("1","6",null,5.5f));
+        edgeList.add( new Edge("1","7",null,8.5f));
+        edgeList.add( new Edge("7","1",null,11.0f));
+        edgeList.add( new Edge("6","1",null,5.0f));
+        edgeList.add( new Edge("7","2",null,10.0f));
+        edgeList.add( new Edge("6","2",null,4.0f));
+        edgeList.add( new Edge("4","1",null,4.0f));
+        edgeList.add( new Edge("7","4",null,7.0f));
+        edgeList.add( new Edge("4","2",null,3.0f));
+        edgeList.add( new Edge("6","4",null,1.0f));
+
+        for (Edge e:edgeList ) {
+            g.addEdge(e.getOrigin(), e.getDestination(), e);
+        }
+    }
+
+
+    @Test
+    public void searchSol() {
+        TSP tsp = new HeldKarp();
+        PlanningRequest planningRequest = new PlanningRequest("1","0202");
+
+        tsp.searchSolution(20000,g,planningRequest);
+        assertEquals(19.5f, tsp.getSolutionCost(), 0);
+        assertEquals("1", tsp.getSolution()[0]);
+    }
+
+    @Test
+    public void searchSolWithPrecedence() {
+        PlanningRequest planningRequest = new PlanningRequest("1","0202");
+        planningRequest.addRequest(new Request("2", "7", 0, 0));
+        TSP heldKarp = new HeldKarp();
+        TSP branchAndBound = new BranchAndBound();
+
+        heldKarp.searchSolution(20000,g,planningRequest);
+        branchAndBound.searchSolution(20000,g,planningRequest);
+        assertEquals(branchAndBound.getSolutionCost(),
+                heldKarp.getSolutionCost(), 0);
+        List<String> tour = Arrays.asList(heldKarp.getSolution());
+        assertTrue(tour.indexOf("2") < tour.indexOf("7"));
+    }
+
+    @Test
+    public void searchSolLarge() throws Exception {
+        Plan plan = new XMLParser().readMap("files/largeMap.xml");
+        PlanningRequest planningRequest = new XMLParser().readRequests(
+                "files/requestsLarge7.xml", plan.getIntersectionMap());
+        plan.setPlanningRequest(planningRequest);
+        Graph graph = Graph.generateCompleteGraphFromPlan(plan);
+        HeldKarp heldKarp = new HeldKarp();
+        TSP branchAndBound = new BranchAndBound();
+
+        heldKarp.searchSolution(60000,graph,planningRequest);
+        branchAndBound.searchSolution(60000,graph,planningRequest);
+        assertTrue(graph.getNbVertices() >= 10);
+        assertTrue(heldKarp.isProvenOptimal());
+        assertEquals(branchAndBound.getSolutionCost(),
+                heldKarp.getSolutionCost(), 0.01);
+        List<String> tour = Arrays.asList(heldKarp.getSolution());
+        for (Request request : planningRequest.getRequests()) {
+            assertTrue(tour.indexOf(request.getPickupId())
+                    <= tour.indexOf(request.getDeliveryId()));
+        }
+    }
+
+    @Test
+    public void searchSolTimeLimit() throws Exception {
+        Plan plan = new XMLParser().readMap("files/largeMap.xml");
+        PlanningRequest planningRequest = new XMLParser().readRequests(
+                "files/requestsLarge9.xml", plan.getIntersectionMap());
+        plan.setPlanningRequest(planningRequest);
+        Graph graph = Graph.generateCompleteGraphFromPlan(plan);
+        HeldKarp heldKarp = new HeldKarp();
+
+        heldKarp.searchSolution(1,graph,planningRequest);
+        assertFalse(heldKarp.isProvenOptimal());
+        // the tour kept is still complete
+        List<String> tour = Arrays.asList(heldKarp.getSolution());
+        assertFalse(tour.contains(null));
+        assertEquals(graph.getNbVertices(), tour.size());
+    }
+
+    @Test
+    public void tooManyVertices() {
+        Graph graph = new Graph();
+        for (int i = 0; i <= HeldKarp.MAX_VERTICES; i++) {
+            for (int j = 0; j <= HeldKarp.MAX_VERTICES; j++) {
+                if (i != j) {
+                    String origin = String.valueOf(i);
+                    String destination = String.valueOf(j);
+                    graph.addEdge(origin, destination,
+                            new Edge(origin, destination, null, 1.0f));
+                }
+            }
+        }
+        try {
+            new HeldKarp().searchSolution(20000, graph,
+                    new PlanningRequest("0","0800"));
+            fail("Held-Karp should refuse " + graph.getNbVertices()
+                    + " vertices");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Held-Karp is limited to " + HeldKarp.MAX_VERTICES
+                    + " points of interest, not "
+                    + (HeldKarp.MAX_VERTICES + 1), e.getMessage());
+        }
+    }
+}
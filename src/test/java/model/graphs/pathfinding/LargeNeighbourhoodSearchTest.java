@@ -0,0 +1,146 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.Request;
+import model.graphs.Graph;
+import model.graphs.MatrixGraph;
+import model.graphs.Plan;
+import org.junit.Before;
+import org.junit.Test;
+import util.XMLParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LargeNeighbourhoodSearchTest {
+    PlanningRequest planningRequest;
+    Graph g;
+
+    @Before
+    public void setUp() throws Exception {
+        XMLParser parser = new XMLParser();
+        Plan plan = parser.readMap("files/largeMap.xml");
+        planningRequest = parser.readRequests("files/requestsLarge9.xml", plan.getIntersectionMap());
+        plan.setPlanningRequest(planningRequest);
+        g = Graph.generateCompleteGraphFromPlan(plan);
+    }
+
+    @Test
+    public void searchSol() {
+        LargeNeighbourhoodSearch lns = new LargeNeighbourhoodSearch();
+        lns.setSeed(7);
+        TSP heldKarp = new HeldKarp();
+
+        lns.searchSolution(2000,g,planningRequest);
+        heldKarp.searchSolution(20000,g,planningRequest);
+        assertEquals(heldKarp.getSolutionCost(), lns.getSolutionCost(), 0.01);
+        assertTrue(lns.getNbIterations() > 0);
+    }
+
+    @Test
+    public void recreateKeepsPrecedences() {
+        MatrixGraph matrix = MatrixGraph.of(g);
+        LargeNeighbourhoodSearch lns = new LargeNeighbourhoodSearch();
+        lns.setSeed(7);
+        lns.prepare(matrix, planningRequest);
+        int[] removed = new int[lns.getNbRequests()];
+        for (int r = 0; r < removed.length; r++) {
+            removed[r] = r;
+        }
+        assertTrue(lns.recreate(removed, removed.length, 1));
+        assertPickupsFirst(matrix, lns.getRoute());
+
+        int[] ruins = {LargeNeighbourhoodSearch.RANDOM_REMOVAL,
+                LargeNeighbourhoodSearch.RELATED_REMOVAL,
+                LargeNeighbourhoodSearch.WORST_REMOVAL};
+        for (int i = 0; i < 300; i++) {
+            int nbRemoved = lns.ruin(ruins[i % 3], removed);
+            assertTrue(nbRemoved > 0);
+            assertTrue(lns.getRoute().length < matrix.getNbVertices());
+            assertTrue(lns.recreate(removed, nbRemoved, 1 + i % 3));
+            assertPickupsFirst(matrix, lns.getRoute());
+        }
+    }
+
+    /**
+     * @param matrix the graph
+     * @param route  a complete tour
+     */
+    private void assertPickupsFirst(final MatrixGraph matrix,
+                                    final int[] route) {
+        assertEquals(matrix.getNbVertices(), route.length);
+        List<String> tour = new ArrayList<>();
+        for (int vertex : route) {
+            tour.add(matrix.getId(vertex));
+        }
+        assertEquals(planningRequest.getStartId(), tour.get(0));
+        for (Request request : planningRequest.getRequests()) {
+            assertTrue(tour.indexOf(request.getPickupId())
+                    <= tour.indexOf(request.getDeliveryId()));
+        }
+    }
+
+    @Test
+    public void regretDiffersFromGreedy() {
+        // 1 is the depot, 2 is already in the tour; 3 is cheaper to insert
+        // than 4, but both want the gap 1 -> 2, and 4 has no other place
+        MatrixGraph matrix = new MatrixGraph(Arrays.asList("1","2","3","4"));
+        float[][] costs = {
+                {0, 10, 5, 6},
+                {10, 0, 6, 20},
+                {6, 6, 0, 20},
+                {20, 7, 20, 0}};
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                if (i != j) {
+                    String origin = String.valueOf(i + 1);
+                    String destination = String.valueOf(j + 1);
+                    matrix.addEdge(origin, destination, new Edge(origin,
+                            destination, null, costs[i][j]));
+                }
+            }
+        }
+        PlanningRequest noRequest = new PlanningRequest("1","0800");
+        // the requests are the vertices but the depot, in index order
+        int[] first = {0};
+        int[] others = {1, 2};
+
+        LargeNeighbourhoodSearch greedy = new LargeNeighbourhoodSearch();
+        greedy.prepare(matrix, noRequest);
+        assertTrue(greedy.recreate(first, 1, 1));
+        assertTrue(greedy.recreate(others, 2, 1));
+        // 3 takes the gap 1 -> 2 first, so 4 goes next to it
+        assertArrayEquals(new int[]{0, 3, 2, 1}, greedy.getRoute());
+
+        LargeNeighbourhoodSearch regret = new LargeNeighbourhoodSearch();
+        regret.prepare(matrix, noRequest);
+        assertTrue(regret.recreate(first, 1, 2));
+        assertTrue(regret.recreate(others, 2, 2));
+        // 4 would lose the most by waiting, so it takes the gap 1 -> 2
+        assertArrayEquals(new int[]{0, 3, 1, 2}, regret.getRoute());
+    }
+
+    @Test
+    public void weightsFollowScores() {
+        double[][] operators = {{1, 0, 0}, {1, 0, 0}, {1, 0, 0}};
+        for (int i = 0; i < LargeNeighbourhoodSearch.SEGMENT_LENGTH; i++) {
+            LargeNeighbourhoodSearch.reward(operators[i % 2],
+                    i % 2 == 0 ? LargeNeighbourhoodSearch.SCORE_BEST : 0);
+        }
+        LargeNeighbourhoodSearch.updateWeights(operators);
+        double reaction = LargeNeighbourhoodSearch.REACTION;
+        assertEquals(1 - reaction
+                + reaction * LargeNeighbourhoodSearch.SCORE_BEST,
+                operators[0][0], 1e-9);
+        assertEquals(1 - reaction, operators[1][0], 1e-9);
+        // an unused operator keeps its weight
+        assertEquals(1, operators[2][0], 0);
+        for (double[] operator : operators) {
+            assertEquals(0, operator[1], 0);
+            assertEquals(0, operator[2], 0);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.Request;
+import model.graphs.Graph;
+import model.graphs.MatrixGraph;
+import model.graphs.Plan;
+import org.junit.Before;
+import org.junit.Test;
+import util.XMLParser;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LocalSearchTest {
+    PlanningRequest planningRequest;
+    Graph g;
+
+    @Before
+    public void setUp() throws Exception {
+        XMLParser parser = new XMLParser();
+        Plan plan = parser.readMap("files/largeMap.xml");
+        planningRequest = parser.readRequests("files/requestsLarge9.xml", plan.getIntersectionMap());
+        plan.setPlanningRequest(planningRequest);
+        g = Graph.generateCompleteGraphFromPlan(plan);
+    }
+
+    @Test
+    public void improve() {
+        MatrixGraph matrix = MatrixGraph.of(g);
+        PrecedenceConstraints precedences =
+                new PrecedenceConstraints(matrix, planningRequest);
+        LocalSearch localSearch = new LocalSearch(matrix, precedences);
+        SplittableRandom random = new SplittableRandom(7);
+
+        for (int i = 0; i < 200; i++) {
+            TourMoves tour = new TourMoves(matrix,
+                    precedences.randomTour(random));
+            float before = tour.getCost();
+            float after = localSearch.improve(tour);
+            assertTrue(after <= before);
+            assertTrue(localSearch.getNbMoves() > 0);
+            assertEquals(tour.getCost(), after, 0);
+            assertTrue(precedences.isFeasible(tour));
+            assertEquals(precedences.getStart(), tour.get(0));
+        }
+    }
+
+    @Test
+    public void polishing() {
+        SimulatedAnnealing annealing = new SimulatedAnnealing();
+        annealing.setSeed(7);
+        SimulatedAnnealing polished = new SimulatedAnnealing();
+        polished.setSeed(7);
+        polished.setPolishing(true);
+
+        // too few iterations to anneal, the local search does the work
+        annealing.searchSolution(1,g,planningRequest);
+        polished.searchSolution(1,g,planningRequest);
+        assertTrue(polished.getSolutionCost()
+                < annealing.getSolutionCost());
+        List<String> tour = Arrays.asList(polished.getSolution());
+        assertEquals(planningRequest.getStartId(), tour.get(0));
+        for (Request request : planningRequest.getRequests()) {
+            assertTrue(tour.indexOf(request.getPickupId())
+                    < tour.indexOf(request.getDeliveryId()));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.graphs.Graph;
+import model.graphs.Key;
+import model.graphs.Plan;
+import org.junit.Before;
+import org.junit.Test;
+import util.XMLParser;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class ManyToManyMatrixTest {
+    Plan plan;
+
+    @Before
+    public void setUp() throws Exception {
+        XMLParser parser = new XMLParser();
+        plan = parser.readMap("files/mediumMap.xml");
+        PlanningRequest planningRequest = parser.readRequests("files/requestsMedium5.xml", plan.getIntersectionMap());
+        plan.setPlanningRequest(planningRequest);
+    }
+
+    @Test
+    public void fillMatchesDijkstra() throws Exception {
+        List<String> pointsOfInterests = Graph.getPointsOfInterests(plan.getPlanningRequest());
+        Graph expected = new Graph();
+        Dijkstra dijkstra = new Dijkstra();
+        for (String poi : pointsOfInterests) {
+            dijkstra.executeAlgorithm(plan, poi, expected, pointsOfInterests);
+        }
+        Graph graph = new Graph();
+        new ManyToManyMatrix(plan.getContractionHierarchy()).fill(plan, pointsOfInterests, graph);
+
+        assertEquals(expected.getNbEdges(), graph.getNbEdges());
+        for (Map.Entry<Key, Edge> entry : expected.getEdges().entrySet()) {
+            Edge edge = graph.getEdges().get(entry.getKey());
+            assertNotNull(edge);
+            assertEquals(entry.getValue().getDuration(), edge.getDuration(), 0.01);
+            assertEquals(entry.getValue().getSegmentList(), edge.getSegmentList());
+        }
+    }
+
+    @Test
+    public void parallelFillMatchesSequential() throws Exception {
+        List<String> pointsOfInterests = Graph.getPointsOfInterests(plan.getPlanningRequest());
+        Graph sequential = new Graph();
+        new ManyToManyMatrix(plan.getContractionHierarchy(), Runnable::run)
+                .fill(plan, pointsOfInterests, sequential);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ManyToManyMatrix matrix = new ManyToManyMatrix(plan.getContractionHierarchy(), pool);
+            // the second fill reuses the workspaces and buckets of the first one
+            for (int i = 0; i < 2; i++) {
+                Graph parallel = new Graph();
+                matrix.fill(plan, pointsOfInterests, parallel);
+                assertEquals(sequential.getNbEdges(), parallel.getNbEdges());
+                for (Map.Entry<Key, Edge> entry : sequential.getEdges().entrySet()) {
+                    Edge edge = parallel.getEdges().get(entry.getKey());
+                    assertNotNull(edge);
+                    assertEquals(entry.getValue().getDuration(), edge.getDuration(), 0);
+                    assertEquals(entry.getValue().getSegmentList(), edge.getSegmentList());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void fillUnknownIntersection() {
+        try {
+            new ManyToManyMatrix(plan.getContractionHierarchy()).fill(plan,
+                    Arrays.asList(plan.getPlanningRequest().getStartId(), "unknown"), new Graph());
+            fail("No route should be found");
+        } catch (Exception e) {
+            assertEquals("No route has been found from " + plan.getPlanningRequest().getStartId()
+                    + " to unknown !", e.getMessage());
+        }
+    }
+}
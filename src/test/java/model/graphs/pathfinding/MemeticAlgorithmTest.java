@@ -0,0 +1,108 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.Request;
+import model.graphs.Graph;
+import model.graphs.MatrixGraph;
+import model.graphs.Plan;
+import org.junit.Before;
+import org.junit.Test;
+import util.XMLParser;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class MemeticAlgorithmTest {
+    PlanningRequest planningRequest;
+    Graph g;
+
+    @Before
+    public void setUp() throws Exception {
+        XMLParser parser = new XMLParser();
+        Plan plan = parser.readMap("files/largeMap.xml");
+        planningRequest = parser.readRequests("files/requestsLarge9.xml", plan.getIntersectionMap());
+        plan.setPlanningRequest(planningRequest);
+        g = Graph.generateCompleteGraphFromPlan(plan);
+    }
+
+    @Test
+    public void searchSol() {
+        MemeticAlgorithm memetic = new MemeticAlgorithm();
+        memetic.setSeed(7);
+        TSP heldKarp = new HeldKarp();
+
+        memetic.searchSolution(2000,g,planningRequest);
+        heldKarp.searchSolution(20000,g,planningRequest);
+        assertEquals(heldKarp.getSolutionCost(),
+                memetic.getSolutionCost(), 0.01);
+        assertTrue(memetic.getNbGenerations() > 0);
+        List<String> tour = Arrays.asList(memetic.getSolution());
+        for (Request request : planningRequest.getRequests()) {
+            assertTrue(tour.indexOf(request.getPickupId())
+                    <= tour.indexOf(request.getDeliveryId()));
+        }
+    }
+
+    @Test
+    public void crossover() {
+        MatrixGraph matrix = MatrixGraph.of(g);
+        PrecedenceConstraints precedences =
+                new PrecedenceConstraints(matrix, planningRequest);
+        SplittableRandom random = new SplittableRandom(7);
+        int n = matrix.getNbVertices();
+        int[] child = new int[n];
+        boolean[] taken = new boolean[n];
+
+        for (int i = 0; i < 100; i++) {
+            int[] mother = precedences.randomTour(random);
+            int[] father = precedences.randomTour(random);
+            MemeticAlgorithm.crossover(mother, father, child, taken, random);
+
+            int[] sorted = child.clone();
+            Arrays.sort(sorted);
+            for (int vertex = 0; vertex < n; vertex++) {
+                assertEquals(vertex, sorted[vertex]);
+            }
+            assertTrue(precedences.isFeasible(new TourMoves(matrix, child)));
+            // each vertex is the first one not taken yet of a parent
+            boolean[] before = new boolean[n];
+            int inMother = 0;
+            int inFather = 0;
+            for (int vertex : child) {
+                while (before[mother[inMother]]) {
+                    inMother++;
+                }
+                while (before[father[inFather]]) {
+                    inFather++;
+                }
+                assertTrue(vertex == mother[inMother]
+                        || vertex == father[inFather]);
+                before[vertex] = true;
+            }
+        }
+    }
+
+    @Test
+    public void replaceWorst() {
+        int[][] population = {{0, 1, 2}, {0, 2, 1}, {0, 1, 2}};
+        float[] costs = {10, 30, 20};
+
+        // a cost already in the population
+        assertFalse(MemeticAlgorithm.replaceWorst(population, costs,
+                new int[]{0, 2, 1}, 20));
+        // not cheaper than the worst tour
+        assertFalse(MemeticAlgorithm.replaceWorst(population, costs,
+                new int[]{0, 2, 1}, 35));
+        assertArrayEquals(new float[]{10, 30, 20}, costs, 0);
+
+        int[] child = {0, 1, 2};
+        assertTrue(MemeticAlgorithm.replaceWorst(population, costs,
+                child, 15));
+        assertArrayEquals(new float[]{10, 15, 20}, costs, 0);
+        assertArrayEquals(child, population[1]);
+        assertNotSame(child, population[1]);
+    }
+}
@@ -0,0 +1,72 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.Request;
+import model.graphs.Graph;
+import model.graphs.Plan;
+import org.junit.Before;
+import org.junit.Test;
+import util.XMLParser;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelTemperingTest {
+    PlanningRequest planningRequest;
+    Graph g;
+
+    @Before
+    public void setUp() throws Exception {
+        XMLParser parser = new XMLParser();
+        Plan plan = parser.readMap("files/largeMap.xml");
+        planningRequest = parser.readRequests("files/requestsLarge9.xml", plan.getIntersectionMap());
+        plan.setPlanningRequest(planningRequest);
+        g = Graph.generateCompleteGraphFromPlan(plan);
+    }
+
+    @Test
+    public void searchSol() {
+        ParallelTempering parallelTempering = new ParallelTempering();
+        parallelTempering.setSeed(7);
+        TSP heldKarp = new HeldKarp();
+
+        parallelTempering.searchSolution(2000,g,planningRequest);
+        heldKarp.searchSolution(20000,g,planningRequest);
+        assertEquals(heldKarp.getSolutionCost(),
+                parallelTempering.getSolutionCost(), 0.01);
+        List<String> tour = Arrays.asList(parallelTempering.getSolution());
+        assertEquals(planningRequest.getStartId(), tour.get(0));
+        for (Request request : planningRequest.getRequests()) {
+            assertTrue(tour.indexOf(request.getPickupId())
+                    <= tour.indexOf(request.getDeliveryId()));
+        }
+    }
+
+    @Test
+    public void replicaExchange() {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            ParallelTempering parallelTempering = new ParallelTempering(pool);
+            parallelTempering.setSeed(7);
+            assertEquals(ParallelTempering.MIN_REPLICAS,
+                    parallelTempering.getNbReplicas());
+
+            parallelTempering.searchSolution(200,g,planningRequest);
+            double exchangeRate = parallelTempering.getExchangeRate();
+            assertTrue(exchangeRate > 0 && exchangeRate <= 1);
+            float[] temperatures = parallelTempering.getTemperatures();
+            assertEquals(parallelTempering.getNbReplicas(),
+                    temperatures.length);
+            assertTrue(temperatures[0] > 0);
+            for (int k = 1; k < temperatures.length; k++) {
+                assertTrue(temperatures[k - 1] < temperatures[k]);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
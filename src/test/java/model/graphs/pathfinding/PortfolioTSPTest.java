@@ -0,0 +1,82 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.Request;
+import model.graphs.Graph;
+import model.graphs.Plan;
+import org.junit.Before;
+import org.junit.Test;
+import util.XMLParser;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PortfolioTSPTest {
+    PlanningRequest planningRequest;
+    Graph g;
+
+    @Before
+    public void setUp() throws Exception {
+        XMLParser parser = new XMLParser();
+        Plan plan = parser.readMap("files/largeMap.xml");
+        planningRequest = parser.readRequests("files/requestsLarge9.xml", plan.getIntersectionMap());
+        plan.setPlanningRequest(planningRequest);
+        g = Graph.generateCompleteGraphFromPlan(plan);
+    }
+
+    /**
+     * @param tsp a solved TSP
+     */
+    private void assertPickupsFirst(final TSP tsp) {
+        List<String> tour = Arrays.asList(tsp.getSolution());
+        assertEquals(g.getNbVertices(), tour.size());
+        assertEquals(planningRequest.getStartId(), tour.get(0));
+        for (Request request : planningRequest.getRequests()) {
+            assertTrue(tour.indexOf(request.getPickupId())
+                    <= tour.indexOf(request.getDeliveryId()));
+        }
+    }
+
+    @Test
+    public void searchSol() {
+        PortfolioTSP portfolio = new PortfolioTSP();
+        TSP heldKarp = new HeldKarp();
+
+        // branch and bound needs seconds to prove the optimum here
+        portfolio.searchSolution(60000,g,planningRequest);
+        heldKarp.searchSolution(20000,g,planningRequest);
+        assertTrue(portfolio.isProvenOptimal());
+        assertEquals(heldKarp.getSolutionCost(),
+                portfolio.getSolutionCost(), 0.01);
+        assertPickupsFirst(portfolio);
+    }
+
+    @Test
+    public void deadline() {
+        // an annealing far too long for the race
+        PortfolioTSP portfolio = new PortfolioTSP(Integer.MAX_VALUE);
+        TSP heldKarp = new HeldKarp();
+
+        long start = System.currentTimeMillis();
+        portfolio.searchSolution(300,g,planningRequest);
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertFalse(portfolio.isProvenOptimal());
+        assertPickupsFirst(portfolio);
+        heldKarp.searchSolution(20000,g,planningRequest);
+        assertTrue(portfolio.getSolutionCost()
+                >= heldKarp.getSolutionCost() - 0.01);
+    }
+
+    @Test
+    public void budgets() {
+        try {
+            new PortfolioTSP(Arrays.asList(BranchAndBound::new,
+                    SimulatedAnnealing::new), new int[]{1000});
+            fail("Each solver needs a budget");
+        } catch (IllegalArgumentException e) {
+            assertEquals("2 solvers but 1 budgets", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package model.graphs.pathfinding;
+
+import model.PlanningRequest;
+import model.Request;
+import model.graphs.Graph;
+import model.graphs.MatrixGraph;
+import model.graphs.Plan;
+import org.junit.Before;
+import org.junit.Test;
+import util.XMLParser;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class PrecedenceConstraintsTest {
+    PlanningRequest planningRequest;
+    MatrixGraph matrix;
+    PrecedenceConstraints precedences;
+
+    @Before
+    public void setUp() throws Exception {
+        XMLParser parser = new XMLParser();
+        Plan plan = parser.readMap("files/largeMap.xml");
+        planningRequest = parser.readRequests("files/requestsLarge9.xml", plan.getIntersectionMap());
+        plan.setPlanningRequest(planningRequest);
+        Graph g = Graph.generateCompleteGraphFromPlan(plan);
+        matrix = MatrixGraph.of(g);
+        precedences = new PrecedenceConstraints(matrix, planningRequest);
+    }
+
+    /**
+     * @param tour a tour
+     */
+    private void assertPickupsFirst(final TourMoves tour) {
+        assertEquals(precedences.getStart(), tour.get(0));
+        for (Request request : planningRequest.getRequests()) {
+            assertTrue(tour.positionOf(matrix.indexOf(request.getPickupId()))
+                    < tour.positionOf(matrix.indexOf(request.getDeliveryId())));
+        }
+        assertTrue(precedences.isFeasible(tour));
+    }
+
+    @Test
+    public void randomTour() {
+        SplittableRandom random = new SplittableRandom(7);
+        int n = matrix.getNbVertices();
+        for (int i = 0; i < 1000; i++) {
+            int[] tour = precedences.randomTour(random);
+            int[] sorted = tour.clone();
+            Arrays.sort(sorted);
+            for (int vertex = 0; vertex < n; vertex++) {
+                assertEquals(vertex, sorted[vertex]);
+            }
+            assertPickupsFirst(new TourMoves(matrix, tour));
+        }
+    }
+
+    @Test
+    public void randomMoves() {
+        SplittableRandom random = new SplittableRandom(7);
+        TourMoves tour = new TourMoves(matrix, precedences.randomTour(random));
+        RandomMoves moves = new RandomMoves(tour, precedences, random);
+        int applied = 0;
+        for (int i = 0; i < 5000; i++) {
+            float before = tour.getCost();
+            float delta = moves.draw(SimulatedAnnealing.MOVE_ATTEMPTS);
+            if (Float.isNaN(delta)) {
+                continue;
+            }
+            moves.apply();
+            applied++;
+            assertEquals(before + delta, tour.getCost(), 1);
+            assertPickupsFirst(tour);
+        }
+        assertTrue(applied > 1000);
+    }
+
+    @Test
+    public void isFeasible() {
+        int[] tour = precedences.randomTour(new SplittableRandom(7));
+        TourMoves moves = new TourMoves(matrix, tour);
+        Request request = planningRequest.getRequests().get(0);
+        // visit the delivery before its pickup
+        moves.swap(moves.positionOf(matrix.indexOf(request.getPickupId())),
+                moves.positionOf(matrix.indexOf(request.getDeliveryId())));
+        assertFalse(precedences.isFeasible(moves));
+    }
+
+    @Test
+    public void cycle() {
+        List<String> ids = Arrays.asList("0", "1", "2");
+        MatrixGraph triangle = new MatrixGraph(ids);
+        PlanningRequest cycle = new PlanningRequest("0", "0800");
+        cycle.addRequest(new Request("1", "2", 0, 0));
+        cycle.addRequest(new Request("2", "1", 0, 0));
+        try {
+            new PrecedenceConstraints(triangle, cycle)
+                    .randomTour(new SplittableRandom(7));
+            fail("No tour keeps both precedences");
+        } catch (IllegalStateException e) {
+            assertEquals("The pickups and deliveries form a cycle",
+                    e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package model.graphs.pathfinding;
+
+import model.DeliveryTour;
+import model.PlanningRequest;
+import model.graphs.Graph;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SolverServiceTest {
+    SolverService solverService = new SolverService(1, 1);
+
+    @After
+    public void tearDown() {
+        solverService.shutdown();
+    }
+
+    /**
+     * @param nbVertices the number of vertices
+     * @return a complete graph with random costs, too large to be solved
+     * by branch and bound
+     */
+    private Graph randomGraph(int nbVertices) {
+        Random random = new Random(7);
+        Graph g = new Graph();
+        for (int i = 0; i < nbVertices; i++) {
+            for (int j = 0; j < nbVertices; j++) {
+                if (i != j) {
+                    String origin = String.valueOf(i);
+                    String destination = String.valueOf(j);
+                    g.addEdge(origin, destination, new Edge(origin,
+                            destination, null, 1 + random.nextInt(100)));
+                }
+            }
+        }
+        return g;
+    }
+
+    @Test
+    public void cancelFreesTheThread() throws Exception {
+        Graph g = randomGraph(40);
+        PlanningRequest planningRequest = new PlanningRequest("0","0202");
+        BranchAndBound branchAndBound = new BranchAndBound();
+        Future<DeliveryTour> search = solverService.submit(branchAndBound,
+                600000, 600000, g, planningRequest);
+        Thread.sleep(100);
+        assertTrue(search.cancel(true));
+        try {
+            search.get();
+            fail();
+        } catch (CancellationException e) {
+            assertTrue(branchAndBound.isCancelled());
+        }
+
+        // the thread is free for the next search
+        Future<DeliveryTour> next = solverService.submit(
+                new SimulatedAnnealing(), 1000, 10000, g, planningRequest);
+        DeliveryTour deliveryTour = next.get(5, TimeUnit.SECONDS);
+        assertEquals(40, deliveryTour.getPointsOfInterest().size());
+    }
+
+    @Test
+    public void deadline() throws Exception {
+        Graph g = randomGraph(40);
+        PlanningRequest planningRequest = new PlanningRequest("0","0202");
+        long start = System.currentTimeMillis();
+        Future<DeliveryTour> search = solverService.submit(
+                new BranchAndBound(), 600000, 200, g, planningRequest);
+        DeliveryTour deliveryTour = search.get(5, TimeUnit.SECONDS);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(40, deliveryTour.getPointsOfInterest().size());
+    }
+
+    @Test
+    public void cancelSimulatedAnnealing() throws Exception {
+        Graph g = randomGraph(40);
+        PlanningRequest planningRequest = new PlanningRequest("0","0202");
+        SimulatedAnnealing simulatedAnnealing = new SimulatedAnnealing();
+        // levels of hundreds of thousands of steps
+        Future<DeliveryTour> search = solverService.submit(simulatedAnnealing,
+                Integer.MAX_VALUE, 600000, g, planningRequest);
+        Thread.sleep(100);
+        long start = System.currentTimeMillis();
+        simulatedAnnealing.cancel();
+        DeliveryTour deliveryTour = search.get(5, TimeUnit.SECONDS);
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertEquals(40, deliveryTour.getPointsOfInterest().size());
+    }
+}
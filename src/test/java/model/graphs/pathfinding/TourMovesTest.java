@@ -0,0 +1,160 @@
+package model.graphs.pathfinding;
+
+import model.graphs.MatrixGraph;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class TourMovesTest {
+    static final int N = 9;
+    MatrixGraph matrix;
+    int[] tour;
+
+    @Before
+    public void setUp() {
+        // an asymmetric matrix with integer costs, so the sums are exact
+        SplittableRandom random = new SplittableRandom(7);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < N; i++) {
+            ids.add(String.valueOf(i));
+        }
+        matrix = new MatrixGraph(ids);
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                if (i != j) {
+                    matrix.setEdge(i, j, new Edge(ids.get(i), ids.get(j),
+                            null, 1 + random.nextInt(100)));
+                }
+            }
+        }
+        // a shuffled tour starting from 0
+        tour = new int[N];
+        for (int k = 0; k < N; k++) {
+            tour[k] = k;
+        }
+        for (int k = N - 1; k > 1; k--) {
+            int other = 1 + random.nextInt(k);
+            int vertex = tour[k];
+            tour[k] = tour[other];
+            tour[other] = vertex;
+        }
+    }
+
+    /**
+     * @param moves the tour
+     * @return the cost of the tour, recomputed from the matrix
+     */
+    private float recompute(final TourMoves moves) {
+        float cost = 0;
+        for (int k = 0; k < N; k++) {
+            cost += matrix.getCost(moves.get(k), moves.get((k + 1) % N));
+        }
+        return cost;
+    }
+
+    /**
+     * @param expected the tour expected
+     * @param moves    the tour
+     */
+    private void assertTour(final int[] expected, final TourMoves moves) {
+        int[] actual = new int[N];
+        moves.copyTo(actual);
+        assertArrayEquals(expected, actual);
+        for (int k = 0; k < N; k++) {
+            assertEquals(k, moves.positionOf(moves.get(k)));
+        }
+        assertEquals(recompute(moves), moves.getCost(), 0.001);
+    }
+
+    @Test
+    public void relocate() {
+        TourMoves moves = new TourMoves(matrix, tour);
+        float before = recompute(moves);
+        // from < to, from > to, adjacent positions and the closing edge
+        for (int from = 1; from < N; from++) {
+            for (int to = 1; to < N; to++) {
+                float delta = moves.relocateDelta(from, to);
+                moves.relocate(from, to);
+                assertEquals(recompute(moves) - before, delta, 0.001);
+                assertEquals(recompute(moves), moves.getCost(), 0.001);
+                moves.relocate(to, from);
+                assertTour(tour, moves);
+            }
+        }
+    }
+
+    @Test
+    public void orOpt() {
+        TourMoves moves = new TourMoves(matrix, tour);
+        float before = recompute(moves);
+        for (int i = 1; i < N; i++) {
+            for (int j = i; j < N; j++) {
+                int length = j - i + 1;
+                for (int after = 0; after < N; after++) {
+                    if (after >= i - 1 && after <= j) {
+                        continue;
+                    }
+                    float delta = moves.orOptDelta(i, j, after);
+                    moves.orOpt(i, j, after);
+                    assertEquals(recompute(moves) - before, delta, 0.001);
+                    assertEquals(recompute(moves), moves.getCost(), 0.001);
+                    // move the part back where it was
+                    if (after > j) {
+                        moves.orOpt(after - length + 1, after, i - 1);
+                    } else {
+                        moves.orOpt(after + 1, after + length, j);
+                    }
+                    assertTour(tour, moves);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void swap() {
+        TourMoves moves = new TourMoves(matrix, tour);
+        float before = recompute(moves);
+        for (int a = 1; a < N; a++) {
+            for (int b = 1; b < N; b++) {
+                float delta = moves.swapDelta(a, b);
+                assertEquals(delta, moves.swapDelta(b, a), 0);
+                moves.swap(a, b);
+                assertEquals(recompute(moves) - before, delta, 0.001);
+                moves.swap(a, b);
+                assertTour(tour, moves);
+            }
+        }
+    }
+
+    @Test
+    public void twoOpt() {
+        TourMoves moves = new TourMoves(matrix, tour);
+        float before = recompute(moves);
+        for (int i = 1; i < N; i++) {
+            for (int j = i + 1; j < N; j++) {
+                float delta = moves.twoOptDelta(i, j);
+                moves.twoOpt(i, j);
+                assertEquals(recompute(moves) - before, delta, 0.001);
+                assertEquals(recompute(moves), moves.getCost(), 0.001);
+                moves.twoOpt(i, j);
+                assertTour(tour, moves);
+            }
+        }
+    }
+
+    @Test
+    public void setTour() {
+        TourMoves moves = new TourMoves(matrix, tour);
+        int[] other = tour.clone();
+        other[1] = tour[N - 1];
+        other[N - 1] = tour[1];
+        moves.setTour(other);
+        assertTour(other, moves);
+        assertEquals(N, moves.size());
+    }
+}
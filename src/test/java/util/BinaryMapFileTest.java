@@ -0,0 +1,61 @@
+package util;
+
+import model.Intersection;
+import model.Segment;
+import model.graphs.Plan;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BinaryMapFileTest {
+
+    @Test
+    public void compileAndRead() throws Exception {
+        File compiled = File.createTempFile("map", BinaryMapFile.EXTENSION);
+        compiled.deleteOnExit();
+        Plan xmlPlan = BinaryMapFile.compile("files/map.xml", compiled.getPath());
+        Plan plan = BinaryMapFile.read(compiled);
+
+        assertEquals(2,plan.getIntersectionMap().size());
+        Intersection intersection = plan.getIntersectionMap().get("1");
+        assertEquals(xmlPlan.getIntersectionMap().get("1").getLatitude(),intersection.getLatitude(),0);
+        assertEquals(4.8,intersection.getLongitude(),0.1);
+        assertEquals(xmlPlan.getMaxLatitude(),plan.getMaxLatitude(),0);
+
+        List<Segment> segments = plan.getSegmentsFromIntersection("1");
+        assertEquals(1,segments.size());
+        assertEquals("2",segments.get(0).getDestination());
+        assertEquals(72.60,segments.get(0).getLength(),0.01);
+        assertEquals("Rue Saint-Victorien",segments.get(0).getName());
+        assertEquals(2,plan.getRoadNetwork().getNbEdges());
+    }
+
+    @Test
+    public void readCorruptedFile() throws Exception {
+        File compiled = File.createTempFile("map", BinaryMapFile.EXTENSION);
+        compiled.deleteOnExit();
+        BinaryMapFile.compile("files/map.xml", compiled.getPath());
+        try (RandomAccessFile file = new RandomAccessFile(compiled, "rw")) {
+            file.seek(file.length() - 1);
+            int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 0xFF);
+        }
+        try {
+            BinaryMapFile.read(compiled);
+            fail("A corrupted map must not be loaded");
+        } catch (Exception e) {
+            assertEquals("Compiled map is corrupted",e.getMessage());
+        }
+    }
+
+    @Test
+    public void getCompiledFile() {
+        File compiled = BinaryMapFile.getCompiledFile(new File("files/largeMap.xml"));
+        assertEquals("largeMap" + BinaryMapFile.EXTENSION,compiled.getName());
+    }
+}
@@ -5,8 +5,14 @@ import model.PlanningRequest;
 import model.Request;
 import model.Segment;
 import model.graphs.Plan;
+import model.graphs.RoadNetwork;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -43,6 +49,25 @@ public class XMLParserTest {
 
     }
 
+    @Test
+    public void readMapRoadNetwork() throws Exception {
+        Plan plan = xmlParser.readMap("files/map.xml");
+        RoadNetwork network = plan.getRoadNetwork();
+        assertEquals(2,network.getNbNodes());
+        assertEquals(2,network.getNbEdges());
+
+        int origin = network.indexOf("1");
+        assertEquals("1",network.getId(origin));
+        assertEquals(-1,network.indexOf("3"));
+        assertEquals(xmlParser.getMercatorY((float)45.7),network.getLatitude(origin),0.0001);
+        assertEquals(1,network.edgeEnd(origin)-network.edgeStart(origin));
+
+        int edge = network.edgeStart(origin);
+        assertEquals("2",network.getId(network.getTarget(edge)));
+        assertEquals(72.60,network.getLength(edge),0.01);
+        assertEquals("Rue Saint-Victorien",network.getStreetName(network.getNameIndex(edge)));
+    }
+
     @Test
     public void readRequests(){
         PlanningRequest planningRequest;
@@ -88,13 +113,31 @@ public class XMLParserTest {
     }
 
     @Test
-    public void testBadMap(){
+    public void testBadMap() throws IOException {
         try{
             xmlParser.readMap("files/requestsSmall1.xml");
         }
         catch(Exception e){
             assertEquals("No intersections found in file",e.getMessage());
         }
+
+        // A segment towards an intersection missing from the file
+        File file = File.createTempFile("badMap", ".xml");
+        file.deleteOnExit();
+        Files.write(file.toPath(), Arrays.asList(
+                "<map>",
+                "    <segment destination=\"3\" length=\"72.60\" name=\"Rue Saint-Victorien\" origin=\"1\"/>",
+                "    <intersection id=\"1\" latitude=\"45.7\" longitude=\"4.8\"></intersection>",
+                "    <intersection id=\"2\" latitude=\"45.7\" longitude=\"4.8\"></intersection>",
+                "    <segment destination=\"1\" length=\"60.10\" name=\"Boulevard 11 Novembre\" origin=\"2\"/>",
+                "</map>"), StandardCharsets.UTF_8);
+        try{
+            xmlParser.readMap(file.getPath());
+            fail("The segment towards an unknown intersection should be rejected");
+        }
+        catch(Exception e){
+            assertEquals("The segment from 1 to 3 links an unknown intersection",e.getMessage());
+        }
     }
 
     @Test